@@ -0,0 +1,117 @@
+package bench;
+
+import gateway.Compression;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the compression ratio and throughput of every Compression codec on sample files, such as the snapshot
+ * files in phase2. Run with the files to measure as arguments; with no arguments every snapshot and shard file in
+ * phase2 is measured.
+ */
+public class CompressionBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+
+    /**
+     * Print a report of ratio against throughput for each codec and file.
+     * @param args paths of the files to measure
+     * @throws IOException if a file could not be read
+     */
+    public static void main(String[] args) throws IOException {
+        List<File> files = new ArrayList<>();
+        for (String arg : args){
+            files.add(new File(arg));
+        }
+        if (files.isEmpty()){
+            collect(new File("phase2"), files);
+        }
+
+        System.out.println(String.format("%-40s %-13s %10s %10s %7s %12s %12s",
+                "file", "codec", "raw", "stored", "ratio", "write MB/s", "read MB/s"));
+        for (File file : files){
+            byte[] data = Files.readAllBytes(file.toPath());
+            // files that were saved compressed are measured on their contents
+            try (InputStream input = Compression.decompress(new ByteArrayInputStream(data))) {
+                data = readAll(input);
+            }
+            for (Compression codec : Compression.values()){
+                System.out.println(measure(file.getPath(), data, codec));
+            }
+        }
+    }
+
+    /**
+     * Measure a codec on some data.
+     * @param name name of the data in the report
+     * @param data the data
+     * @param codec codec to measure
+     * @return one line of the report
+     * @throws IOException if the data could not be compressed or decompressed
+     */
+    public static String measure(String name, byte[] data, Compression codec) throws IOException {
+        byte[] stored = null;
+        long writeNanos = 0;
+        long readNanos = 0;
+
+        for (int i = 0; i < WARMUP_ROUNDS + ROUNDS; i++){
+            long start = System.nanoTime();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2 + 64);
+            try (OutputStream output = codec.compress(bytes)) {
+                output.write(data);
+            }
+            stored = bytes.toByteArray();
+            long written = System.nanoTime();
+
+            byte[] restored;
+            try (InputStream input = Compression.decompress(new ByteArrayInputStream(stored))) {
+                restored = readAll(input);
+            }
+            long end = System.nanoTime();
+
+            if (!Arrays.equals(restored, data)){
+                throw new IOException(codec + " did not round trip " + name);
+            }
+            if (i >= WARMUP_ROUNDS){
+                writeNanos += written - start;
+                readNanos += end - written;
+            }
+        }
+
+        double megabytes = data.length * (double) ROUNDS / (1 << 20);
+        return String.format("%-40s %-13s %10d %10d %7.2f %12.1f %12.1f", name, codec, data.length, stored.length,
+                stored.length == 0 ? 0 : data.length / (double) stored.length,
+                megabytes / (writeNanos / 1e9), megabytes / (readNanos / 1e9));
+    }
+
+    // =============== Helper methods ================
+    private static void collect(File directory, List<File> files){
+        File[] children = directory.listFiles();
+        if (children == null){
+            return;
+        }
+        for (File child : children){
+            if (child.isDirectory()){
+                collect(child, files);
+            }
+            else if (child.getName().matches(".*\\.(ser|bin|shard)") && child.length() > 0){
+                files.add(child);
+            }
+        }
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = input.read(buffer)) != -1){
+            bytes.write(buffer, 0, n);
+        }
+        return bytes.toByteArray();
+    }
+}
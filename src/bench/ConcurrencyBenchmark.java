@@ -0,0 +1,277 @@
+package bench;
+
+import entities.Message;
+import entities.user.RegularUser;
+import use_case.EventContainerManager;
+import use_case.MessageManager;
+import use_case.UserManager;
+import util.UserSignupException;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of UserManager, EventContainerManager and MessageManager under a mixed workload run by
+ * several threads at once, and checks after each run that no mutation was lost or interleaved with another. Run with
+ * the thread counts to measure as arguments; with no arguments 1, 2, 4, 8, 16 and 32 threads are measured.
+ *
+ * The workload is half reads, a quarter adding and removing creations, and the rest renaming users to a small set of
+ * contended names, adding events to containers, delivering messages and adding follow-ups to one message.
+ */
+public class ConcurrencyBenchmark {
+
+    private static final int USERS = 256;
+    private static final int CONTAINERS = 256;
+    private static final int NAMES = 64;
+    private static final int OPERATIONS = 400000;
+    private static final int SIGNUP_THREADS = 16;
+    private static final int SIGNUP_NAMES = 4;
+
+    /**
+     * Print one line of throughput and invariants per thread count, after checking that contended signups create
+     * exactly one user per username.
+     * @param args numbers of threads to measure
+     * @throws Exception if a thread failed or an invariant did not hold
+     */
+    public static void main(String[] args) throws Exception {
+        List<Integer> threadCounts = new ArrayList<>();
+        for (String arg : args){
+            threadCounts.add(Integer.parseInt(arg));
+        }
+        if (threadCounts.isEmpty()){
+            threadCounts.addAll(Arrays.asList(1, 2, 4, 8, 16, 32));
+        }
+
+        System.out.println(signups());
+        // warm up the JIT before the measured runs
+        run(4);
+        for (int threads : threadCounts){
+            System.out.println(run(threads));
+        }
+        // the password hashing threads would keep the JVM running
+        System.exit(0);
+    }
+
+    /**
+     * Sign up the same few usernames from several threads at once.
+     * @return one line of the report
+     * @throws Exception if a thread failed or more than one user got a username
+     */
+    public static String signups() throws Exception {
+        UserManager um = new UserManager();
+        ExecutorService pool = Executors.newFixedThreadPool(SIGNUP_THREADS);
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger taken = new AtomicInteger();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < SIGNUP_THREADS; t++){
+            int thread = t;
+            tasks.add(pool.submit(() -> {
+                for (int i = 0; i < SIGNUP_NAMES; i++){
+                    try {
+                        String email = "u" + thread + "x" + i + "@b.com";
+                        um.addUser(new RegularUser("name" + i, "Passw0rd!x" + thread, email));
+                        added.incrementAndGet();
+                    } catch (UserSignupException e) {
+                        taken.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> task : tasks){
+            task.get();
+        }
+        pool.shutdown();
+
+        if (added.get() != SIGNUP_NAMES || um.getEntries().size() != SIGNUP_NAMES){
+            throw new IllegalStateException(added + " signups succeeded for " + SIGNUP_NAMES + " usernames");
+        }
+        return String.format("signups: %d threads, %d names, added=%d taken=%d", SIGNUP_THREADS, SIGNUP_NAMES,
+                added.get(), taken.get());
+    }
+
+    /**
+     * Run the workload on fresh managers with the given number of threads.
+     * @param threads number of threads
+     * @return one line of the report
+     * @throws Exception if a thread failed or an invariant did not hold
+     */
+    public static String run(int threads) throws Exception {
+        UserManager um = new UserManager();
+        EventContainerManager ecm = new EventContainerManager();
+        MessageManager mm = new MessageManager();
+        UUID[] users = new UUID[USERS];
+        for (int i = 0; i < USERS; i++){
+            // added through replay, so that setting up does not wait for password hashing
+            RegularUser user = new RegularUser("user" + i, "x", "u" + i + "@b.com");
+            um.replayPut(user.getUserID(), user);
+            users[i] = user.getUserID();
+        }
+        UUID[] containers = new UUID[CONTAINERS];
+        for (int i = 0; i < CONTAINERS; i++){
+            containers[i] = ecm.addEventContainer("c" + i, "Todo");
+        }
+        UUID root = mm.addMessage(users[0], Collections.singletonList(users[1]), "t", "c", new UUID[0]);
+        long startVersion = um.getVersion() + ecm.getVersion() + mm.getVersion();
+
+        Workload workload = new Workload(um, ecm, mm, users, containers, root);
+        int perThread = OPERATIONS / threads;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++){
+            tasks.add(pool.submit(() -> {
+                start.await();
+                workload.run(perThread);
+                return null;
+            }));
+        }
+        start.await();
+        long begin = System.nanoTime();
+        for (Future<?> task : tasks){
+            task.get();
+        }
+        long nanos = System.nanoTime() - begin;
+        pool.shutdown();
+
+        String broken = workload.check(um.getVersion() + ecm.getVersion() + mm.getVersion() - startVersion);
+        if (broken != null){
+            throw new IllegalStateException(threads + " threads: " + broken);
+        }
+        return String.format("threads=%2d %8.3f Mops/s, %d mutations, invariants hold", threads,
+                threads * (double) perThread * 1000 / nanos, workload.mutations.get());
+    }
+
+    // =============== Helper methods ================
+
+    /**
+     * The workload shared by the threads of one run, and what it did, to check the managers against afterwards.
+     */
+    private static class Workload {
+
+        private final UserManager um;
+        private final EventContainerManager ecm;
+        private final MessageManager mm;
+        private final UUID[] users;
+        private final UUID[] containers;
+        private final UUID root;
+
+        private final AtomicLong mutations = new AtomicLong();
+        private final AtomicLong eventsAdded = new AtomicLong();
+        private final AtomicLong followUps = new AtomicLong();
+        private final Map<UUID, UUID> liveCreations = new ConcurrentHashMap<>();
+
+        Workload(UserManager um, EventContainerManager ecm, MessageManager mm, UUID[] users, UUID[] containers,
+                 UUID root){
+            this.um = um;
+            this.ecm = ecm;
+            this.mm = mm;
+            this.users = users;
+            this.containers = containers;
+            this.root = root;
+        }
+
+        void run(int operations){
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            // creations added by this thread, as {owner, creation}, so that only they are removed by it
+            Deque<UUID[]> mine = new ArrayDeque<>();
+            for (int i = 0; i < operations; i++){
+                int op = random.nextInt(100);
+                UUID user = users[random.nextInt(USERS)];
+                if (op < 50){
+                    um.getUserModuleIDSet(user).size();
+                    um.getUsername(user);
+                    ecm.getContainedEvents(containers[random.nextInt(CONTAINERS)]);
+                    if (!mine.isEmpty()){
+                        um.getUserByCreation(mine.peek()[1]);
+                    }
+                }
+                else if (op < 65){
+                    UUID creation = UUID.randomUUID();
+                    um.addCreationToUser(user, creation);
+                    liveCreations.put(creation, user);
+                    mine.push(new UUID[]{user, creation});
+                    mutations.incrementAndGet();
+                }
+                else if (op < 75 && !mine.isEmpty()){
+                    UUID[] owned = mine.pop();
+                    um.removeCreationFromUser(owned[0], owned[1]);
+                    liveCreations.remove(owned[1]);
+                    mutations.incrementAndGet();
+                }
+                else if (op < 80){
+                    rename(user, "name" + random.nextInt(NAMES));
+                }
+                else if (op < 90){
+                    ecm.addEventToContainer(containers[random.nextInt(CONTAINERS)], UUID.randomUUID());
+                    eventsAdded.incrementAndGet();
+                    mutations.incrementAndGet();
+                }
+                else if (op < 95){
+                    um.addMessageToInbox(UUID.randomUUID(), user);
+                    mutations.incrementAndGet();
+                }
+                else {
+                    mm.AddFollowUpToMessage(root, UUID.randomUUID());
+                    followUps.incrementAndGet();
+                    mutations.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Check the managers against what the workload did.
+         * @param versions number of mutations the managers counted
+         * @return description of the first invariant that does not hold, or null if they all hold
+         */
+        String check(long versions){
+            Set<String> names = new HashSet<>();
+            int creations = 0;
+            for (UUID user : users){
+                String name = um.getUsername(user);
+                if (!names.add(name) || um.usernameAvailable(name)){
+                    return "username " + name + " is not unique";
+                }
+                for (UUID creation : um.getUserModuleIDSet(user)){
+                    if (!user.equals(um.getUserByCreation(creation)) || !user.equals(liveCreations.get(creation))){
+                        return "creation " + creation + " has the wrong owner";
+                    }
+                    creations++;
+                }
+            }
+            if (creations != liveCreations.size()){
+                return creations + " creations owned, " + liveCreations.size() + " added";
+            }
+
+            long events = 0;
+            for (UUID container : containers){
+                events += ecm.getContainedEvents(container).length;
+            }
+            if (events != eventsAdded.get()){
+                return events + " events in containers, " + eventsAdded + " added";
+            }
+            int replies = ((Message) mm.getEntries().get(root)).getFollowUpMessageIDs().size();
+            if (replies != followUps.get()){
+                return replies + " follow-ups, " + followUps + " added";
+            }
+            if (versions != mutations.get()){
+                return versions + " versions counted, " + mutations + " mutations made";
+            }
+            return null;
+        }
+
+        private void rename(UUID user, String target){
+            if (target.equals(um.getUsername(user))){
+                return;
+            }
+            try {
+                um.setUsername(user, target);
+                mutations.incrementAndGet();
+            } catch (UserSignupException e) {
+                // another user has the name
+            }
+        }
+    }
+}
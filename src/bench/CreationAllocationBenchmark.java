@@ -0,0 +1,122 @@
+package bench;
+
+import entities.user.RegularUser;
+import use_case.UserManager;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Measures the bytes allocated and the time taken by the reads the browse path makes of a user's creations, through
+ * the copying UserManager.getUserModuleIDs and the read-only UserManager.getUserModuleIDSet. Run with the numbers of
+ * creations to measure as arguments; with no arguments users with 10, 100, 1000 and 5000 creations are measured.
+ * Allocation is read from the JVM's per-thread allocation counter, which not every JVM has.
+ */
+public class CreationAllocationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20000;
+    private static final int ROUNDS = 20000;
+
+    // results of the reads, kept so that the reads cannot be optimized away
+    private static volatile int sink;
+
+    /**
+     * Print a report of bytes and nanoseconds per read for each number of creations.
+     * @param args numbers of creations to measure
+     */
+    public static void main(String[] args) {
+        List<Integer> sizes = new ArrayList<>();
+        for (String arg : args){
+            sizes.add(Integer.parseInt(arg));
+        }
+        if (sizes.isEmpty()){
+            sizes.addAll(Arrays.asList(10, 100, 1000, 5000));
+        }
+
+        System.out.println(String.format("%10s %-22s %12s %10s", "creations", "read", "bytes/op", "ns/op"));
+        for (int creations : sizes){
+            for (String line : measure(creations)){
+                System.out.println(line);
+            }
+        }
+    }
+
+    /**
+     * Measure every read on a user with the given number of creations.
+     * @param creations number of creations of the user
+     * @return one line of the report per read
+     */
+    public static List<String> measure(int creations) {
+        UserManager um = new UserManager();
+        RegularUser user = new RegularUser("user", "x", "user@mail.com");
+        um.replayPut(user.getUserID(), user);
+        UUID userID = user.getUserID();
+        UUID[] owned = new UUID[creations];
+        for (int i = 0; i < creations; i++){
+            owned[i] = UUID.randomUUID();
+            um.addCreationToUser(userID, owned[i]);
+        }
+        UUID probe = owned[creations / 2];
+
+        List<String> lines = new ArrayList<>();
+        lines.add(line(creations, "iterate copy", () -> {
+            int count = 0;
+            for (UUID id : um.getUserModuleIDs(userID)){
+                count += id.hashCode() & 1;
+            }
+            return count;
+        }));
+        lines.add(line(creations, "iterate set", () -> {
+            int count = 0;
+            for (UUID id : um.getUserModuleIDSet(userID)){
+                count += id.hashCode() & 1;
+            }
+            return count;
+        }));
+        lines.add(line(creations, "contains copy", () ->
+                Arrays.asList(um.getUserModuleIDs(userID)).contains(probe) ? 1 : 0));
+        lines.add(line(creations, "contains set", () -> um.getUserModuleIDSet(userID).contains(probe) ? 1 : 0));
+        lines.add(line(creations, "owner", () -> userID.equals(um.getUserByCreation(probe)) ? 1 : 0));
+        return lines;
+    }
+
+    // =============== Helper methods ================
+
+    /**
+     * A read of a user's creations, answering with a number so that the read cannot be optimized away.
+     */
+    private interface Read {
+        int run();
+    }
+
+    private static String line(int creations, String name, Read read){
+        int results = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++){
+            results += read.run();
+        }
+
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++){
+            results += read.run();
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+        sink = results;
+
+        return String.format("%10d %-22s %12s %10.0f", creations, name,
+                bytesBefore < 0 ? "n/a" : String.format("%.0f", bytes / (double) ROUNDS), nanos / (double) ROUNDS);
+    }
+
+    /**
+     * Get the bytes allocated by the current thread so far.
+     * @return bytes allocated, or -1 if the JVM does not count them
+     */
+    private static long allocatedBytes(){
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)){
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
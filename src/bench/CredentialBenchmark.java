@@ -0,0 +1,140 @@
+package bench;
+
+import use_case.CredentialCheck;
+import use_case.CredentialValidator;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Compares CredentialValidator with the regular expressions it replaced. First checks that both give the same answer
+ * on random strings drawn from letters, digits, symbols, spaces and line terminators, then measures the bytes
+ * allocated and the time taken per check of valid credentials. Run with the number of random strings to compare as
+ * argument; with no argument 1M strings are compared. Allocation is read from the JVM's per-thread allocation counter,
+ * which not every JVM has.
+ */
+public class CredentialBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200000;
+    private static final int ROUNDS = 200000;
+    private static final String ALPHABET = "abcxyzABCXYZ0189 _.-@!#\u00e9\n\r\u0085\u2028\u2029";
+    private static final String PASSWORD = "Correct-Horse-42";
+    private static final String EMAIL = "first.last-1@mail-host.com";
+    private static final String USERNAME = "someone";
+    private static final String EMAIL_REGEX = "[a-z0-9]+([_.-][a-z0-9]+)*@[a-z0-9-]+[.][a-z]{2,4}";
+
+    // results of the checks, kept so that the checks cannot be optimized away
+    private static volatile int sink;
+
+    /**
+     * Print whether CredentialValidator agrees with the regular expressions, then a report of bytes and nanoseconds
+     * per check of valid credentials for both.
+     * @param args number of random strings to compare
+     */
+    public static void main(String[] args) {
+        int strings = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        System.out.println(compare(strings));
+
+        System.out.println(String.format("%-22s %12s %10s", "check", "bytes/op", "ns/op"));
+        System.out.println(measure("strength", () -> CredentialValidator.passwordStrength(PASSWORD)));
+        System.out.println(measure("strength regex", () -> regexStrength(PASSWORD)));
+        System.out.println(measure("email", () -> CredentialValidator.checkEmail(EMAIL).ordinal()));
+        System.out.println(measure("email regex", () -> EMAIL.matches(EMAIL_REGEX) ? 1 : 0));
+        System.out.println(measure("sign up", () -> CredentialValidator.checkUsername(USERNAME).ordinal()
+                + CredentialValidator.checkPassword(PASSWORD).ordinal()
+                + CredentialValidator.checkEmail(EMAIL).ordinal()
+                + CredentialValidator.passwordStrength(PASSWORD)));
+    }
+
+    /**
+     * Compare CredentialValidator with the regular expressions on random strings.
+     * @param strings number of random strings
+     * @return one line of the report
+     * @throws IllegalStateException if an answer differs
+     */
+    public static String compare(int strings) {
+        Random random = new Random(strings);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < strings; i++){
+            builder.setLength(0);
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++){
+                builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            // half the strings are shaped like emails, so the email check is exercised past the first character
+            if (i % 2 == 0){
+                builder.insert(random.nextInt(builder.length() + 1), '@').append(i % 4 == 0 ? ".com" : ".c");
+            }
+            String value = builder.toString();
+
+            if (CredentialValidator.passwordStrength(value) != regexStrength(value)){
+                throw new IllegalStateException("strength differs for " + escape(value));
+            }
+            boolean emailValid = CredentialValidator.checkEmail(value) != CredentialCheck.EMAIL_FORMAT;
+            if (emailValid != value.matches(EMAIL_REGEX)){
+                throw new IllegalStateException("email check differs for " + escape(value));
+            }
+        }
+        return String.format("%d random strings: same answers as the regular expressions", strings);
+    }
+
+    // =============== Helper methods ================
+
+    /**
+     * A check of credentials, answering with a number so that the check cannot be optimized away.
+     */
+    private interface Check {
+        int run();
+    }
+
+    /**
+     * Score a password the way UserManager.getPasswordStrength did before CredentialValidator.
+     */
+    private static int regexStrength(String password){
+        int length = password.length() < 9 ? 3 : 4;
+        int symbols = password.matches(".*[^a-zA-Z0-9 ]+.*") ? 1 : 0;
+        int mixed = password.matches(".*[A-Z]+.*") && password.matches(".*[a-z]+.*")? 1 : 0;
+        int num = password.matches(".*[0-9]+.*") ? 1 : 0;
+
+        return length + symbols + mixed + num;
+    }
+
+    private static String measure(String name, Check check){
+        int results = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++){
+            results += check.run();
+        }
+
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++){
+            results += check.run();
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+        sink = results;
+
+        return String.format("%-22s %12s %10.0f", name,
+                bytesBefore < 0 ? "n/a" : String.format("%.0f", bytes / (double) ROUNDS), nanos / (double) ROUNDS);
+    }
+
+    /**
+     * Get the bytes allocated by the current thread so far.
+     * @return bytes allocated, or -1 if the JVM does not count them
+     */
+    private static long allocatedBytes(){
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)){
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static String escape(String value){
+        StringBuilder res = new StringBuilder("\"");
+        for (char c : value.toCharArray()){
+            res.append(c < ' ' || c > '~' ? String.format("\\u%04x", (int) c) : String.valueOf(c));
+        }
+        return res.append('"').toString();
+    }
+}
@@ -0,0 +1,83 @@
+package bench;
+
+import entities.user.RegularUser;
+import use_case.UserManager;
+
+import java.util.*;
+
+/**
+ * Measures login latency against the number of users, to show that looking a user up does not slow down as users are
+ * added. Run with the numbers of users to measure as arguments; with no arguments 1k, 10k, 100k and 1M users are
+ * measured. The users' passwords are stored as they were before passwords were hashed, so each login is checked
+ * without hashing, whose cost does not depend on the number of users and would hide the cost of the lookups.
+ */
+public class LoginBenchmark {
+
+    private static final int WARMUP_LOGINS = 20000;
+    private static final int LOGINS = 50000;
+    private static final String PASSWORD = "Passw0rd!";
+
+    /**
+     * Print a report of lookup and login latency for each number of users.
+     * @param args numbers of users to measure
+     * @throws Exception if a login failed
+     */
+    public static void main(String[] args) throws Exception {
+        List<Integer> userCounts = new ArrayList<>();
+        for (String arg : args){
+            userCounts.add(Integer.parseInt(arg));
+        }
+        if (userCounts.isEmpty()){
+            userCounts.addAll(Arrays.asList(1000, 10000, 100000, 1000000));
+        }
+
+        System.out.println(String.format("%10s %12s %14s %14s", "users", "lookup ns", "login us p50",
+                "login us p99"));
+        for (int users : userCounts){
+            System.out.println(measure(users));
+        }
+        // the password hashing threads would keep the JVM running
+        System.exit(0);
+    }
+
+    /**
+     * Measure lookups and logins of random users among the given number of users.
+     * @param users number of users
+     * @return one line of the report
+     * @throws Exception if a login failed
+     */
+    public static String measure(int users) throws Exception {
+        UserManager um = new UserManager();
+        for (int i = 0; i < users; i++){
+            RegularUser user = new RegularUser("user" + i, PASSWORD, "user" + i + "@mail.com");
+            um.replayPut(user.getUserID(), user);
+        }
+
+        Random random = new Random(users);
+        String[] names = new String[WARMUP_LOGINS + LOGINS];
+        for (int i = 0; i < names.length; i++){
+            names[i] = "user" + random.nextInt(users);
+        }
+
+        long lookupNanos = 0;
+        long[] loginNanos = new long[LOGINS];
+        for (int i = 0; i < names.length; i++){
+            long start = System.nanoTime();
+            if (um.usernameAvailable(names[i])){
+                throw new IllegalStateException(names[i] + " was not found");
+            }
+            long found = System.nanoTime();
+            um.userLogin(names[i], PASSWORD);
+            long end = System.nanoTime();
+
+            if (i >= WARMUP_LOGINS){
+                lookupNanos += found - start;
+                loginNanos[i - WARMUP_LOGINS] = end - found;
+            }
+        }
+
+        Arrays.sort(loginNanos);
+        return String.format("%10d %12.0f %14.1f %14.1f", users, lookupNanos / (double) LOGINS,
+                loginNanos[LOGINS / 2] / 1e3, loginNanos[LOGINS * 99 / 100] / 1e3);
+    }
+}
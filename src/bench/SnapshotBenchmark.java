@@ -0,0 +1,184 @@
+package bench;
+
+import entities.creation.Event;
+import entities.creation.ScheduleEvent;
+import entities.creation.TaggedEvent;
+import entities.creation.TodoListEvent;
+import gateway.CodecInput;
+import gateway.CodecOutput;
+import gateway.EntityCodec;
+import gateway.ManagerGateway;
+import use_case.EventContainerManager;
+import use_case.EventManager;
+import use_case.JournaledManager;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Compares the size and speed of binary snapshots with Java serialization, the format of the .ser files, on generated
+ * managers. Run with the numbers of events to measure as arguments; with no arguments 10k, 100k and 1M events are
+ * measured. Each run holds an EventManager with the events and an EventContainerManager with one container for every
+ * CONTAINER_SIZE events. Snapshots are written to memory, so the speed of the disk is not part of the measurement.
+ */
+public class SnapshotBenchmark {
+
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int ROUNDS = 5;
+    private static final int CONTAINER_SIZE = 10;
+    private static final String[] TYPES = {"Todo", "Schedule", "Tagged"};
+    private static final String[] TAGS = {"work", "home", "school", "urgent", "later", "errands"};
+
+    /**
+     * Print a report of size and throughput for each format, manager and number of events.
+     * @param args numbers of events to measure
+     * @throws IOException if a snapshot did not round trip
+     * @throws ClassNotFoundException if a snapshot could not be read
+     */
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        List<Integer> sizes = new ArrayList<>();
+        for (String arg : args){
+            sizes.add(Integer.parseInt(arg));
+        }
+        if (sizes.isEmpty()){
+            sizes.addAll(Arrays.asList(10000, 100000, 1000000));
+        }
+
+        System.out.println(String.format("%-10s %-8s %-11s %12s %7s %10s %10s",
+                "events", "manager", "format", "bytes", "ratio", "write ms", "read ms"));
+        for (int events : sizes){
+            EventManager em = new EventManager();
+            EventContainerManager ecm = new EventContainerManager();
+            populate(em, ecm, events);
+            for (String line : measure(String.valueOf(events), "em", em, 2)){
+                System.out.println(line);
+            }
+            for (String line : measure(String.valueOf(events), "ecm", ecm, 1)){
+                System.out.println(line);
+            }
+        }
+    }
+
+    /**
+     * Measure both snapshot formats on a manager.
+     * @param events number of events, as shown in the report
+     * @param name name of the manager in the report
+     * @param manager manager to measure
+     * @param index index of the manager in the managers array
+     * @return two lines of the report, serialized then binary, with the ratio of serialized size to each size
+     * @throws IOException if a snapshot did not round trip
+     * @throws ClassNotFoundException if a snapshot could not be read
+     */
+    public static String[] measure(String events, String name, JournaledManager manager, int index)
+            throws IOException, ClassNotFoundException {
+        int entries = manager.getEntries().size();
+        long[] serialized = new long[3];
+        long[] binary = new long[3];
+
+        for (int i = 0; i < WARMUP_ROUNDS + ROUNDS; i++){
+            boolean counted = i >= WARMUP_ROUNDS;
+            for (boolean isBinary : new boolean[]{false, true}){
+                long[] result = isBinary ? binary : serialized;
+                long start = System.nanoTime();
+                byte[] stored = isBinary ? writeBinary(manager) : writeSerialized(manager);
+                long written = System.nanoTime();
+                int read = isBinary ? readBinary(stored, index) : readSerialized(stored);
+                long end = System.nanoTime();
+
+                if (read != entries){
+                    throw new IOException((isBinary ? "binary" : "serialized") + " did not round trip " + name);
+                }
+                result[0] = stored.length;
+                if (counted){
+                    result[1] += written - start;
+                    result[2] += end - written;
+                }
+            }
+        }
+
+        return new String[]{line(events, name, "serialized", serialized, serialized[0]),
+                line(events, name, "binary", binary, serialized[0])};
+    }
+
+    // =============== Helper methods ================
+
+    /**
+     * Fill the managers with events of every type, spread over containers.
+     */
+    private static void populate(EventManager em, EventContainerManager ecm, int events){
+        Random random = new Random(events);
+        long now = System.currentTimeMillis();
+        for (int first = 0; first < events; first += CONTAINER_SIZE){
+            int type = (first / CONTAINER_SIZE) % TYPES.length;
+            UUID containerID = ecm.addEventContainer("container " + first / CONTAINER_SIZE, TYPES[type]);
+            UUID[] contained = new UUID[Math.min(CONTAINER_SIZE, events - first)];
+            for (int i = 0; i < contained.length; i++){
+                String name = "event " + (first + i);
+                String note = "note " + random.nextInt(1000);
+                boolean privacy = random.nextBoolean();
+                Event event;
+                if (type == 0){
+                    event = new TodoListEvent(name, note, privacy, random.nextInt(5));
+                }
+                else if (type == 1){
+                    event = new ScheduleEvent(name, note, privacy, new Date(now + random.nextInt(1 << 30) * 1000L));
+                }
+                else {
+                    event = new TaggedEvent(name, note, privacy, new String[]{TAGS[random.nextInt(TAGS.length)],
+                            TAGS[random.nextInt(TAGS.length)]});
+                }
+                contained[i] = em.addEvent(event);
+            }
+            ecm.addEventsToContainer(containerID, contained);
+        }
+    }
+
+    private static byte[] writeSerialized(JournaledManager manager) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(manager);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int readSerialized(byte[] stored) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(stored))) {
+            return ((JournaledManager) input.readObject()).getEntries().size();
+        }
+    }
+
+    /**
+     * Write a snapshot the way FileStorageBackend writes snapshot_*.bin files.
+     */
+    private static byte[] writeBinary(JournaledManager manager) throws IOException {
+        EntityCodec codec = new EntityCodec();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodecOutput output = new CodecOutput(bytes);
+        output.writeVarInt(manager.getEntries().size());
+        for (Map.Entry<?, ?> entry : manager.getEntries().entrySet()){
+            codec.write(output, entry.getKey());
+            codec.write(output, entry.getValue());
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read a snapshot the way FileStorageBackend reads snapshot_*.bin files.
+     */
+    private static int readBinary(byte[] stored, int index) throws IOException, ClassNotFoundException {
+        EntityCodec codec = new EntityCodec();
+        CodecInput input = new CodecInput(new ByteArrayInputStream(stored));
+        JournaledManager manager = ManagerGateway.newManager(index);
+        int count = input.readVarInt();
+        for (int i = 0; i < count; i++){
+            manager.replayPut(codec.read(input), codec.read(input));
+        }
+        return manager.getEntries().size();
+    }
+
+    private static String line(String events, String name, String format, long[] result, long serializedBytes){
+        return String.format("%-10s %-8s %-11s %12d %7.2f %10.1f %10.1f", events, name, format, result[0],
+                serializedBytes / (double) result[0], result[1] / 1e6 / ROUNDS, result[2] / 1e6 / ROUNDS);
+    }
+}
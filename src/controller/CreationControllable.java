@@ -1,11 +1,14 @@
 package controller;
 
+import util.NullUserException;
+
 import java.util.Map;
 import java.util.UUID;
 
 /**
  * Implementing this interface allows the class to be be treated as
- * a "creation", and can perform all the behaviours of a creation: viewing, browsing, editing, creation
+ * a "creation", and can perform all the behaviours of a creation: viewing, browsing, editing, creation. The user acting
+ * is the user of the session whose token is given; a session that does not exist views creations as nobody would.
  */
 public interface CreationControllable {
 
@@ -13,59 +16,80 @@ public interface CreationControllable {
      * Constructs a creation given an array of inputs and path to a template.
      * @param params Array of raw user inputs
      * @param path path of a template instance
+     * @param session token of the session of the user making the creation
      * @return UUID of the creation that was constructed
-     * @throws Exception thrown if something goes wrong in constructing the creation.
+     * @throws Exception thrown if something goes wrong in constructing the creation, such as a NullUserException if
+     * the session does not exist.
      */
-    UUID constructCreation(String[] params, String path, UUID creator) throws Exception;
+    UUID constructCreation(String[] params, String path, String session) throws Exception;
 
     /**
      * Edits a creation given its id.
+     * @param session token of the session of the user editing the creation
      * @param creationID UUID of the creation.
+     * @throws Exception thrown if the creation could not be edited, such as a NullUserException if the session does
+     * not exist.
      */
-    void editCreation(UUID creationID, String action, String input) throws Exception;
+    void editCreation(String session, UUID creationID, String action, String input) throws Exception;
 
     /**
      * Deletes a creation given its id.
+     * @param session token of the session of the user deleting the creation
      * @param creationID UUID of the creation
+     * @throws NullUserException if the session does not exist
      */
-    void deleteCreation(UUID creationID);
+    void deleteCreation(String session, UUID creationID) throws NullUserException;
 
     /**
      * Set the privacy of a creation, given its id and new privacy status.
+     * @param session token of the session of the user changing the privacy
      * @param creationID UUID of the creation.
      * @param newPrivacy new privacy of the creation.
+     * @throws NullUserException if the session does not exist
      */
-    void setPrivacy(UUID creationID, boolean newPrivacy);
+    void setPrivacy(String session, UUID creationID, boolean newPrivacy) throws NullUserException;
 
     /**
      * Get all public creations from an array of creations.
-     * @param viewer UUID of the user browsing creations.
+     * @param session token of the session of the user browsing creations.
      * @return array containing creations accessible to the user.
      */
-    UUID[] getBrowsableCreations(UUID viewer);
+    UUID[] getBrowsableCreations(String session);
+
+    /**
+     * Get an array of creations owned by the user of a session
+     * @param session token of the session of the user
+     * @return Array of creation UUIDs owned by the user, empty if the session does not exist
+     */
+    UUID[] getOwnCreations(String session);
 
     /**
-     * Get an array of creations owned by a user
-     * @param userID UUID of the user
-     * @return Array of creation UUIDs owned by the user
+     * Get one page of the creations a user can browse, or of their own creations, in the given order.
+     * @param session token of the session of the user browsing creations
+     * @param own true for the viewer's own creations, false for the creations they can browse
+     * @param sort order of the creations
+     * @param pageSize maximum number of creations on the page
+     * @param token continuation token returned with the previous page, or null for the first page
+     * @return page of creations, with the token of the next page
+     * @throws IllegalArgumentException if the token is not one returned for the same order
      */
-    UUID[] getOwnCreations(UUID userID);
+    CreationPage browseCreations(String session, boolean own, CreationSort sort, int pageSize, String token);
 
     /**
      * Get full information about a creation given its UUID.
      * @param creation UUID of the creation
-     * @param viewer UUID of the user viewing the creation
+     * @param session token of the session of the user viewing the creation
      * @return Array containing information of creation. [name, contents]
      */
-    Map<String, String> viewCreation(UUID creation, UUID viewer);
+    Map<String, String> viewCreation(UUID creation, String session);
 
     /**
-     * Get a summary of creations information given its UUID and viewing user's UUID.
+     * Get a summary of creations information given its UUID and the session of the viewing user.
      * @param creation UUID of the creation
-     * @param viewer UUID of the viewer
+     * @param session token of the session of the viewer
      * @return String showing a summary of creation information
      */
-    String[] viewCreationSummary(UUID creation, UUID viewer);
+    String[] viewCreationSummary(UUID creation, String session);
 
     /**
      * Get the type of creation given its UUID
@@ -0,0 +1,48 @@
+package controller;
+
+import java.util.UUID;
+
+/**
+ * One page of creations read from a CreationControllable, with the token to read the next page from.
+ */
+public class CreationPage {
+
+    private final UUID[] creations;
+    private final String next;
+
+    /**
+     * Initializes a CreationPage.
+     * @param creations creations on this page, in order
+     * @param next token of the next page, or null if this is the last page
+     */
+    public CreationPage(UUID[] creations, String next){
+        this.creations = creations;
+        this.next = next;
+    }
+
+    // ============== Getters =================
+
+    /**
+     * Get the creations on this page.
+     * @return array of creation UUIDs, in order
+     */
+    public UUID[] getCreations(){
+        return creations.clone();
+    }
+
+    /**
+     * Get the token to pass back to read the page after this one.
+     * @return opaque continuation token, or null if this is the last page
+     */
+    public String getNext(){
+        return next;
+    }
+
+    /**
+     * Whether there are creations after this page.
+     * @return true if there is a next page
+     */
+    public boolean hasNext(){
+        return next != null;
+    }
+}
@@ -0,0 +1,26 @@
+package controller;
+
+/**
+ * Orders that creations can be browsed in.
+ */
+public enum CreationSort {
+    /**
+     * By name, ignoring case.
+     */
+    NAME,
+
+    /**
+     * By creation type.
+     */
+    TYPE,
+
+    /**
+     * By the username of the author.
+     */
+    AUTHOR,
+
+    /**
+     * By when the creation was made, oldest first.
+     */
+    CREATED
+}
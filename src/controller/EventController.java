@@ -1,14 +1,23 @@
 package controller;
 
 import gateway.CILoadable;
+import gateway.ManagerReadiness;
+import use_case.ContainerOrder;
+import use_case.CreationVisibility;
 import use_case.TemplateManager;
 import use_case.EventContainerManager;
 import use_case.factory.EventFactory;
 import use_case.EventManager;
+import use_case.SessionManager;
 import use_case.UserManager;
 
+import entities.creation.Event;
+import util.NullUserException;
+
+import java.io.*;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.Future;
 
 /**
  * Class responsible for reacting to user input related to Events and
@@ -20,11 +29,22 @@ public class EventController implements CreationControllable, CILoadable {
     private EventFactory ef;
     private UserManager um;
     private TemplateManager tm;
+    private final SessionManager sessions;
+    private ManagerReadiness readiness = new ManagerReadiness();
 
     /**
-     * Initialize this EventController
+     * Initialize this EventController with sessions of its own
      */
     public EventController(){
+        this(new SessionManager());
+    }
+
+    /**
+     * Initialize this EventController
+     * @param sessions sessions of the logged in users, shared with the other controllers
+     */
+    public EventController(SessionManager sessions){
+        this.sessions = sessions;
         this.em = new EventManager();
         this.ecm = new EventContainerManager();
         this.ef = new EventFactory();
@@ -36,11 +56,15 @@ public class EventController implements CreationControllable, CILoadable {
      * Construct an EventContainer given an array of parameters, and the path to the template used to make the creation.
      * @param params User input to template prompts.
      * @param path Path of the template instance used to collect these prompts.
-     * @param creator UUID of the user who created this creation
+     * @param session token of the session of the user who created this creation
      * @return UUID of the EventContainer instance created.
+     * @throws NullUserException if the session does not exist
      */
     @Override
-    public UUID constructCreation(String[] params, String path, UUID creator) throws ParseException {
+    public UUID constructCreation(String[] params, String path, String session)
+            throws ParseException, NullUserException {
+        readiness.await();
+        UUID creator = sessionUser(session);
         // params set up like this: [EC name, event 1, event 2, event 3....]
         // event format: name, notation, privacy, .. (comma separated)
         if (params.length < 2){
@@ -82,11 +106,16 @@ public class EventController implements CreationControllable, CILoadable {
 
     /**
      * Edit the selected EventContainer (add/delete events, rename EventContainer).
+     * @param session token of the session of the user editing the EventContainer
      * @param creationID UUID of the EventContainer.
      * @param action Selected action of the user.
+     * @throws NullUserException if the session does not exist
      */
     @Override
-    public void editCreation(UUID creationID, String action, String input) throws ParseException{
+    public void editCreation(String session, UUID creationID, String action, String input)
+            throws ParseException, NullUserException {
+        readiness.await();
+        checkSession(session);
 
         // add event
         if (action.matches("Todo|Schedule|Tagged")){
@@ -119,14 +148,19 @@ public class EventController implements CreationControllable, CILoadable {
     }
 
     /**
-     * Deletes a creation given its id.
-     * @param creationID UUID of the creation
+     * {@inheritDoc}
      */
     @Override
-    public void deleteCreation(UUID creationID) {
-        UUID[] events = ecm.getContainedEvents(creationID);
-        ecm.removeEventContainer(creationID);
-        um.removeCreationFromUser(um.getUserByCreation(creationID), creationID);
+    public void deleteCreation(String session, UUID creationID) throws NullUserException {
+        readiness.await();
+        checkSession(session);
+        // the owner lets go of the creation first, so that it is not listed once its container is gone
+        UUID owner = um.getUserByCreation(creationID);
+        if (owner != null){
+            um.removeCreationFromUser(owner, creationID);
+        }
+        // events added by another thread until the container is removed are removed along with it
+        UUID[] events = ecm.removeEventContainer(creationID);
 
         for(UUID eventID : events){
             em.removeEvent(eventID);
@@ -134,39 +168,33 @@ public class EventController implements CreationControllable, CILoadable {
     }
 
     /**
-     * Set privacy of the selected EventContainer.
-     * @param creationID UUID of the creation.
-     * @param newPrivacy new privacy of the creation.
+     * {@inheritDoc}
      */
     @Override
-    public void setPrivacy(UUID creationID, boolean newPrivacy) {
+    public void setPrivacy(String session, UUID creationID, boolean newPrivacy) throws NullUserException {
+        readiness.await();
+        checkSession(session);
         ecm.setPrivacy(creationID, newPrivacy);
-
-        if (newPrivacy){
-            System.out.println(ecm.getContainerName(creationID) + " now private");
-        }
-        else{
-            System.out.println(ecm.getContainerName(creationID) + " now public");
-        }
     }
 
     /**
      * Get all public creations from an array of creations.
-     * @param viewer UUID of the user browsing creations.
-     * @return array containing creations accessible to the user.
+     * @param session token of the session of the user browsing creations.
+     * @return array containing creations accessible to the user, every public creation if the session does not exist.
      */
     @Override
-    public UUID[] getBrowsableCreations(UUID viewer) {
-        ArrayList<UUID> res = new ArrayList<>();
-        UUID[] creations = um.browseAs(viewer);
-
-        if (um.isAdmin(viewer)){
-            return creations;
+    public UUID[] getBrowsableCreations(String session) {
+        readiness.await();
+        UUID viewer = sessions.getUser(session);
+        if (isAdmin(viewer)){
+            return ecm.getAllContainers();
         }
 
-        // filter private creations
-        for (UUID cid : creations){
-            if (!ecm.getPrivacy(cid)){
+        // public creations, other than the viewer's own
+        ArrayList<UUID> res = new ArrayList<>();
+        Set<UUID> own = ownCreations(viewer);
+        for (UUID cid : ecm.getPublicContainers()){
+            if (!own.contains(cid)){
                 res.add(cid);
             }
         }
@@ -174,64 +202,134 @@ public class EventController implements CreationControllable, CILoadable {
     }
 
     /**
-     * Get an array of creations owned by a user
-     * @param userID UUID of the user
-     * @return Array of creation UUIDs owned by the user
+     * {@inheritDoc}
      */
     @Override
-    public UUID[] getOwnCreations(UUID userID) {
-        return um.getUserModuleIDs(userID);
+    public CreationPage browseCreations(String session, boolean own, CreationSort sort, int pageSize, String token) {
+        readiness.await();
+        // [sort, sort key, owner (AUTHOR only), creation] of the last creation of the previous page
+        String[] after = token == null ? null : decodeToken(token, sort);
+        UUID viewer = sessions.getUser(session);
+        Set<UUID> ownCreations = ownCreations(viewer);
+        boolean isAdmin = isAdmin(viewer);
+
+        // read one creation past the page, to tell whether there is a next page
+        List<UUID> res = new ArrayList<>();
+        List<UUID> owners = new ArrayList<>();
+        if (own){
+            List<UUID> sorted = new ArrayList<>();
+            for (UUID cid : ownCreations){
+                if (ownSortKey(sort, cid) != null){
+                    sorted.add(cid);
+                }
+            }
+            sorted.sort(Comparator.comparing((UUID cid) -> ownSortKey(sort, cid)).thenComparing(cid -> cid));
+            for (UUID cid : sorted){
+                if (res.size() > pageSize){
+                    break;
+                }
+                if (after == null || compare(ownSortKey(sort, cid), cid, after[1], UUID.fromString(after[3])) > 0){
+                    res.add(cid);
+                }
+            }
+        }
+        else if (sort == CreationSort.AUTHOR){
+            UUID lastOwner = after == null ? null : UUID.fromString(after[2]);
+            if (after != null){
+                addBrowsable(res, owners, lastOwner, UUID.fromString(after[3]), ownCreations, isAdmin, pageSize);
+            }
+            for (UUID owner : um.getUsersAfter(after == null ? null : after[1], lastOwner)){
+                if (res.size() > pageSize){
+                    break;
+                }
+                addBrowsable(res, owners, owner, null, ownCreations, isAdmin, pageSize);
+            }
+        }
+        else {
+            ContainerOrder order = ContainerOrder.valueOf(sort.name());
+            for (UUID cid : ecm.getContainersAfter(order, after == null ? null : after[1],
+                    after == null ? null : UUID.fromString(after[3]), !isAdmin)){
+                if (res.size() > pageSize){
+                    break;
+                }
+                if (!ownCreations.contains(cid)){
+                    res.add(cid);
+                }
+            }
+        }
+
+        if (res.size() <= pageSize){
+            return new CreationPage(res.toArray(new UUID[0]), null);
+        }
+        res.remove(pageSize);
+        UUID last = res.get(pageSize - 1);
+        String next;
+        if (own){
+            next = encodeToken(sort.name(), ownSortKey(sort, last), "", last.toString());
+        }
+        else if (sort == CreationSort.AUTHOR){
+            UUID owner = owners.get(pageSize - 1);
+            next = encodeToken(sort.name(), um.getUsername(owner), owner.toString(), last.toString());
+        }
+        else {
+            next = encodeToken(sort.name(), ecm.getSortKey(ContainerOrder.valueOf(sort.name()), last), "",
+                    last.toString());
+        }
+        return new CreationPage(res.toArray(new UUID[0]), next);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public UUID[] getOwnCreations(String session) {
+        readiness.await();
+        UUID userID = sessions.getUser(session);
+        return userID == null ? new UUID[0] : um.getUserModuleIDs(userID);
     }
 
 
     /**
      * Get a string representation of the selected EventContainer.
      * @param creation UUID of the creation
-     * @param viewer UUID of the user viewing the creation
+     * @param session token of the session of the user viewing the creation
      * @return Array containing string representation of all events in the event container.
      */
     @Override
-    public Map<String, String> viewCreation(UUID creation, UUID viewer) {
-        Map<String, String> res = new HashMap<>();
-
+    public Map<String, String> viewCreation(UUID creation, String session) {
+        readiness.await();
         UUID[] events = ecm.getContainedEvents(creation);
-        boolean viewSelf = um.getUserByCreation(creation).equals(viewer);
-        boolean isAdmin = um.isAdmin(viewer);
+        CreationVisibility visibility = CreationVisibility.resolve(um, creation, sessions.getUser(session));
+        // sized for every event, so that the map is never grown while it is filled
+        Map<String, String> res = new HashMap<>(events.length * 4 / 3 + 1);
 
+        // each event is fetched once, since some stores decode it on every fetch
         for (UUID eid : events){
-
-            boolean isPrivate = ((boolean) em.getEventInfo(em.getEvent(eid)).get(3));
-
-            if (!isPrivate || isAdmin || viewSelf){
-                res.put(eid.toString(), em.getEvent(eid).toString());
+            Event event = em.getEvent(eid);
+            if (event != null && visibility.canSee(event.getPrivacy())){
+                res.put(eid.toString(), event.toString());
             }
         }
         return res;
     }
     /**
-     * Get a summary of creation's information given its UUID and viewing user's UUID.
+     * Get a summary of creation's information given its UUID and the session of the viewing user.
      * @param creation UUID of the creation
-     * @param viewer UUID of the viewer
+     * @param session token of the session of the viewer
      * @return Array showing a summary of creation information:
      * 0 - creation name
      * 1 - Event container type
      * 2 - creation author
      */
     @Override
-    public String[] viewCreationSummary(UUID creation, UUID viewer) {
+    public String[] viewCreationSummary(UUID creation, String session) {
+        readiness.await();
         String[] res = new String[3];
         res[0] = ecm.getContainerName(creation);
         res[1] = ecm.getContainerType(creation);
 
-        UUID owner = um.getUserByCreation(creation);
-
-        if (um.getUserType(viewer).equals("admin") || viewer.equals(owner)){
-            res[2] = um.getUsername(um.getUserByCreation(creation));
-        }
-
-        else{
-            res[2] = um.getUser(um.getUserByCreation(creation)).toString();
-        }
+        // admins and the owner see the username, others only what the owner shows, such as "Anonymous User"
+        res[2] = CreationVisibility.resolve(um, creation, sessions.getUser(session)).getAuthorName();
 
         return res;
     }
@@ -243,11 +341,13 @@ public class EventController implements CreationControllable, CILoadable {
      */
     @Override
     public String getCreationType(UUID creationID) {
+        readiness.await();
         return ecm.getContainerType(creationID);
     }
 
     @Override
     public Map<String, String> getTemplateSelection() {
+        readiness.await();
         Map<String, String> res = new HashMap<>();
         String[] templates = tm.getAllTemplates();
 
@@ -264,6 +364,7 @@ public class EventController implements CreationControllable, CILoadable {
      */
     @Override
     public boolean containsCreation(UUID creationID) {
+        readiness.await();
         return ecm.getEventContainer(creationID) != null;
     }
 
@@ -274,4 +375,90 @@ public class EventController implements CreationControllable, CILoadable {
         this.em = (EventManager) params[2];
         this.tm = (TemplateManager) params[3];
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setReadiness(Future<?> ready) {
+        readiness.set(ready);
+    }
+
+    // =============== Helper methods ================
+    private UUID sessionUser(String session) throws NullUserException {
+        UUID userID = sessions.getUser(session);
+        if (userID == null){
+            throw new NullUserException();
+        }
+        return userID;
+    }
+
+    // only users who are logged in can change creations
+    private void checkSession(String session) throws NullUserException {
+        sessionUser(session);
+    }
+
+    private boolean isAdmin(UUID viewer){
+        return viewer != null && um.isAdmin(viewer);
+    }
+
+    private Set<UUID> ownCreations(UUID viewer){
+        return viewer == null ? Collections.<UUID>emptySet() : um.getUserModuleIDSet(viewer);
+    }
+
+    // add the creations of owner that come after the given creation and that the viewer can browse, without loading
+    // the owner if they are not in memory
+    private void addBrowsable(List<UUID> res, List<UUID> owners, UUID owner, UUID after, Set<UUID> ownCreations,
+                              boolean isAdmin, int pageSize){
+        UUID[] creations = um.peekUserModuleIDs(owner);
+        Arrays.sort(creations);
+        for (UUID cid : creations){
+            if (res.size() > pageSize){
+                return;
+            }
+            if ((after == null || cid.compareTo(after) > 0) && !ownCreations.contains(cid)
+                    && (isAdmin || ecm.isPublic(cid))){
+                res.add(cid);
+                owners.add(owner);
+            }
+        }
+    }
+
+    // sort key of one of the viewer's own creations, who is the author of all of them
+    private String ownSortKey(CreationSort sort, UUID creationID){
+        return sort == CreationSort.AUTHOR ? "" : ecm.getSortKey(ContainerOrder.valueOf(sort.name()), creationID);
+    }
+
+    private int compare(String key, UUID id, String otherKey, UUID otherID){
+        int res = key.compareTo(otherKey);
+        return res != 0 ? res : id.compareTo(otherID);
+    }
+
+    private String encodeToken(String... fields){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            for (String field : fields){
+                output.writeUTF(field);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    private String[] decodeToken(String token, CreationSort sort){
+        String[] fields = new String[4];
+        try (DataInputStream input = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            for (int i = 0; i < fields.length; i++){
+                fields[i] = input.readUTF();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid continuation token", e);
+        }
+        if (!fields[0].equals(sort.name())){
+            throw new IllegalArgumentException("Continuation token is for another order: " + fields[0]);
+        }
+        return fields;
+    }
 }
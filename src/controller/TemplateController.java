@@ -4,25 +4,41 @@
 package controller;
 
 import gateway.CILoadable;
+import gateway.ManagerReadiness;
+import use_case.SessionManager;
 import use_case.TemplateManager;
 import use_case.factory.TemplateFactory;
+import util.NullUserException;
 
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
- * Class responsible for reacting to user input related to editing and accessing templates
+ * Class responsible for reacting to user input related to editing and accessing templates. Templates are edited by
+ * the user of the session whose token is given.
  */
 public class TemplateController implements CILoadable {
     private TemplateManager tm;
+    private final SessionManager sessions;
     private TemplateFactory tf = new TemplateFactory();
+    private ManagerReadiness readiness = new ManagerReadiness();
 
     /**
-     * Initializes this template controller
+     * Initializes this template controller with sessions of its own
      */
     public TemplateController(){
+        this(new SessionManager());
+    }
+
+    /**
+     * Initializes this template controller
+     * @param sessions sessions of the logged in users, shared with the other controllers
+     */
+    public TemplateController(SessionManager sessions){
+        this.sessions = sessions;
         this.tm = new TemplateManager();
     }
 
@@ -31,6 +47,7 @@ public class TemplateController implements CILoadable {
      * @return Array of all template paths.
      */
     public String[] getTemplates(){
+        readiness.await();
         return tm.getAllTemplates();
     }
 
@@ -41,6 +58,7 @@ public class TemplateController implements CILoadable {
      * 1+ - template prompts
      */
     public String[] getTemplateInfo(String path){
+        readiness.await();
 
         ArrayList<String> res = new ArrayList<>();
         res.add(tm.getTemplateName(path));
@@ -51,15 +69,24 @@ public class TemplateController implements CILoadable {
 
     /**
      * Edit a template based on user input.
+     * @param session token of the session of the user editing the template
      * @param path path of the template instance.
+     * @throws ParseException if the selected edit option is invalid
+     * @throws NullUserException if the session does not exist
      */
-    public void editTemplate(String path, String input, String rawSelection) throws ParseException {
+    public void editTemplate(String session, String path, String input, String rawSelection)
+            throws ParseException, NullUserException {
+        readiness.await();
+        if (sessions.getUser(session) == null){
+            throw new NullUserException();
+        }
+
         if (rawSelection.equals("1")){
-            tm.getTemplate(path).setName(input);
+            tm.setTemplateName(path, input);
         }
 
         else if (rawSelection.equals("2")){
-            tm.getTemplate(path).setContents(input);
+            tm.setTemplateContents(path, input);
         }
 
         else{
@@ -88,4 +115,12 @@ public class TemplateController implements CILoadable {
             tm.addTemplate(tf.getDefaultTemplates()[2]);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setReadiness(Future<?> ready) {
+        readiness.set(ready);
+    }
 }
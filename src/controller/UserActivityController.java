@@ -1,156 +1,283 @@
 package controller;
 
+import entities.user.Ban;
+import entities.user.User;
 import gateway.CILoadable;
 import use_case.factory.UserFactory;
+import use_case.CredentialCheck;
+import use_case.CredentialValidator;
+import use_case.SessionManager;
 import use_case.UserManager;
+import use_case.VerifiedLogin;
 import util.*;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * A controller class responsible for reacting to user input related to user login.
+ * A controller class responsible for reacting to user input related to user login. Each logged in user has a
+ * session, identified by the token returned when they logged in, and the methods acting for a user take that token.
  */
 public class UserActivityController implements CILoadable {
 
     private UserManager um;
-    private UUID loggedInUser;
+    private final SessionManager sessions;
     private UserFactory uf = new UserFactory();
 
     /**
-     * Initializes this UserActivityController.
+     * Initializes this UserActivityController with sessions of its own.
      */
     public UserActivityController(){
+        this(new SessionManager());
+    }
+
+    /**
+     * Initializes this UserActivityController.
+     * @param sessions sessions of the logged in users, shared with the other controllers
+     */
+    public UserActivityController(SessionManager sessions){
         this.um = new UserManager();
+        this.sessions = sessions;
     }
 
     /**
      * Login a login-able user, by reading inputs from the user at the keyboard.
-     * Return the userID of the successfully logged in user; null otherwise (where login activity fails for
-     * some reason(s)).
      *
-     * @return the UUID of the user that successfully login, null if login activity fails for some reason(s).
+     * @return the token of the new session of the user.
      */
-    public UUID userLogin(String username, String password) throws NullUserException, WrongPasswordException, BannedUserException {
-        UUID tempUserID;
+    public String userLogin(String username, String password) throws NullUserException, WrongPasswordException,
+            BannedUserException, TooManyAttemptsException {
+        VerifiedLogin login;
 
-        tempUserID = um.userLogin(username, password);
-        loggedInUser = tempUserID;
-        return tempUserID;
+        login = um.userLogin(username, password);
+        return finishLogin(login, password);
     }
 
     /**
-     * Sign up a login-able user (regular or admin), by reading inputs from the user at the keyboard.
-     * Return the userID of the successfully signed up user; null otherwise
-     *
-     * @return the userID of the user that successfully sign up, null otherwise.
+     * Check a user's password without waiting for it. The password is checked on the password hashing threads, so
+     * the returned future does not complete on the calling thread; call finishLogin with its result on the thread
+     * using the managers to log the user in.
+     * @param username username of the user
+     * @param password password of the user
+     * @param source where the attempt comes from, or null if it is not known
+     * @return future completed with the login of the user, or with a TooManyAttemptsException, NullUserException,
+     * BannedUserException, WrongPasswordException, or RejectedExecutionException if too many logins are being
+     * checked at once
+     */
+    public CompletableFuture<VerifiedLogin> userLoginAsync(String username, String password, String source){
+        return um.userLoginAsync(username, password, source);
+    }
+
+    /**
+     * Log in a user whose password was checked by userLoginAsync. If the password was saved before passwords were
+     * hashed, it is hashed again in the background, reusing the check done by userLoginAsync; the user is logged in
+     * without waiting for it.
+     * @param login the login of the user, from userLoginAsync
+     * @param password the password the user logged in with
+     * @return the token of the new session of the user
      */
-    public boolean signUp(String username, String password, String email, String usertype) throws UserSignupException {
+    public String finishLogin(VerifiedLogin login, String password){
+        um.upgradePasswordAsync(login, password);
+        return sessions.open(login.getUserID());
+    }
 
-        String usernameCheck = usernameIsValid(username);
-        if (!usernameCheck.equals("")){
-            throw new UserSignupException("Username invalid: " + usernameCheck);
+    /**
+     * Start a trial with a new trial user. Nothing the trial user does is meant to be saved.
+     * @param username username of the trial user
+     * @return the token of the session of the trial user
+     * @throws UserSignupException if the username is not valid
+     */
+    public String startTrial(String username) throws UserSignupException {
+        CredentialCheck usernameCheck = CredentialValidator.checkUsername(username);
+        if (!usernameCheck.isValid()){
+            throw new UserSignupException("Username invalid: " + usernameCheck.getMessage());
         }
 
-        if (usertype.equals("Trial")){
-            loggedInUser = um.addUser(uf.getUser(username, usertype));
-            return false;
+        return sessions.open(um.addUser(uf.getUser(username, "Trial")));
+    }
+
+    /**
+     * Sign up a login-able user (regular or admin). The password is hashed on the password hashing threads, so the
+     * returned future does not complete on the calling thread.
+     * @param username username of the user
+     * @param password password of the user
+     * @param email email of the user
+     * @param usertype type of the user, regular or admin
+     * @return future completed with true once the user was signed up, or with a UserSignupException if the
+     * credentials are not valid or taken, or with a RejectedExecutionException if too many passwords are being
+     * hashed at once
+     */
+    public CompletableFuture<Boolean> signUpAsync(String username, String password, String email, String usertype){
+        CompletableFuture<Boolean> failed = new CompletableFuture<>();
+        CredentialCheck usernameCheck = CredentialValidator.checkUsername(username);
+        if (!usernameCheck.isValid()){
+            failed.completeExceptionally(new UserSignupException("Username invalid: " + usernameCheck.getMessage()));
+            return failed;
         }
 
-        String pwCheck = passwordIsValid(password);
-        if (!pwCheck.equals("")){
-            throw new UserSignupException("Password invalid: " + pwCheck);
+        CredentialCheck pwCheck = CredentialValidator.checkPassword(password);
+        if (!pwCheck.isValid()){
+            failed.completeExceptionally(new UserSignupException("Password invalid: " + pwCheck.getMessage()));
+            return failed;
         }
 
-        String emailCheck = emailIsValid(email);
-        if (!emailCheck.equals("")){
-            throw new UserSignupException("Email invalid: " + emailCheck);
+        CredentialCheck emailCheck = CredentialValidator.checkEmail(email);
+        if (!emailCheck.isValid()){
+            failed.completeExceptionally(new UserSignupException("Email invalid: " + emailCheck.getMessage()));
+            return failed;
         }
 
-        um.addUser(uf.getUser(username, password, email, usertype));
-        return true;
+        User user;
+        try {
+            user = uf.getUser(username, password, email, usertype);
+        } catch (UserSignupException e) {
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        return um.addUserAsync(user).thenApply(userID -> true);
     }
 
-    public String recoverPassword(String email) throws NullUserException {
-        return um.recoverPassword(email);
+    /**
+     * Give the user with the given email a new temporary password. The password is hashed on the password hashing
+     * threads, so the returned future does not complete on the calling thread.
+     * @param email email of the user
+     * @return future completed with the temporary password, or with a NullUserException if no user has the email,
+     * or with a RejectedExecutionException if too many passwords are being hashed at once
+     */
+    public CompletableFuture<String> recoverPasswordAsync(String email){
+        return um.recoverPasswordAsync(email);
     }
 
     /**
-     * Change the password to the given newPassword.
-     * Return the userID of the successfully signed up user; null otherwise
+     * Change the password of the user of a session to the given newPassword. The password is hashed on the password
+     * hashing threads, so the returned future does not complete on the calling thread.
+     * @param session token of the session of the user
      * @param newPassword a string, the new password
-     * @throws UserSignupException if the given newPassword is not valid.
-     * @throws NullUserException if the user does not exist.
+     * @return future completed once the password is changed, or with a UserSignupException if the given
+     * newPassword is not valid, or with a NullUserException if the session does not exist, or with a
+     * RejectedExecutionException if too many passwords are being hashed at once
      */
-    public void changePassword(String newPassword) throws NullUserException, UserSignupException {
-
-        String pwCheck = passwordIsValid(newPassword);
-        if (!pwCheck.equals("")){
-            throw new UserSignupException("Password invalid: " + pwCheck);
+    public CompletableFuture<Void> changePasswordAsync(String session, String newPassword){
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        CredentialCheck pwCheck = CredentialValidator.checkPassword(newPassword);
+        if (!pwCheck.isValid()){
+            failed.completeExceptionally(new UserSignupException("Password invalid: " + pwCheck.getMessage()));
+            return failed;
         }
-        if (loggedInUser != null){
-            um.changePassword(loggedInUser, newPassword);
-        }
-        else{
-            throw new NullUserException();
+        UUID userID = sessions.getUser(session);
+        if (userID == null){
+            failed.completeExceptionally(new NullUserException());
+            return failed;
         }
+        return um.changePasswordAsync(userID, newPassword);
     }
 
     /**
-     * Get the currently logged in user
-     * @return UUID of the logged in user
+     * Get the user logged in to a session
+     * @param session token of the session
+     * @return UUID of the logged in user, or null if the session does not exist or has expired
      */
-    public UUID getLoggedInUser() {
-        return loggedInUser;
+    public UUID getLoggedInUser(String session) {
+        return sessions.getUser(session);
     }
 
     /**
      * Ban a user given their username and ban duration
+     * @param session token of the session of the admin applying the ban
      * @param username username of the user to be banned
      * @param duration String representing the number of days the user is banned
      * @return true if the user was banned
-     * @throws NullUserException If the user does not exist
+     * @throws NullUserException If the user or the session does not exist
      * @throws NumberFormatException if the duration cannot be converted to an integer
      */
-    public boolean banUser(String username, String duration) throws NullUserException, NumberFormatException{
+    public boolean banUser(String session, String username, String duration) throws NullUserException, NumberFormatException{
 
         int len = Integer.parseInt(duration);
 
-        return um.banUser(loggedInUser, um.getUserIDByUsername(username), len);
+        return um.banUser(sessionUser(session), um.getUserIDByUsername(username), len);
     }
 
     /**
-     * Log out the currently logged in user
-     * @return true if the logged out user is registered.
+     * Get the users that are banned, soonest-lifted first, as seen by the user of a session.
+     * @param session token of the session
+     * @param limit maximum number of users returned
+     * @return array of "username (banned until date)" strings, empty if the session's user is not an admin
+     */
+    public String[] getBannedUsers(String session, int limit){
+        UUID viewer = sessions.getUser(session);
+        if (viewer == null || !um.isAdmin(viewer)){
+            return new String[0];
+        }
+
+        List<UUID> banned = um.getBannedUsers(limit);
+        String[] res = new String[banned.size()];
+        for (int i = 0; i < res.length; i++){
+            res[i] = um.getUsername(banned.get(i)) + " (banned until " + um.getUser(banned.get(i)).getBannedUntil() + ")";
+        }
+        return res;
+    }
+
+    /**
+     * Get every ban applied to a user, oldest first, as seen by the user of a session.
+     * @param session token of the session
+     * @param username username of the user
+     * @return array of "start - until, by admin" strings, empty if the session's user is not an admin
+     * @throws NullUserException if the user does not exist
      */
-    public boolean logOut(){
-        boolean res = um.logOut(loggedInUser);
-        loggedInUser = null;
+    public String[] getBanHistory(String session, String username) throws NullUserException {
+        UUID userID = um.getUserIDByUsername(username);
+        UUID viewer = sessions.getUser(session);
+        if (viewer == null || !um.isAdmin(viewer)){
+            return new String[0];
+        }
+
+        List<Ban> history = um.getBanHistory(userID);
+        String[] res = new String[history.size()];
+        for (int i = 0; i < res.length; i++){
+            Ban ban = history.get(i);
+            String admin = ban.getAdminID() == null || um.getUser(ban.getAdminID()) == null ? "unknown"
+                    : um.getUsername(ban.getAdminID());
+            res[i] = ban.getStart() + " - " + ban.getUntil() + ", by " + admin;
+        }
         return res;
     }
 
     /**
-     * Get info contained in the logged in user.
-     * @return array containing user information:
+     * Log out the user of a session, closing the session
+     * @param session token of the session
+     * @return true if the logged out user is registered.
+     */
+    public boolean logOut(String session){
+        UUID userID = sessions.close(session);
+        return userID != null && um.logOut(userID);
+    }
+
+    /**
+     * Get info contained in the user of a session.
+     * @param session token of the session
+     * @return array containing user information, empty if the session does not exist:
      * 0 - username
      * 1 - user type
      */
-    public String[] getProfile(){
-        String[] res = new String[]{um.getUsername(loggedInUser), um.getUserType(loggedInUser)};
-
-        if (getLoggedInUser() == null){
+    public String[] getProfile(String session){
+        UUID userID = sessions.getUser(session);
+        if (userID == null){
             return new String[0];
         }
-        return res;
+        return new String[]{um.getUsername(userID), um.getUserType(userID)};
     }
 
     /**
      * Get the displayed username of the user given their UUID.
-     * @param viewer UUID of the user viewing the username
+     * @param session token of the session of the user viewing the username
      * @param user UUID of the user being viewed
-     * @return displayed username from the viewer's perspective.
+     * @return displayed username from the viewer's perspective, as shown to users who are not admins if the session
+     * does not exist
      */
-    public String getDisplayedUsername(UUID viewer, UUID user){
-        if (um.isAdmin(viewer)){
+    public String getDisplayedUsername(String session, UUID user){
+        UUID viewer = sessions.getUser(session);
+        if (viewer != null && um.isAdmin(viewer)){
             return um.getUsername(user);
         }
         return um.getUser(user).toString();
@@ -174,7 +301,24 @@ public class UserActivityController implements CILoadable {
         this.um = (UserManager) params[0];
     }
 
+    /**
+     * UserActivityController only needs the UserManager, so it can be loaded before the other managers.
+     * @return false
+     */
+    @Override
+    public boolean needsAllManagers() {
+        return false;
+    }
+
     // =========== Helper methods ===========
+    private UUID sessionUser(String session) throws NullUserException {
+        UUID userID = sessions.getUser(session);
+        if (userID == null){
+            throw new NullUserException();
+        }
+        return userID;
+    }
+
     private boolean UserTypeInvalid(String inputUsertype) {
         try {
             if (!inputUsertype.equalsIgnoreCase("regular") && !inputUsertype.equalsIgnoreCase("admin")) {
@@ -186,54 +330,4 @@ public class UserActivityController implements CILoadable {
         return false;
     }
 
-    /**
-     * Checks whether the given password is valid.
-     * @param password the given password.
-     * @return "" if the password is valid or a string describing why the given password is invalid.
-     */
-    private String passwordIsValid(String password) {
-
-        boolean lenCheck = 6 <= password.length() && password.length() <= 25;
-
-        if (!lenCheck){
-            return "password must be at least between 6-25 characters";
-        }
-        return "";
-    }
-
-    /**
-     * Checks whether the given email is valid.
-     * @param email the given email.
-     * @return "" if the email is valid or a string describing why the given email is invalid.
-     */
-    private String emailIsValid(String email){
-        String res = "";
-
-        if (!email.matches("[a-z0-9]+([_.-][a-z0-9]+)*@[a-z0-9-]+[.][a-z]{2,4}")){
-            res = "Email not in correct format";
-        }
-
-        else if (email.length() > 320){
-            res = "Email too long";
-        }
-
-        return res;
-    }
-
-    /**
-     * Checks whether the given username is valid.
-     * @param username the given username
-     * @return "" if the username is valid or a string describing why the given username is invalid.
-     */
-    private String usernameIsValid(String username) {
-        boolean unique = um.usernameAvailable(username);
-
-        boolean lenCheck = 3 <= username.length() && username.length() <= 15;
-        if (!lenCheck){
-            return "Username must be between 3-15 characters long";
-        }
-        return "";
-    }
-
 }
-
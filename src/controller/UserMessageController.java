@@ -1,7 +1,9 @@
 package controller;
 
 import gateway.CILoadable;
+import gateway.ManagerReadiness;
 import use_case.MessageManager;
+import use_case.SessionManager;
 import use_case.UserManager;
 import util.MultiReceiverException;
 import util.NullMesageException;
@@ -10,25 +12,49 @@ import util.NullUserException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Future;
 
 /**
- * Controller class responsible for reacting to user input related to Messaging
+ * Controller class responsible for reacting to user input related to Messaging. The user acting is the user of the
+ * session whose token is given.
  */
 public class UserMessageController implements CILoadable {
     UserManager userManager;
     MessageManager messageManager;
+    private final SessionManager sessions;
+    private ManagerReadiness readiness = new ManagerReadiness();
+
+    /**
+     * Initializes this UserMessageController with sessions of its own.
+     */
+    public UserMessageController(){
+        this(new SessionManager());
+    }
+
+    /**
+     * Initializes this UserMessageController.
+     * @param sessions sessions of the logged in users, shared with the other controllers
+     */
+    public UserMessageController(SessionManager sessions){
+        this.sessions = sessions;
+    }
 
     /**
      * Send a message using given array containing raw message information.
+     * @param session token of the session of the sender
      * @param MessageParams the info of this message in the form of
-     *                      [senderID (UUID), receiverNames (String[]), title (String), content (String), creationLink (UUID)]
+     *                      [receiverNames (String), title (String), content (String), attachments (UUID[])]
      * @return the UUID of sent message
-     * @throws NullUserException if one of the username in sender usernames can not be found in the system
+     * @throws NullUserException if one of the username in sender usernames can not be found in the system, or if
+     * the session does not exist
      * @throws MultiReceiverException if non-admin user tries to send message to more than one user
      */
-    public UUID sendMessage(Object[] MessageParams) throws NullUserException, MultiReceiverException {
-        UUID messageID = constructMessage(MessageParams);
-        for (UUID receiverID : parseReceivers(MessageParams)) {
+    public UUID sendMessage(String session, Object[] MessageParams) throws NullUserException, MultiReceiverException {
+        readiness.await();
+        UUID senderID = sessionUser(session);
+        List<UUID> receiverIDs = parseReceivers(senderID, MessageParams);
+        UUID messageID = constructMessage(senderID, MessageParams, receiverIDs);
+        for (UUID receiverID : receiverIDs) {
             userManager.addMessageToInbox(messageID, receiverID);
         }
         return messageID;
@@ -36,44 +62,47 @@ public class UserMessageController implements CILoadable {
 
     /**
      * Reply a message to given message, using given raw message information.
+     * @param session token of the session of the sender
      * @param MessageParams the info of this message in the form of
-     *                     [senderID (UUID), receiverNames (String[]), title (String), content (String), creationLink (UUID)]
+     *                     [receiverNames (String), title (String), content (String), attachments (UUID[])]
      * @param repliedMessageID the message ID of message that gets replied
      * @return the UUID of sent message
-     * @throws NullUserException if one of the username in sender usernames can not be found in the system
+     * @throws NullUserException if one of the username in sender usernames can not be found in the system, or if
+     * the session does not exist
      * @throws MultiReceiverException if non-admin user tries to send message to more than one user
      */
-    public UUID replyMessage(Object[] MessageParams, UUID repliedMessageID) throws NullUserException, MultiReceiverException {
-        UUID sentMessageID = sendMessage(MessageParams);
+    public UUID replyMessage(String session, Object[] MessageParams, UUID repliedMessageID)
+            throws NullUserException, MultiReceiverException {
+        readiness.await();
+        UUID sentMessageID = sendMessage(session, MessageParams);
         messageManager.AddFollowUpToMessage(repliedMessageID, sentMessageID);
         return sentMessageID;
     }
 
     /**
      * Constructs a new message object using the MessageParams, returning ID of newly created message.
+     * @param senderID the user id of the sender
      * @param MessageParams the info of this message in the form of
-     *                      [senderID (UUID), receiverNames (String[]), title (String), content (String), attachments (UUID[])]
+     *                      [receiverNames (String), title (String), content (String), attachments (UUID[])]
+     * @param receiverIDs the user ids of the receivers, as parsed by parseReceivers
      * @return the UUID of this newly created message.
-     * @throws NullUserException if one of the input receiver name can't be found (user do not exist)
-     * @throws MultiReceiverException if the sender is not admin but try to send to more than one receiver
      */
-    private UUID constructMessage(Object[] MessageParams) throws NullUserException, MultiReceiverException {
-        List<UUID> receiverIDs = parseReceivers(MessageParams);
-
-        return messageManager.addMessage((UUID) MessageParams[0], receiverIDs,
-                (String) MessageParams[2], (String)MessageParams[3], (UUID[]) MessageParams[4]);
+    private UUID constructMessage(UUID senderID, Object[] MessageParams, List<UUID> receiverIDs) {
+        return messageManager.addMessage(senderID, receiverIDs,
+                (String) MessageParams[1], (String)MessageParams[2], (UUID[]) MessageParams[3]);
     }
 
     /**
      * Parses the receivers from the MessageParams and find their corresponding userids.
      * Return the receivers' user ids' as a list of UUID.
+     * @param senderID the user id of the sender
      * @param MessageParams the info of this message in the form of
-     *                      [senderID (UUID), receiverNames (String[]), title (String), content (String), creationLink (UUID)]
+     *                      [receiverNames (String), title (String), content (String), attachments (UUID[])]
      * @return the List<UUID> of these receivers.
      */
-    private List<UUID> parseReceivers(Object[] MessageParams) throws MultiReceiverException, NullUserException {
-            UUID senderID = (UUID) MessageParams[0];
-            String[] receiverNames = ((String) MessageParams[1]).split(",");
+    private List<UUID> parseReceivers(UUID senderID, Object[] MessageParams)
+            throws MultiReceiverException, NullUserException {
+            String[] receiverNames = ((String) MessageParams[0]).split(",");
             userManager.NumReceiverValidationCheck(senderID, receiverNames);
 
             List<UUID> receiverIDs = new ArrayList<>();
@@ -86,10 +115,12 @@ public class UserMessageController implements CILoadable {
     /**
      * Delete a message from a user's inbox.
      * @param messageID the message ID of the message of interest
-     * @param userID the user ID of the user who request to delete the message from its inbox
+     * @param session token of the session of the user who request to delete the message from its inbox
+     * @throws NullUserException if the session does not exist
      */
-    public void deleteMessageFromInbox(UUID messageID, UUID userID){
-        userManager.deleteMessageFromInbox(messageID, userID);
+    public void deleteMessageFromInbox(UUID messageID, String session) throws NullUserException {
+        readiness.await();
+        userManager.deleteMessageFromInbox(messageID, sessionUser(session));
     }
 
     /**
@@ -99,6 +130,7 @@ public class UserMessageController implements CILoadable {
      * @return an array of string representing the message information needed.
      */
     public String[] getMessageInfo(UUID messageID, String detailLevel) throws NullMesageException {
+        readiness.await();
         if (detailLevel.equals("full")){
             return messageManager.getMessageInfo(messageID);
         }
@@ -110,11 +142,31 @@ public class UserMessageController implements CILoadable {
     }
 
     /**
-     * Get the inbox of a user
-     * @param user UUID of the user
-     * @return Array of message UUIDs in the user's inbox
+     * Suggest receivers for the name being typed at the end of a comma-separated list of receiver names.
+     * @param receiverNames the receiver names typed so far
+     * @param limit maximum number of suggestions
+     * @return usernames starting with the last name of the list, in alphabetical order
      */
-    public UUID[] getInbox(UUID user){
+    public String[] suggestReceivers(String receiverNames, int limit){
+        readiness.await();
+        String typed = receiverNames.substring(receiverNames.lastIndexOf(',') + 1);
+        if (typed.isEmpty()){
+            return new String[0];
+        }
+        return userManager.getUsernamesStartingWith(typed, limit);
+    }
+
+    /**
+     * Get the inbox of the user of a session
+     * @param session token of the session of the user
+     * @return Array of message UUIDs in the user's inbox, empty if the session does not exist
+     */
+    public UUID[] getInbox(String session){
+        readiness.await();
+        UUID user = sessions.getUser(session);
+        if (user == null){
+            return new UUID[0];
+        }
         return userManager.getUserMessageIDs(user).toArray(new UUID[0]);
     }
 
@@ -127,4 +179,21 @@ public class UserMessageController implements CILoadable {
         this.userManager = (UserManager) params[0];
         this.messageManager = (MessageManager) params[4];
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setReadiness(Future<?> ready) {
+        readiness.set(ready);
+    }
+
+    // =============== Helper methods ================
+    private UUID sessionUser(String session) throws NullUserException {
+        UUID userID = sessions.getUser(session);
+        if (userID == null){
+            throw new NullUserException();
+        }
+        return userID;
+    }
 }
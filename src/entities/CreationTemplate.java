@@ -7,6 +7,7 @@ import java.io.Serializable;
  * A class that represents a template used by users to make creations.
  */
 public class CreationTemplate implements Serializable {
+    private static final long serialVersionUID = 8642527515733097581L;
 
     private String name;
     private String filepath;
@@ -1,5 +1,7 @@
 package entities;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -10,7 +12,9 @@ import java.util.UUID;
  * A class representing a message created by an user.
  */
 public class Message implements Serializable {
-    private UUID messageID = UUID.randomUUID();
+    private static final long serialVersionUID = 2792153550777381111L;
+
+    private UUID messageID;
     private UUID senderUserID;
     private List<UUID> receiverIDs;
     private String title;
@@ -29,6 +33,21 @@ public class Message implements Serializable {
      */
 
     public Message(UUID senderUserID, List<UUID> receiverIDs, String title, String content, UUID[] attached) {
+        this(UUID.randomUUID(), senderUserID, receiverIDs, title, content, attached);
+    }
+
+    /**
+     * Initializes a Message that already exists, given its id, sender, receivers, title, content and attachments.
+     * @param messageID the unique id of this message
+     * @param senderUserID the unique id of sender
+     * @param receiverIDs the unique id of receiver
+     * @param title of the message
+     * @param content of the message
+     * @param attached list of unique id
+     */
+    public Message(UUID messageID, UUID senderUserID, List<UUID> receiverIDs, String title, String content,
+                   UUID[] attached) {
+        this.messageID = messageID;
         this.senderUserID = senderUserID;
         this.receiverIDs = receiverIDs;
         this.title = title;
@@ -85,7 +104,7 @@ public class Message implements Serializable {
      * @return list of unique id of this Message
      */
 
-    public List<UUID> getAttachments() {
+    public synchronized List<UUID> getAttachments() {
         return new ArrayList<>(attached);
     }
 
@@ -102,11 +121,11 @@ public class Message implements Serializable {
     /**
      * Get id of the followup Message
      *
-     * @return id of the followup Message
+     * @return copy of the ids of the followup Messages
      */
 
-    public List<UUID> getFollowUpMessageIDs() {
-        return followUpMessageIDs;
+    public synchronized List<UUID> getFollowUpMessageIDs() {
+        return new ArrayList<>(followUpMessageIDs);
     }
 
     // ====================================================
@@ -117,7 +136,7 @@ public class Message implements Serializable {
      * @param replyMessage id of the followup message
      */
 
-    public void addFollowupMessage(UUID replyMessage) {
+    public synchronized void addFollowupMessage(UUID replyMessage) {
         this.followUpMessageIDs.add(replyMessage);
     }
 
@@ -127,10 +146,14 @@ public class Message implements Serializable {
      * @param creationLink id of the creation link
      */
 
-    public void addCreationLink(UUID creationLink){
+    public synchronized void addCreationLink(UUID creationLink){
         if (!attached.contains(creationLink)){
             attached.add(creationLink);
         }
     }
+
+    private synchronized void writeObject(ObjectOutputStream output) throws IOException {
+        output.defaultWriteObject();
+    }
 }
 
@@ -8,10 +8,12 @@ import java.util.UUID;
  */
 public abstract class Event implements Serializable {
 
+    private static final long serialVersionUID = -7571762996698402535L;
+
     private String name;
     private String note;
     private boolean privacy; // true means private; false means public
-    private UUID eventID = UUID.randomUUID();
+    private UUID eventID;
 
     /**
      * Initializes a new Event, given the name and description of the event. Automatically set to private.
@@ -20,9 +22,7 @@ public abstract class Event implements Serializable {
      * @param note description of event
      */
     public Event(String name, String note) {
-        this.name = name;
-        this.note = note;
-        this.privacy = true;
+        this(name, note, true);
     }
 
     /**
@@ -32,6 +32,18 @@ public abstract class Event implements Serializable {
      * @param privacy privacy of the event
      */
     public Event(String name, String note, boolean privacy) {
+        this(UUID.randomUUID(), name, note, privacy);
+    }
+
+    /**
+     * Initializes an Event that already exists, given its UUID, name, privacy and description.
+     * @param eventID UUID of the event
+     * @param name name of the event
+     * @param note description of event
+     * @param privacy privacy of the event
+     */
+    protected Event(UUID eventID, String name, String note, boolean privacy) {
+        this.eventID = eventID;
         this.name = name;
         this.note = note;
         this.privacy = privacy;
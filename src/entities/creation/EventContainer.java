@@ -1,5 +1,7 @@
 package entities.creation;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.UUID;
@@ -9,11 +11,15 @@ import java.util.UUID;
  */
 public class EventContainer implements Serializable {
 
-    private UUID moduleID = UUID.randomUUID();
+    private static final long serialVersionUID = -6135059406315033145L;
+
+    private UUID moduleID;
     private ArrayList<UUID> eventCollection = new ArrayList<UUID>();
-    private String moduleName;
-    private boolean privacy;
+    private volatile String moduleName;
+    private volatile boolean privacy;
     private String containerType;
+    // System.currentTimeMillis() when this container was made, or 0 if it was saved before this was recorded
+    private long created;
 
     /**
      * Initializes this EventModule, with given moduleName and moduleType, and privacyStatus set to false.
@@ -21,6 +27,19 @@ public class EventContainer implements Serializable {
      * @param containerType String which identifies the type of events this EventContainer holds
      */
     public EventContainer(String moduleName, String containerType){
+        this(UUID.randomUUID(), moduleName, containerType);
+        created = System.currentTimeMillis();
+    }
+
+    /**
+     * Initializes an EventModule that already exists, given its UUID, moduleName and moduleType, with privacyStatus
+     * set to false.
+     * @param moduleID UUID of this module
+     * @param moduleName Name of this module
+     * @param containerType String which identifies the type of events this EventContainer holds
+     */
+    public EventContainer(UUID moduleID, String moduleName, String containerType){
+        this.moduleID = moduleID;
         this.moduleName = moduleName;
         this.containerType = containerType;
         privacy = false;
@@ -30,7 +49,7 @@ public class EventContainer implements Serializable {
      * Add an event to this EventModule
      * @param eventID UUID of the event to be added
      */
-    public void addEvent(UUID eventID){
+    public synchronized void addEvent(UUID eventID){
         if (!eventCollection.contains(eventID)){
             eventCollection.add(eventID);
         }
@@ -40,7 +59,7 @@ public class EventContainer implements Serializable {
      * Remove an event from this EventModule.
      * @param eventID UUID of the event to be removed.
      */
-    public void removeEvent(UUID eventID){
+    public synchronized void removeEvent(UUID eventID){
         if (eventCollection.contains(eventID)){
             eventCollection.remove(eventID);
         }
@@ -65,11 +84,19 @@ public class EventContainer implements Serializable {
         return moduleID;
     }
 
+    /**
+     * Get the name of this EventModule
+     * @return name of the EventModule
+     */
+    public String getModuleName() {
+        return moduleName;
+    }
+
     /**
      * Get all events stored in this EventModule
      * @return ArrayList of all UUIDs in the EventModule
      */
-    public UUID[] getEventCollection() {
+    public synchronized UUID[] getEventCollection() {
         // copy to avoid aliasing
         return eventCollection.toArray(new UUID[0]);
     }
@@ -90,6 +117,14 @@ public class EventContainer implements Serializable {
         return containerType;
     }
 
+    /**
+     * Get when this EventContainer was made.
+     * @return System.currentTimeMillis() when it was made, or 0 if it is not known
+     */
+    public long getCreated() {
+        return created;
+    }
+
     // ============== Setters =================
 
     /**
@@ -107,4 +142,16 @@ public class EventContainer implements Serializable {
     public void setPrivacy(boolean newPrivacy){
         privacy = newPrivacy;
     }
+
+    /**
+     * Set when this EventContainer was made. Used when reading back a saved EventContainer.
+     * @param created System.currentTimeMillis() when it was made
+     */
+    public void setCreated(long created){
+        this.created = created;
+    }
+
+    private synchronized void writeObject(ObjectOutputStream output) throws IOException {
+        output.defaultWriteObject();
+    }
 }
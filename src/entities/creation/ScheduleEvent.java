@@ -2,12 +2,15 @@ package entities.creation;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.UUID;
 
 /**
  * A class that represents an event that can be scheduled in the future.
  */
 public class ScheduleEvent extends Event implements Serializable {
 
+    private static final long serialVersionUID = -5047768419545965773L;
+
     private Date date;
 
     /**
@@ -23,6 +26,20 @@ public class ScheduleEvent extends Event implements Serializable {
         this.date = date;
     }
 
+    /**
+     * Initializes a ScheduleEvent that already exists, given its UUID, name, description, privacy and date.
+     *
+     * @param eventID UUID of this event
+     * @param name name of the event
+     * @param note description of this event
+     * @param privacy privacy of this event
+     * @param date date of this event
+     */
+    public ScheduleEvent(UUID eventID, String name, String note, boolean privacy, Date date) {
+        super(eventID, name, note, privacy);
+        this.date = date;
+    }
+
     /**
      * String representation of this ScheduleEvent
      * @return String representation of this ScheduleEvent
@@ -1,9 +1,13 @@
 package entities.creation;
 
+import java.util.UUID;
+
 /**
  * An event that contains tags which can be used to categorize them.
  */
 public class TaggedEvent extends Event {
+    private static final long serialVersionUID = 2940045015084321927L;
+
     private String[] tags;
 
     /**
@@ -18,6 +22,27 @@ public class TaggedEvent extends Event {
         this.tags = tags.clone();
     }
 
+    /**
+     * Constructs a tagged event that already exists, given its UUID
+     * @param eventID UUID of the tagged event
+     * @param name name of the tagged event
+     * @param note notes on the tagged event
+     * @param privacy privacy of the tagged event
+     * @param tags tags of the tagged event
+     */
+    public TaggedEvent(UUID eventID, String name, String note, boolean privacy, String[] tags){
+        super(eventID, name, note, privacy);
+        this.tags = tags.clone();
+    }
+
+    /**
+     * Get the tags of this tagged event
+     * @return array of tags
+     */
+    public String[] getTags() {
+        return tags.clone();
+    }
+
     /**
      * Get the tagged event as a string
      * @return string representation of tagged event
@@ -1,12 +1,15 @@
 package entities.creation;
 
 import java.io.Serializable;
+import java.util.UUID;
 
 /**
  * A class representing an entry in a To-do list.
  */
 public class TodoListEvent extends Event implements Serializable {
 
+    private static final long serialVersionUID = -6441399876804664351L;
+
     private int urgency;
 
     /**
@@ -35,6 +38,20 @@ public class TodoListEvent extends Event implements Serializable {
         this.urgency = urgency;
     }
 
+    /**
+     * Initializes a TodoListEvent that already exists, given its UUID, name, description, privacy and urgency.
+     *
+     * @param eventID UUID of the TodoListEvent
+     * @param name name of the TodoListEvent
+     * @param note description of this TodoListEvent
+     * @param privacy false for public, true for private
+     * @param urgency how urgent the event is
+     */
+    public TodoListEvent(UUID eventID, String name, String note, boolean privacy, int urgency){
+        super(eventID, name, note, privacy);
+        this.urgency = urgency;
+    }
+
     /**
      * String representation of this TodoList event.
      * @return String representation of this TodoList event.
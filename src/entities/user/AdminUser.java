@@ -1,9 +1,13 @@
 package entities.user;
 
+import java.util.UUID;
+
 public class AdminUser extends User implements LogInable{
 
-    private String password;
-    private String tempPass;
+    private static final long serialVersionUID = 7066798622639193022L;
+
+    private volatile String password;
+    private volatile String tempPass;
     private String email;
     /**
      * Initialize a User given their username.
@@ -16,6 +20,20 @@ public class AdminUser extends User implements LogInable{
         this.email = email;
     }
 
+    /**
+     * Initialize an AdminUser that already exists, given their user ID, username, password and email.
+     *
+     * @param userID user ID of the user
+     * @param username username of the user
+     * @param password password of the user
+     * @param email email of the user
+     */
+    public AdminUser(UUID userID, String username, String password, String email) {
+        super(userID, username);
+        this.password = password;
+        this.email = email;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1,6 +1,10 @@
 package entities.user;
 
+import java.util.UUID;
+
 public class AnonymousUser extends CreationUser implements LogInable{
+    private static final long serialVersionUID = -1599405908469826893L;
+
     private String password;
     private String email;
     private String tempPass;
@@ -16,6 +20,20 @@ public class AnonymousUser extends CreationUser implements LogInable{
         this.email = email;
     }
 
+    /**
+     * Initialize an AnonymousUser that already exists, given their user ID, username, password and email.
+     *
+     * @param userID user ID of the user
+     * @param username username of the user
+     * @param password password of the user
+     * @param email email of the user
+     */
+    public AnonymousUser(UUID userID, String username, String password, String email) {
+        super(userID, username);
+        this.password = password;
+        this.email = email;
+    }
+
     /**
      * {@inheritDoc}
      */
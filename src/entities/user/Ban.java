@@ -0,0 +1,55 @@
+package entities.user;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Class which represents a ban applied to a User, kept in the user's ban history.
+ */
+public class Ban implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final UUID adminID;
+    private final LocalDate start;
+    private final LocalDate until;
+
+    /**
+     * Initialize a Ban.
+     * @param adminID UUID of the admin who applied the ban, or null if it is not known
+     * @param start the day the ban was applied
+     * @param until the day the ban gets lifted
+     */
+    public Ban(UUID adminID, LocalDate start, LocalDate until){
+        this.adminID = adminID;
+        this.start = start;
+        this.until = until;
+    }
+
+    // ============== Getters =================
+
+    /**
+     * Get the admin who applied this ban.
+     * @return UUID of the admin, or null if it is not known
+     */
+    public UUID getAdminID(){
+        return adminID;
+    }
+
+    /**
+     * Get the day this ban was applied.
+     * @return the day the ban was applied
+     */
+    public LocalDate getStart(){
+        return start;
+    }
+
+    /**
+     * Get the day this ban gets lifted.
+     * @return the day the ban gets lifted
+     */
+    public LocalDate getUntil(){
+        return until;
+    }
+}
@@ -1,14 +1,24 @@
 package entities.user;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.UUID;
 /**
  * Represents a user that is able to make, delete and retrieve creations.
  */
 public abstract class CreationUser extends User{
 
-    private List<UUID> creations = new ArrayList<>();
+    private static final long serialVersionUID = 518312212508535375L;
+
+    // kept in the order they were added
+    private Set<UUID> creations = new LinkedHashSet<>();
+    // read-only copy of creations handed out by getCreationSet, or null if creations changed since it was made
+    private transient volatile Set<UUID> snapshot;
 
     /**
      * Initialize a User given their username.
@@ -19,15 +29,24 @@ public abstract class CreationUser extends User{
         super(username);
     }
 
+    /**
+     * Initialize a User that already exists, given their user ID and username.
+     *
+     * @param userID user ID of the user
+     * @param username username of the user
+     */
+    protected CreationUser(UUID userID, String username) {
+        super(userID, username);
+    }
+
     /**
      * Adds a creation to this User's collection of modules.
      *
      * @param creationID UUID of the module to be added
      */
-    public void addCreation(UUID creationID) {
-        if (!creations.contains(creationID)) {
-            creations.add(creationID);
-        }
+    public synchronized void addCreation(UUID creationID) {
+        creations.add(creationID);
+        snapshot = null;
     }
 
     /**
@@ -35,8 +54,9 @@ public abstract class CreationUser extends User{
      *
      * @param creationID UUID of the module to be removed
      */
-    public void removeCreation(UUID creationID) {
+    public synchronized void removeCreation(UUID creationID) {
         creations.remove(creationID);
+        snapshot = null;
     }
 
     /**
@@ -44,7 +64,53 @@ public abstract class CreationUser extends User{
      *
      * @return ArrayList of module UUIDs contained in this user.
      */
-    public UUID[] getCreations() {
+    public synchronized UUID[] getCreations() {
         return creations.toArray(new UUID[0]);
     }
+
+    /**
+     * Get a read-only copy of the module ids belonging to this user, in the order they were added. The copy does not
+     * reflect later changes to this user, and is only made again once this user has changed.
+     *
+     * @return Set of module UUIDs contained in this user.
+     */
+    public Set<UUID> getCreationSet() {
+        Set<UUID> res = snapshot;
+        if (res == null){
+            synchronized (this){
+                res = snapshot;
+                if (res == null){
+                    res = Collections.unmodifiableSet(new LinkedHashSet<>(creations));
+                    snapshot = res;
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Whether a module belongs to this user.
+     *
+     * @param creationID UUID of the module
+     * @return true if the module is in this user's collection of modules
+     */
+    public synchronized boolean hasCreation(UUID creationID) {
+        return creations.contains(creationID);
+    }
+
+    private synchronized void writeObject(ObjectOutputStream output) throws IOException {
+        output.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = input.readFields();
+        // snapshots written before creations were a set hold them in a list
+        Collection<?> stored = (Collection<?>) fields.get("creations", null);
+        creations = new LinkedHashSet<>();
+        if (stored != null){
+            for (Object creationID : stored){
+                creations.add((UUID) creationID);
+            }
+        }
+    }
 }
\ No newline at end of file
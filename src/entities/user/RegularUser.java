@@ -1,10 +1,14 @@
 package entities.user;
 
+import java.util.UUID;
+
 public class RegularUser extends CreationUser implements LogInable{
 
-    private String password;
+    private static final long serialVersionUID = -1324224690493986224L;
+
+    private volatile String password;
     private String email;
-    private String tempPass;
+    private volatile String tempPass;
     /**
      * Initialize a User given their username.
      *
@@ -16,6 +20,20 @@ public class RegularUser extends CreationUser implements LogInable{
         this.email = email;
     }
 
+    /**
+     * Initialize a RegularUser that already exists, given their user ID, username, password and email.
+     *
+     * @param userID user ID of the user
+     * @param username username of the user
+     * @param password password of the user
+     * @param email email of the user
+     */
+    public RegularUser(UUID userID, String username, String password, String email) {
+        super(userID, username);
+        this.password = password;
+        this.email = email;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1,6 +1,10 @@
 package entities.user;
 
+import java.util.UUID;
+
 public class TrialUser extends CreationUser{
+    private static final long serialVersionUID = -2642889991440120301L;
+
     /**
      * Initialize a User given their username.
      *
@@ -10,6 +14,16 @@ public class TrialUser extends CreationUser{
         super(username);
     }
 
+    /**
+     * Initialize a TrialUser that already exists, given their user ID and username.
+     *
+     * @param userID user ID of the user
+     * @param username username of the user
+     */
+    public TrialUser(UUID userID, String username) {
+        super(userID, username);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1,19 +1,27 @@
 package entities.user;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
 /**
- * Class which represents a User in the program.
+ * Class which represents a User in the program. Users can be read and changed by several threads at once: their lists
+ * are only handed out as copies.
  */
 public abstract class User implements Serializable {
 
-    private UUID userID = UUID.randomUUID();
-    private String username;
-    private LocalDate banDate;
+    private static final long serialVersionUID = -3445135369371645833L;
+
+    private UUID userID;
+    private volatile String username;
+    private volatile LocalDate banDate;
+    private List<Ban> banHistory;
     private List<UUID> messageInbox;
 
     /**
@@ -21,8 +29,19 @@ public abstract class User implements Serializable {
      * @param username username of the user
      */
     public User(String username){
+        this(UUID.randomUUID(), username);
+    }
+
+    /**
+     * Initialize a User that already exists, given their user ID and username.
+     * @param userID user ID of the user
+     * @param username username of the user
+     */
+    protected User(UUID userID, String username){
+        this.userID = userID;
         this.username = username;
         messageInbox = new ArrayList<>();
+        banHistory = new ArrayList<>();
     }
 
     @Override
@@ -63,12 +82,20 @@ public abstract class User implements Serializable {
         return banDate;
     }
 
+    /**
+     * Get every ban applied to this user, oldest first, including the bans that have been lifted.
+     * @return unmodifiable copy of the user's bans
+     */
+    public synchronized List<Ban> getBanHistory(){
+        return Collections.unmodifiableList(new ArrayList<>(banHistory));
+    }
+
     /**
      * Get the inbox of this user
-     * @return List of message UUIDs
+     * @return copy of the List of message UUIDs
      */
-    public List<UUID> getMessageInbox() {
-        return messageInbox;
+    public synchronized List<UUID> getMessageInbox() {
+        return new ArrayList<>(messageInbox);
     }
 
     // ============== Setters =================
@@ -89,6 +116,15 @@ public abstract class User implements Serializable {
         banDate = newDate;
     }
 
+    /**
+     * Bans this user until the given ban gets lifted, and adds the ban to the user's ban history.
+     * @param ban the ban applied
+     */
+    public synchronized void addBan(Ban ban){
+        banDate = ban.getUntil();
+        banHistory.add(ban);
+    }
+
 
     // ================= Add/Delete message from inbox =================//
 
@@ -96,7 +132,7 @@ public abstract class User implements Serializable {
      * Add the given messageID to the list of UUID messageInbox.
      * @param messageID UUID
      */
-    public void addMessageIDtoInbox(UUID messageID) {
+    public synchronized void addMessageIDtoInbox(UUID messageID) {
         this.messageInbox.add(messageID);
     }
 
@@ -104,7 +140,19 @@ public abstract class User implements Serializable {
      * Remove the given messageID from the list of UUID messageInbox.
      * @param messageID UUID
      */
-    public void deleteMessageIDFromInbox(UUID messageID){
+    public synchronized void deleteMessageIDFromInbox(UUID messageID){
         this.messageInbox.remove(messageID);
     }
+
+    private synchronized void writeObject(ObjectOutputStream output) throws IOException {
+        output.defaultWriteObject();
+    }
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        // users saved before bans were recorded have no history
+        if (banHistory == null){
+            banHistory = new ArrayList<>();
+        }
+    }
 }
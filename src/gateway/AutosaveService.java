@@ -0,0 +1,183 @@
+package gateway;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service saving the mutations made to the managers in the background, every few seconds and whenever enough
+ * mutations have piled up. Each save only appends the journal records already encoded when the mutations were made,
+ * so it never reads the managers and never blocks the thread using them. Full saves, which rewrite snapshots, are run
+ * on the same background thread, so that they never block the thread using the managers either.
+ */
+public class AutosaveService {
+
+    private final ManagerGateway mg;
+    private final long intervalMillis;
+    private final int mutationCount;
+    private final Object saveLock = new Object();
+    private ScheduledExecutorService worker;
+
+    private volatile SaveReport lastReport = new SaveReport();
+    private volatile long lastSaveNanos;
+    private volatile long lastLagNanos;
+    private volatile long saveCount;
+
+    /**
+     * Initializes an AutosaveService for the managers of the given gateway.
+     * @param mg gateway the managers were loaded from
+     * @param intervalMillis time between periodic saves, in milliseconds
+     * @param mutationCount number of unsaved mutations that starts a save before the next periodic one
+     */
+    public AutosaveService(ManagerGateway mg, long intervalMillis, int mutationCount){
+        this.mg = mg;
+        this.intervalMillis = intervalMillis;
+        this.mutationCount = mutationCount;
+    }
+
+    /**
+     * Start saving in the background. Does nothing if the service is already running.
+     */
+    public synchronized void start(){
+        if (worker != null){
+            return;
+        }
+
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::save, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+        ScheduledExecutorService started = worker;
+        mg.setSaveTrigger(mutationCount, () -> {
+            try {
+                started.execute(this::save);
+            } catch (RejectedExecutionException e) {
+                // the service was stopped
+            }
+        });
+    }
+
+    /**
+     * Stop saving in the background, after a final save of the mutations made so far.
+     */
+    public synchronized void stop(){
+        if (worker == null){
+            return;
+        }
+
+        mg.setSaveTrigger(0, null);
+        worker.shutdown();
+        try {
+            worker.awaitTermination(intervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+        save();
+    }
+
+    /**
+     * Save the given managers in full in the background, like ManagerGateway.saveManagers, after any save already
+     * running. Runs the save on the calling thread if the service is not running.
+     * @param managers managers to be saved, in the order used by ManagerGateway, with null for those still loading
+     * @return future completing with the report of the files written
+     */
+    public CompletableFuture<SaveReport> saveAll(Object[] managers){
+        CompletableFuture<SaveReport> res = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                synchronized (saveLock){
+                    res.complete(mg.saveManagers(managers));
+                }
+            } catch (RuntimeException e) {
+                res.completeExceptionally(e);
+            }
+        };
+
+        synchronized (this){
+            if (worker != null){
+                try {
+                    worker.execute(task);
+                    return res;
+                } catch (RejectedExecutionException e) {
+                    // the service is being stopped
+                }
+            }
+        }
+        task.run();
+        return res;
+    }
+
+    // ============== Getters =================
+
+    /**
+     * Get the report of the last background save.
+     * @return report of the files written by the last save
+     */
+    public SaveReport getLastReport(){
+        return lastReport;
+    }
+
+    /**
+     * Get how long the last background save took.
+     * @return duration of the last save, in milliseconds
+     */
+    public long getLastSaveMillis(){
+        return lastSaveNanos / 1000000;
+    }
+
+    /**
+     * Get how long the oldest mutation written by the last save had waited to be saved.
+     * @return lag of the last save, in milliseconds
+     */
+    public long getLastLagMillis(){
+        return lastLagNanos / 1000000;
+    }
+
+    /**
+     * Get how long the oldest mutation that has not been saved yet has been waiting.
+     * @return current lag, in milliseconds, or 0 if every mutation has been saved
+     */
+    public long getCurrentLagMillis(){
+        long since = mg.getUnsavedSince();
+        return since == 0 ? 0 : (System.nanoTime() - since) / 1000000;
+    }
+
+    /**
+     * Get how many background saves wrote something.
+     * @return number of saves
+     */
+    public long getSaveCount(){
+        return saveCount;
+    }
+
+    // =============== Helper methods ================
+    private void save(){
+        synchronized (saveLock){
+            long since = mg.getUnsavedSince();
+            if (since == 0){
+                return;
+            }
+
+            long start = System.nanoTime();
+            try {
+                SaveReport report = mg.commitChanges();
+                long end = System.nanoTime();
+                if (report.getWrittenFiles().length > 0){
+                    lastReport = report;
+                    lastSaveNanos = end - start;
+                    lastLagNanos = end - since;
+                    saveCount++;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
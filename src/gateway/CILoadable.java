@@ -1,5 +1,7 @@
 package gateway;
 
+import java.util.concurrent.Future;
+
 /**
  * An Interface where classes implementing it can be loaded with managers loaded from serialization files.
  */
@@ -11,4 +13,21 @@ public interface CILoadable {
      * @param params Array of managers
      */
     void load(Object[] params);
+
+    /**
+     * Whether this CILoadable needs managers other than the UserManager. CILoadables that only need the UserManager
+     * are loaded as soon as it is ready; the others are loaded once every manager is ready.
+     * @return true if managers other than the UserManager are needed
+     */
+    default boolean needsAllManagers(){
+        return true;
+    }
+
+    /**
+     * Called before the managers start loading, with a future that completes once load has been called on this
+     * CILoadable. Calls that use managers should wait on it.
+     * @param ready future completing once this CILoadable has been loaded
+     */
+    default void setReadiness(Future<?> ready){
+    }
 }
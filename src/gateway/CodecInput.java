@@ -0,0 +1,119 @@
+package gateway;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Input stream for the compact binary entity format written by CodecOutput.
+ */
+public class CodecInput {
+
+    private final DataInputStream input;
+    private final List<String> stringTable = new ArrayList<>();
+
+    /**
+     * Initializes a CodecInput reading from the given stream.
+     * @param input stream to read from
+     */
+    public CodecInput(InputStream input){
+        this.input = new DataInputStream(input);
+    }
+
+    /**
+     * Read an int written by CodecOutput.writeVarInt.
+     * @return the int read
+     * @throws IOException if the stream could not be read
+     */
+    public int readVarInt() throws IOException {
+        return (int) readVarLong();
+    }
+
+    /**
+     * Read a long written by CodecOutput.writeVarLong.
+     * @return the long read
+     * @throws IOException if the stream could not be read
+     */
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7){
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0){
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+
+    /**
+     * Read a UUID written by CodecOutput.writeUUID.
+     * @return the UUID read, or null
+     * @throws IOException if the stream could not be read
+     */
+    public UUID readUUID() throws IOException {
+        if (!input.readBoolean()){
+            return null;
+        }
+        return new UUID(input.readLong(), input.readLong());
+    }
+
+    /**
+     * Read a string written by CodecOutput.writeString.
+     * @return the string read, or null
+     * @throws IOException if the stream could not be read
+     */
+    public String readString() throws IOException {
+        int tag = readVarInt();
+        if (tag == 0){
+            return null;
+        }
+
+        if (tag > 1){
+            if (tag - 2 >= stringTable.size()){
+                throw new StreamCorruptedException("Unknown string reference " + tag);
+            }
+            return stringTable.get(tag - 2);
+        }
+
+        byte[] bytes = new byte[readVarInt()];
+        input.readFully(bytes);
+        String str = new String(bytes, StandardCharsets.UTF_8);
+        stringTable.add(str);
+        return str;
+    }
+
+    /**
+     * Read a boolean written by CodecOutput.writeBoolean.
+     * @return the boolean read
+     * @throws IOException if the stream could not be read
+     */
+    public boolean readBoolean() throws IOException {
+        return input.readBoolean();
+    }
+
+    /**
+     * Read a single byte.
+     * @return the byte read, as an unsigned value
+     * @throws IOException if the stream could not be read
+     */
+    public int readByte() throws IOException {
+        return input.readUnsignedByte();
+    }
+
+    /**
+     * Read bytes written by CodecOutput.writeBytes.
+     * @return the bytes read
+     * @throws IOException if the stream could not be read
+     */
+    public byte[] readBytes() throws IOException {
+        byte[] bytes = new byte[readVarInt()];
+        input.readFully(bytes);
+        return bytes;
+    }
+}
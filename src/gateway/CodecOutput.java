@@ -0,0 +1,123 @@
+package gateway;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Output stream for the compact binary entity format. Lengths and counts are written as varints, UUIDs as two longs,
+ * and every string after its first occurrence as a reference into a string table built up while writing.
+ */
+public class CodecOutput {
+
+    private final DataOutputStream output;
+    private final Map<String, Integer> stringTable = new HashMap<>();
+
+    /**
+     * Initializes a CodecOutput writing to the given stream.
+     * @param output stream to write to
+     */
+    public CodecOutput(OutputStream output){
+        this.output = new DataOutputStream(output);
+    }
+
+    /**
+     * Write an int using as few bytes as its magnitude needs.
+     * @param value non-negative int to be written
+     * @throws IOException if the stream could not be written
+     */
+    public void writeVarInt(int value) throws IOException {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Write a long using as few bytes as its magnitude needs.
+     * @param value non-negative long to be written
+     * @throws IOException if the stream could not be written
+     */
+    public void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0){
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    /**
+     * Write a UUID as two longs.
+     * @param id UUID to be written, or null
+     * @throws IOException if the stream could not be written
+     */
+    public void writeUUID(UUID id) throws IOException {
+        output.writeBoolean(id != null);
+        if (id != null){
+            output.writeLong(id.getMostSignificantBits());
+            output.writeLong(id.getLeastSignificantBits());
+        }
+    }
+
+    /**
+     * Write a string, or a reference to it if it has been written before.
+     * @param str string to be written, or null
+     * @throws IOException if the stream could not be written
+     */
+    public void writeString(String str) throws IOException {
+        // 0 - null, 1 - new string follows, n - the (n - 2)th string in the table
+        if (str == null){
+            writeVarInt(0);
+            return;
+        }
+
+        Integer index = stringTable.get(str);
+        if (index != null){
+            writeVarInt(index + 2);
+            return;
+        }
+
+        writeVarInt(1);
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        output.write(bytes);
+        stringTable.put(str, stringTable.size());
+    }
+
+    /**
+     * Write a boolean as a single byte.
+     * @param value boolean to be written
+     * @throws IOException if the stream could not be written
+     */
+    public void writeBoolean(boolean value) throws IOException {
+        output.writeBoolean(value);
+    }
+
+    /**
+     * Write a single byte.
+     * @param value byte to be written
+     * @throws IOException if the stream could not be written
+     */
+    public void writeByte(int value) throws IOException {
+        output.writeByte(value);
+    }
+
+    /**
+     * Write raw bytes, preceded by their length.
+     * @param bytes bytes to be written
+     * @throws IOException if the stream could not be written
+     */
+    public void writeBytes(byte[] bytes) throws IOException {
+        writeVarInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Flush the underlying stream.
+     * @throws IOException if the stream could not be flushed
+     */
+    public void flush() throws IOException {
+        output.flush();
+    }
+}
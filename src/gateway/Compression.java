@@ -0,0 +1,124 @@
+package gateway;
+
+import java.io.*;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression applied to snapshot files as they are streamed to and from disk. A compressed file starts with a
+ * four byte header naming its codec, so a file can be read whatever compression it was written with; files written
+ * without compression have no header and are read as before.
+ */
+public enum Compression {
+    /**
+     * No compression.
+     */
+    NONE(0, 0),
+
+    /**
+     * Deflate at its fastest level.
+     */
+    DEFLATE_FAST(0x11, Deflater.BEST_SPEED),
+
+    /**
+     * Deflate at its default level.
+     */
+    DEFLATE(0x12, Deflater.DEFAULT_COMPRESSION),
+
+    /**
+     * Deflate at its smallest level.
+     */
+    DEFLATE_BEST(0x13, Deflater.BEST_COMPRESSION),
+
+    /**
+     * The fast LZ77 block codec of LzCodec.
+     */
+    LZ(0x14, 0);
+
+    // the first three bytes can not start a Java serialization stream, nor a binary snapshot of a plausible size
+    private static final byte[] MAGIC = {(byte) 0xC0, (byte) 0xDE, 'Z'};
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int id;
+    private final int level;
+
+    Compression(int id, int level){
+        this.id = id;
+        this.level = level;
+    }
+
+    /**
+     * Wrap a stream so that what is written to it is compressed with this codec, after writing the header naming it.
+     * Closing the returned stream closes the given one.
+     * @param out stream to write the compressed data to
+     * @return stream to write the uncompressed data to
+     * @throws IOException if the header could not be written
+     */
+    public OutputStream compress(OutputStream out) throws IOException {
+        if (this == NONE){
+            return out;
+        }
+
+        out.write(MAGIC);
+        out.write(id);
+        if (this == LZ){
+            return new LzCodec.Output(out);
+        }
+
+        Deflater deflater = new Deflater(level);
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Wrap a stream so that reading from it decompresses the data, using the codec named by its header. A stream
+     * without a header is read as it is.
+     * @param in stream to read the stored data from
+     * @return stream to read the uncompressed data from
+     * @throws IOException if the header names an unknown codec
+     */
+    public static InputStream decompress(InputStream in) throws IOException {
+        BufferedInputStream buffered = in instanceof BufferedInputStream
+                ? (BufferedInputStream) in : new BufferedInputStream(in, BUFFER_SIZE);
+        byte[] header = new byte[MAGIC.length + 1];
+
+        buffered.mark(header.length);
+        int read = 0;
+        while (read < header.length){
+            int n = buffered.read(header, read, header.length - read);
+            if (n < 0){
+                break;
+            }
+            read += n;
+        }
+        if (read < header.length || header[0] != MAGIC[0] || header[1] != MAGIC[1] || header[2] != MAGIC[2]){
+            buffered.reset();
+            return buffered;
+        }
+
+        Compression codec = forId(header[MAGIC.length] & 0xFF);
+        if (codec == LZ){
+            return new LzCodec.Input(buffered);
+        }
+        return new BufferedInputStream(new InflaterInputStream(buffered), BUFFER_SIZE);
+    }
+
+    // =============== Helper methods ================
+    private static Compression forId(int id) throws IOException {
+        for (Compression codec : values()){
+            if (codec != NONE && codec.id == id){
+                return codec;
+            }
+        }
+        throw new IOException("Unknown compression " + id);
+    }
+}
@@ -1,32 +1,189 @@
 package gateway;
 
+import use_case.PasswordHasher;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
 /**
- * Class responsible for configuring and saving the controllers of this system.
+ * Class responsible for configuring and saving the controllers of this system. How the managers are stored is read
+ * from the system properties named by the *_PROPERTY constants when it is made; with none of them set, the managers
+ * are saved in binary snapshot files and kept on the heap.
  */
 public class ControllerInitializer {
 
+    /**
+     * System property naming the SnapshotFormat the managers are saved in, BINARY if it is not set.
+     */
+    public static final String FORMAT_PROPERTY = "storage.format";
+
+    /**
+     * System property naming the Compression of the snapshot files written, NONE if it is not set.
+     */
+    public static final String COMPRESSION_PROPERTY = "storage.compression";
+
+    /**
+     * System property naming the file of the MappedEventStore events are kept in, if set.
+     */
+    public static final String EVENT_STORE_PROPERTY = "storage.eventStore";
+
+    /**
+     * System property naming the file of the PagedMessageBodyStore message bodies are kept in, if set.
+     */
+    public static final String MESSAGE_BODY_PROPERTY = "storage.messageBodies";
+
+    /**
+     * System property with the JDBC URL of a database to keep the managers in, through a JdbcStorageBackend, instead
+     * of in files. When it is set, the other storage properties are not used.
+     */
+    public static final String JDBC_URL_PROPERTY = "storage.jdbcUrl";
+
     private CILoadable[] controllers;
-    private ManagerGateway mg = new ManagerGateway();
-    private Object[] managers;
+    private ManagerGateway mg = createGateway();
+    private Object[] managers = new Object[5];
+    private CompletableFuture<Void> ready = CompletableFuture.completedFuture(null);
+    private AutosaveService autosave;
 
     /**
      * Initializes a gateway.ControllerInitializer given an array of controllers.
      * @param controllers array containing controllers implementing CILoadable
-     * @throws ClassNotFoundException Thrown if the save file can not be read
      */
-    public ControllerInitializer(CILoadable[] controllers) throws ClassNotFoundException {
+    public ControllerInitializer(CILoadable[] controllers) {
         this.controllers = controllers;
-        managers = mg.configureManagers();
     }
 
+    /**
+     * Load the controllers with managers read from the save files. Returns once the UserManager is loaded and the
+     * controllers that only need it are ready; the other controllers are loaded in the background, and calls made to
+     * them in the meantime wait until they are.
+     * @throws ClassNotFoundException Thrown if the save file can not be read
+     */
     public void loadControllers() throws ClassNotFoundException {
-        managers = mg.configureManagers();
+        // calibrate password hashing while the managers load, so the first login does not wait for it
+        CompletableFuture.runAsync(PasswordHasher::getDefault);
+
+        Object[] loading = new Object[5];
+        CompletableFuture<Object[]> remaining = mg.configureManagersStaged(loading);
+
+        CompletableFuture<Void> loaded = remaining.thenAccept(all -> {
+            for (CILoadable l : controllers){
+                if (l.needsAllManagers()){
+                    l.load(all);
+                }
+            }
+        });
         for (CILoadable l : controllers){
-            l.load(managers);
+            if (l.needsAllManagers()){
+                l.setReadiness(loaded);
+            }
+            else {
+                l.load(loading);
+            }
+        }
+
+        managers = loading;
+        ready = loaded;
+    }
+
+    /**
+     * Get how long each manager took to load the last time the controllers were loaded.
+     * @return report of per-manager load times
+     */
+    public LoadReport getLoadReport(){
+        return mg.getLastLoadReport();
+    }
+
+    /**
+     * Start saving the changes made through the controllers in the background, every intervalMillis milliseconds and
+     * whenever mutationCount changes have not been saved yet. Does nothing if autosave is already running.
+     * @param intervalMillis time between periodic saves, in milliseconds
+     * @param mutationCount number of unsaved changes that starts a save early
+     */
+    public void startAutosave(long intervalMillis, int mutationCount){
+        if (autosave == null){
+            autosave = new AutosaveService(mg, intervalMillis, mutationCount);
+            autosave.start();
+        }
+    }
+
+    /**
+     * Stop saving in the background, after saving the changes made so far.
+     */
+    public void stopAutosave(){
+        if (autosave != null){
+            autosave.stop();
+            autosave = null;
+        }
+    }
+
+    /**
+     * Get the running autosave service.
+     * @return the autosave service, or null if autosave has not been started
+     */
+    public AutosaveService getAutosave(){
+        return autosave;
+    }
+
+    /**
+     * Start a trial session: changes made from now on are kept in an overlay over the loaded managers and are never
+     * saved. Waits for the managers still loading in the background.
+     */
+    public void beginTrial(){
+        ready.join();
+        mg.beginOverlay(managers);
+    }
+
+    /**
+     * End the trial session, dropping every change made since beginTrial was called. The controllers keep their
+     * managers, so nothing has to be loaded again.
+     */
+    public void endTrial(){
+        mg.endOverlay(managers);
+    }
+
+    /**
+     * Save the managers loaded into the controllers. Only managers that changed since they were last saved are
+     * written. Managers still loading in the background are saved by a later call. The save runs on the autosave
+     * thread if autosave is running, and on the calling thread otherwise.
+     * @return future completing with the report of the files written and how long each took
+     */
+    public CompletableFuture<SaveReport> saveControllers(){
+        Object[] saved = ready.isDone() ? managers : new Object[]{managers[0], null, null, null, null};
+        if (autosave != null){
+            return autosave.saveAll(saved);
         }
+        return CompletableFuture.completedFuture(mg.saveManagers(saved));
     }
 
-    public void saveControllers(){
-        mg.saveManagers(managers);
+    // =============== Helper methods ================
+    private static ManagerGateway createGateway(){
+        String jdbcUrl = System.getProperty(JDBC_URL_PROPERTY);
+        if (jdbcUrl != null){
+            try {
+                return new ManagerGateway(new JdbcStorageBackend(jdbcUrl));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        SnapshotFormat format = enumProperty(FORMAT_PROPERTY, SnapshotFormat.class, SnapshotFormat.BINARY);
+        ManagerGateway gateway = new ManagerGateway(format, System.getProperty(EVENT_STORE_PROPERTY),
+                System.getProperty(MESSAGE_BODY_PROPERTY));
+        gateway.setCompression(enumProperty(COMPRESSION_PROPERTY, Compression.class, Compression.NONE));
+        return gateway;
+    }
+
+    private static <E extends Enum<E>> E enumProperty(String name, Class<E> type, E defaultValue){
+        String value = System.getProperty(name);
+        if (value == null){
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(name + " must be one of " + Arrays.toString(type.getEnumConstants()), e);
+        }
     }
 }
@@ -0,0 +1,352 @@
+package gateway;
+
+import entities.CreationTemplate;
+import entities.Message;
+import entities.creation.*;
+import entities.user.*;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Hand-written binary codec for the entities of this program. Every value is written with a one byte tag identifying
+ * its class, so that it can be read back without Java serialization's class descriptors. Values of any other class
+ * fall back to Java serialization.
+ */
+public class EntityCodec {
+
+    private static final int NULL = 0;
+    private static final int UUID_KEY = 1;
+    private static final int STRING_KEY = 2;
+    private static final int REGULAR_USER = 3;
+    private static final int ADMIN_USER = 4;
+    private static final int ANONYMOUS_USER = 5;
+    private static final int TRIAL_USER = 6;
+    private static final int TODO_EVENT = 7;
+    private static final int SCHEDULE_EVENT = 8;
+    private static final int TAGGED_EVENT = 9;
+    private static final int EVENT_CONTAINER = 10;
+    private static final int MESSAGE = 11;
+    private static final int TEMPLATE = 12;
+    // EventContainer with its creation time; containers tagged EVENT_CONTAINER are still read
+    private static final int TIMED_EVENT_CONTAINER = 13;
+    private static final int SERIALIZED = 255;
+    // flags of the ban byte of a user, which older saves wrote as a boolean for BANNED
+    private static final int BANNED = 1;
+    private static final int BAN_HISTORY = 2;
+
+    /**
+     * Write a key or entity.
+     * @param output stream to write to
+     * @param value key or entity to be written, or null
+     * @throws IOException if the value could not be written
+     */
+    public void write(CodecOutput output, Object value) throws IOException {
+        if (value == null){
+            output.writeByte(NULL);
+        }
+        else if (value instanceof UUID){
+            output.writeByte(UUID_KEY);
+            output.writeUUID((UUID) value);
+        }
+        else if (value instanceof String){
+            output.writeByte(STRING_KEY);
+            output.writeString((String) value);
+        }
+        else if (value.getClass() == RegularUser.class || value.getClass() == AdminUser.class
+                || value.getClass() == AnonymousUser.class || value.getClass() == TrialUser.class){
+            writeUser(output, (User) value);
+        }
+        else if (value.getClass() == TodoListEvent.class || value.getClass() == ScheduleEvent.class
+                || value.getClass() == TaggedEvent.class){
+            writeEvent(output, (Event) value);
+        }
+        else if (value.getClass() == EventContainer.class){
+            writeContainer(output, (EventContainer) value);
+        }
+        else if (value.getClass() == Message.class){
+            writeMessage(output, (Message) value);
+        }
+        else if (value.getClass() == CreationTemplate.class){
+            writeTemplate(output, (CreationTemplate) value);
+        }
+        else {
+            output.writeByte(SERIALIZED);
+            output.writeBytes(serialize(value));
+        }
+    }
+
+    /**
+     * Read a key or entity written by write.
+     * @param input stream to read from
+     * @return the key or entity read, or null
+     * @throws IOException if the value could not be read
+     * @throws ClassNotFoundException if a value that fell back to Java serialization could not be read
+     */
+    public Object read(CodecInput input) throws IOException, ClassNotFoundException {
+        int tag = input.readByte();
+        switch (tag){
+            case NULL:
+                return null;
+            case UUID_KEY:
+                return input.readUUID();
+            case STRING_KEY:
+                return input.readString();
+            case REGULAR_USER:
+            case ADMIN_USER:
+            case ANONYMOUS_USER:
+            case TRIAL_USER:
+                return readUser(input, tag);
+            case TODO_EVENT:
+            case SCHEDULE_EVENT:
+            case TAGGED_EVENT:
+                return readEvent(input, tag);
+            case EVENT_CONTAINER:
+                return readContainer(input, false);
+            case TIMED_EVENT_CONTAINER:
+                return readContainer(input, true);
+            case MESSAGE:
+                return readMessage(input);
+            case TEMPLATE:
+                return new CreationTemplate(input.readString(), input.readString(), input.readString());
+            case SERIALIZED:
+                return deserialize(input.readBytes());
+            default:
+                throw new StreamCorruptedException("Unknown entity tag " + tag);
+        }
+    }
+
+    // =============== Users ================
+    private void writeUser(CodecOutput output, User user) throws IOException {
+        String type = user.getUserType();
+        output.writeByte(type.equals("regular") ? REGULAR_USER : type.equals("admin") ? ADMIN_USER
+                : type.equals("anonymous") ? ANONYMOUS_USER : TRIAL_USER);
+        output.writeUUID(user.getUserID());
+        output.writeString(user.getUsername());
+
+        if (user instanceof LogInable){
+            LogInable logInable = (LogInable) user;
+            output.writeString(logInable.getPassword());
+            output.writeString(logInable.getEmail());
+            output.writeString(logInable.getTempPassword());
+        }
+
+        LocalDate banDate = user.getBannedUntil();
+        List<Ban> banHistory = user.getBanHistory();
+        output.writeByte((banDate != null ? BANNED : 0) | (banHistory.isEmpty() ? 0 : BAN_HISTORY));
+        if (banDate != null){
+            output.writeVarLong(banDate.toEpochDay());
+        }
+        if (!banHistory.isEmpty()){
+            output.writeVarInt(banHistory.size());
+            for (Ban ban : banHistory){
+                output.writeUUID(ban.getAdminID());
+                output.writeVarLong(ban.getStart().toEpochDay());
+                output.writeVarLong(ban.getUntil().toEpochDay());
+            }
+        }
+        writeUUIDs(output, user.getMessageInbox().toArray(new UUID[0]));
+
+        if (user instanceof CreationUser){
+            writeUUIDs(output, ((CreationUser) user).getCreations());
+        }
+    }
+
+    private User readUser(CodecInput input, int tag) throws IOException {
+        UUID userID = input.readUUID();
+        String username = input.readString();
+
+        User user;
+        if (tag == TRIAL_USER){
+            user = new TrialUser(userID, username);
+        }
+        else {
+            String password = input.readString();
+            String email = input.readString();
+            String tempPassword = input.readString();
+
+            if (tag == REGULAR_USER){
+                user = new RegularUser(userID, username, password, email);
+            }
+            else if (tag == ADMIN_USER){
+                user = new AdminUser(userID, username, password, email);
+            }
+            else {
+                user = new AnonymousUser(userID, username, password, email);
+            }
+            ((LogInable) user).setTempPassword(tempPassword);
+        }
+
+        int bans = input.readByte();
+        if ((bans & BAN_HISTORY) != 0){
+            LocalDate banDate = (bans & BANNED) != 0 ? LocalDate.ofEpochDay(input.readVarLong()) : null;
+            int count = input.readVarInt();
+            for (int i = 0; i < count; i++){
+                UUID adminID = input.readUUID();
+                LocalDate start = LocalDate.ofEpochDay(input.readVarLong());
+                user.addBan(new Ban(adminID, start, LocalDate.ofEpochDay(input.readVarLong())));
+            }
+            user.setBanDate(banDate);
+        }
+        else if ((bans & BANNED) != 0){
+            user.setBanDate(LocalDate.ofEpochDay(input.readVarLong()));
+        }
+        for (UUID messageID : readUUIDs(input)){
+            user.addMessageIDtoInbox(messageID);
+        }
+
+        if (user instanceof CreationUser){
+            for (UUID creationID : readUUIDs(input)){
+                ((CreationUser) user).addCreation(creationID);
+            }
+        }
+        return user;
+    }
+
+    // =============== Events ================
+    private void writeEvent(CodecOutput output, Event event) throws IOException {
+        if (event instanceof TodoListEvent){
+            output.writeByte(TODO_EVENT);
+        }
+        else if (event instanceof ScheduleEvent){
+            output.writeByte(SCHEDULE_EVENT);
+        }
+        else {
+            output.writeByte(TAGGED_EVENT);
+        }
+
+        output.writeUUID(event.getEventID());
+        output.writeString(event.getName());
+        output.writeString(event.getNote());
+        output.writeBoolean(event.getPrivacy());
+
+        if (event instanceof TodoListEvent){
+            output.writeVarInt(((TodoListEvent) event).getUrgency());
+        }
+        else if (event instanceof ScheduleEvent){
+            Date date = ((ScheduleEvent) event).getDate();
+            output.writeBoolean(date != null);
+            if (date != null){
+                output.writeVarLong(date.getTime());
+            }
+        }
+        else {
+            String[] tags = ((TaggedEvent) event).getTags();
+            output.writeVarInt(tags.length);
+            for (String tag : tags){
+                output.writeString(tag);
+            }
+        }
+    }
+
+    private Event readEvent(CodecInput input, int tag) throws IOException {
+        UUID eventID = input.readUUID();
+        String name = input.readString();
+        String note = input.readString();
+        boolean privacy = input.readBoolean();
+
+        if (tag == TODO_EVENT){
+            return new TodoListEvent(eventID, name, note, privacy, input.readVarInt());
+        }
+        else if (tag == SCHEDULE_EVENT){
+            Date date = input.readBoolean() ? new Date(input.readVarLong()) : null;
+            return new ScheduleEvent(eventID, name, note, privacy, date);
+        }
+
+        String[] tags = new String[input.readVarInt()];
+        for (int i = 0; i < tags.length; i++){
+            tags[i] = input.readString();
+        }
+        return new TaggedEvent(eventID, name, note, privacy, tags);
+    }
+
+    // =============== Containers, messages and templates ================
+    private void writeContainer(CodecOutput output, EventContainer container) throws IOException {
+        output.writeByte(TIMED_EVENT_CONTAINER);
+        output.writeUUID(container.getModuleID());
+        output.writeString(container.getModuleName());
+        output.writeString(container.getContainerType());
+        output.writeBoolean(container.getPrivacy());
+        writeUUIDs(output, container.getEventCollection());
+        output.writeVarLong(container.getCreated());
+    }
+
+    private EventContainer readContainer(CodecInput input, boolean timed) throws IOException {
+        EventContainer container = new EventContainer(input.readUUID(), input.readString(), input.readString());
+        container.setPrivacy(input.readBoolean());
+        for (UUID eventID : readUUIDs(input)){
+            container.addEvent(eventID);
+        }
+        if (timed){
+            container.setCreated(input.readVarLong());
+        }
+        return container;
+    }
+
+    private void writeMessage(CodecOutput output, Message message) throws IOException {
+        output.writeByte(MESSAGE);
+        output.writeUUID(message.getMessageID());
+        output.writeUUID(message.getSender());
+        writeUUIDs(output, message.getReceiverIDs().toArray(new UUID[0]));
+        output.writeString(message.getTitle());
+        output.writeString(message.getContent());
+        writeUUIDs(output, message.getAttachments().toArray(new UUID[0]));
+        writeUUIDs(output, message.getFollowUpMessageIDs().toArray(new UUID[0]));
+    }
+
+    private Message readMessage(CodecInput input) throws IOException {
+        UUID messageID = input.readUUID();
+        UUID sender = input.readUUID();
+        List<UUID> receivers = new ArrayList<>();
+        for (UUID receiver : readUUIDs(input)){
+            receivers.add(receiver);
+        }
+        String title = input.readString();
+        String content = input.readString();
+
+        Message message = new Message(messageID, sender, receivers, title, content, readUUIDs(input));
+        for (UUID followUp : readUUIDs(input)){
+            message.addFollowupMessage(followUp);
+        }
+        return message;
+    }
+
+    private void writeTemplate(CodecOutput output, CreationTemplate template) throws IOException {
+        output.writeByte(TEMPLATE);
+        output.writeString(template.getName());
+        output.writeString(template.getPath());
+        output.writeString(template.getContents());
+    }
+
+    // =============== Helper methods ================
+    private void writeUUIDs(CodecOutput output, UUID[] ids) throws IOException {
+        output.writeVarInt(ids.length);
+        for (UUID id : ids){
+            output.writeUUID(id);
+        }
+    }
+
+    private UUID[] readUUIDs(CodecInput input) throws IOException {
+        UUID[] ids = new UUID[input.readVarInt()];
+        for (int i = 0; i < ids.length; i++){
+            ids[i] = input.readUUID();
+        }
+        return ids;
+    }
+
+    private byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream output = new ObjectOutputStream(bytes);
+        output.writeObject(value);
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    private Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        return new ObjectInputStream(new ByteArrayInputStream(bytes)).readObject();
+    }
+}
@@ -0,0 +1,227 @@
+package gateway;
+
+import use_case.JournaledManager;
+import use_case.StripedLock;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StorageBackend keeping one snapshot file per manager in phase2, either as Java serialization in serialized_*.ser
+ * files or in the binary format of EntityCodec in snapshot_*.bin files. Snapshots in either format can be read; a
+ * binary snapshot is preferred over a .ser file for the same manager.
+ */
+public class FileStorageBackend implements StorageBackend {
+
+    private String umSerPath = "phase2/serialized_um.ser";
+    private String ecmSerPath = "phase2/serialized_ecm.ser";
+    private String emSerPath = "phase2/serialized_em.ser";
+    private String tmSerPath = "phase2/serialized_tm.ser";
+    private String mmSerPath = "phase2/serialized_mm.ser";
+    private String umBinPath = "phase2/snapshot_um.bin";
+    private String ecmBinPath = "phase2/snapshot_ecm.bin";
+    private String emBinPath = "phase2/snapshot_em.bin";
+    private String tmBinPath = "phase2/snapshot_tm.bin";
+    private String mmBinPath = "phase2/snapshot_mm.bin";
+
+    private final boolean binary;
+    private final EntityCodec codec = new EntityCodec();
+    private volatile Compression compression = Compression.NONE;
+
+    /**
+     * Initializes a FileStorageBackend writing snapshots in the given format.
+     * @param format format new snapshots are written in; SHARDED writes the binary format
+     */
+    public FileStorageBackend(SnapshotFormat format){
+        this.binary = format != SnapshotFormat.SERIALIZED;
+    }
+
+    /**
+     * Set the compression applied to snapshots written from now on.
+     * @param compression compression of new snapshots
+     */
+    public void setCompression(Compression compression){
+        this.compression = compression;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public JournaledManager read(int managerIndex) throws IOException, ClassNotFoundException {
+        String binPath = binPaths()[managerIndex];
+        if (new File(binPath).length() > 0){
+            return readBinary(managerIndex, binPath);
+        }
+        return (JournaledManager) readFromFile(serPaths()[managerIndex]);
+    }
+
+    /**
+     * Rewrite the snapshots of the managers that changed. The snapshot in the other format is removed so that it can
+     * not shadow the new one.
+     */
+    @Override
+    public void store(Object[] managers, boolean[] changed, MutationJournal journal, long journalEnd,
+                      SaveReport report) throws IOException {
+        String[] paths = binary ? binPaths() : serPaths();
+        String[] stalePaths = binary ? serPaths() : binPaths();
+
+        for (int i = 0; i < managers.length; i++){
+            if (managers[i] == null || !changed[i]){
+                continue;
+            }
+            long start = System.nanoTime();
+            if (binary){
+                saveBinary((JournaledManager) managers[i], paths[i]);
+            }
+            else {
+                saveToFile(managers[i], paths[i]);
+            }
+            report.addWrite(paths[i], System.nanoTime() - start);
+            new File(stalePaths[i]).delete();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void discard(int managerIndex) {
+        new File(serPaths()[managerIndex]).delete();
+        new File(binPaths()[managerIndex]).delete();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean storesRecords() {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() {
+        long total = 0;
+        for (String path : serPaths()){
+            total += new File(path).length();
+        }
+        for (String path : binPaths()){
+            total += new File(path).length();
+        }
+        return total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+    }
+
+    // =============== Helper methods ================
+    private String[] serPaths(){
+        return new String[]{umSerPath, ecmSerPath, emSerPath, tmSerPath, mmSerPath};
+    }
+
+    private String[] binPaths(){
+        return new String[]{umBinPath, ecmBinPath, emBinPath, tmBinPath, mmBinPath};
+    }
+
+    private void saveBinary(JournaledManager manager, String filePath) throws IOException {
+        // the count must match the entries written, while other threads may be adding or removing entries
+        List<Map.Entry<?, ?>> entries = new ArrayList<>(manager.getEntries().entrySet());
+        File temp = new File(filePath + ".tmp");
+        try (OutputStream buffer = compression.compress(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            CodecOutput output = new CodecOutput(buffer);
+            output.writeVarInt(entries.size());
+            for (Map.Entry<?, ?> entry : entries){
+                // no mutation changes the entity while it is encoded
+                StripedLock.Held held = manager.lockKeys(entry.getKey());
+                try {
+                    codec.write(output, entry.getKey());
+                    codec.write(output, entry.getValue());
+                } finally {
+                    held.unlock();
+                }
+            }
+            output.flush();
+        }
+        replace(temp, new File(filePath));
+    }
+
+    /**
+     * Read a manager from a binary snapshot.
+     * @param index index of the manager in the managers array
+     * @param path path of the file to be read
+     * @return manager read from the file
+     * @throws IOException if the file could not be read, such as when it was cut short
+     * @throws ClassNotFoundException if an entity in the snapshot could not be read
+     */
+    private JournaledManager readBinary(int index, String path) throws IOException, ClassNotFoundException {
+        try (InputStream buffer = Compression.decompress(new FileInputStream(path))) {
+            CodecInput input = new CodecInput(buffer);
+            JournaledManager manager = ManagerGateway.newManager(index);
+            int count = input.readVarInt();
+            for (int i = 0; i < count; i++){
+                manager.replayPut(codec.read(input), codec.read(input));
+            }
+            return manager;
+        }
+    }
+
+    private void saveToFile(Object o, String filePath) throws IOException {
+        File temp = new File(filePath + ".tmp");
+        OutputStream file = new FileOutputStream(temp);
+        OutputStream buffer = compression.compress(new BufferedOutputStream(file));
+        ObjectOutput output = new ObjectOutputStream(buffer);
+
+        // Serialize the object
+        output.writeObject(o);
+        output.close();
+        file.close();
+        replace(temp, new File(filePath));
+    }
+
+    /**
+     * Replace a snapshot with a newly written one. The new snapshot is forced to disk first, since the journal
+     * records it contains are dropped once it is written, and a crash while it is written leaves the old one.
+     * @param temp file the new snapshot was written to
+     * @param target path of the snapshot
+     * @throws IOException if the new snapshot could not be forced to disk or moved
+     */
+    private void replace(File temp, File target) throws IOException {
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     *
+     * @param path path of the file to be read
+     * @return object that deserialized from the file, or null if the file is missing or empty
+     * @throws IOException if the file could not be read, such as when it was cut short or written by an incompatible
+     * version of a class
+     * @throws ClassNotFoundException if a class in the file could not be found
+     */
+    private Object readFromFile(String path) throws IOException, ClassNotFoundException {
+        if (new File(path).length() == 0) {
+            return null;
+        }
+
+        try (ObjectInput input = new ObjectInputStream(Compression.decompress(new FileInputStream(path)))) {
+            // Deserialize the object
+            return input.readObject();
+        }
+    }
+}
@@ -0,0 +1,628 @@
+package gateway;
+
+import entities.user.CreationUser;
+import entities.user.LogInable;
+import entities.user.User;
+import entities.creation.EventContainer;
+import use_case.ContainerOrder;
+import use_case.EventContainerManager;
+import use_case.JournaledManager;
+import use_case.ShardSource;
+import use_case.UserManager;
+
+import java.io.*;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * StorageBackend keeping the managers in an embedded SQL database reached through JDBC, such as H2 or SQLite, with
+ * one table each for users, EventContainers, events, templates and messages. Entities are stored in the binary format
+ * of EntityCodec, next to indexed columns for the lookups the managers make.
+ *
+ * Templates and messages are read in full on startup. Users, EventContainers and events are not: the UserManager and
+ * EventContainerManager read from this backend look users and creations up with indexed queries, and load a user's
+ * row, EventContainers and events the first time the user is needed. EventContainers also have a column for their
+ * sort key in each ContainerOrder, so that they can be browsed in order without being loaded. The JDBC driver for the
+ * URL must be on the class path at runtime.
+ */
+public class JdbcStorageBackend implements StorageBackend, ShardSource {
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS users (id VARCHAR(36) PRIMARY KEY, username VARCHAR(255), "
+                    + "email VARCHAR(255), banned_until BIGINT, data BLOB)",
+            "CREATE INDEX IF NOT EXISTS users_username ON users (username)",
+            "CREATE INDEX IF NOT EXISTS users_email ON users (email)",
+            "CREATE TABLE IF NOT EXISTS containers (id VARCHAR(36) PRIMARY KEY, is_private BOOLEAN, "
+                    + "sort_name VARCHAR(1024), sort_type VARCHAR(1024), sort_created VARCHAR(16), data BLOB)",
+            "CREATE TABLE IF NOT EXISTS creations (creation_id VARCHAR(36) PRIMARY KEY, owner_id VARCHAR(36))",
+            "CREATE INDEX IF NOT EXISTS creations_owner ON creations (owner_id)",
+            "CREATE TABLE IF NOT EXISTS events (id VARCHAR(36) PRIMARY KEY, data BLOB)",
+            "CREATE TABLE IF NOT EXISTS container_events (event_id VARCHAR(36) PRIMARY KEY, container_id VARCHAR(36))",
+            "CREATE INDEX IF NOT EXISTS container_events_container ON container_events (container_id)",
+            "CREATE TABLE IF NOT EXISTS templates (path VARCHAR(1024) PRIMARY KEY, data BLOB)",
+            "CREATE TABLE IF NOT EXISTS messages (id VARCHAR(36) PRIMARY KEY, data BLOB)"
+    };
+    // column of the containers' sort key in each ContainerOrder, in the order of its values
+    private static final String[] SORT_COLUMNS = {"sort_name", "sort_type", "sort_created"};
+    // number of rows read at a time when reading rows in order
+    private static final int BATCH_SIZE = 256;
+    // table of each manager, in the order used by ManagerGateway
+    private static final String[] TABLES = {"users", "containers", "events", "templates", "messages"};
+
+    private final String url;
+    private final Connection connection;
+    private final EntityCodec codec = new EntityCodec();
+    // UserManager, EventContainerManager and EventManager, once read
+    private final JournaledManager[] managers = new JournaledManager[3];
+    // users whose rows have been loaded into the managers
+    private final Set<UUID> loaded = new HashSet<>();
+
+    /**
+     * Initializes a JdbcStorageBackend on the database at the given JDBC URL, creating its tables if they do not
+     * exist.
+     * @param url JDBC URL of the database, such as jdbc:h2:./phase2/calendar or jdbc:sqlite:phase2/calendar.db
+     * @throws IOException if the database could not be opened
+     */
+    public JdbcStorageBackend(String url) throws IOException {
+        this.url = url;
+        try {
+            connection = DriverManager.getConnection(url);
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : SCHEMA){
+                    statement.execute(sql);
+                }
+                addSortColumns(statement);
+            }
+            connection.setAutoCommit(false);
+            fillSortColumns();
+            connection.commit();
+        } catch (SQLException | ClassNotFoundException e) {
+            throw new IOException("Could not open " + url, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized JournaledManager read(int managerIndex) throws IOException, ClassNotFoundException {
+        JournaledManager manager = ManagerGateway.newManager(managerIndex);
+        if (managerIndex <= 2){
+            // filled as users are needed
+            managers[managerIndex] = manager;
+            if (manager instanceof UserManager){
+                ((UserManager) manager).setShardSource(this);
+            }
+            else if (manager instanceof EventContainerManager){
+                ((EventContainerManager) manager).setShardSource(this);
+            }
+            loaded.clear();
+            return manager;
+        }
+
+        String keyColumn = managerIndex == 3 ? "path" : "id";
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT " + keyColumn + ", data FROM " + TABLES[managerIndex])) {
+            while (rows.next()){
+                Object key = managerIndex == 3 ? rows.getString(1) : UUID.fromString(rows.getString(1));
+                manager.replayPut(key, decode(rows.getBytes(2)));
+            }
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+        return manager;
+    }
+
+    /**
+     * Apply the records of the journal before journalEnd to the tables, in a single transaction.
+     */
+    @Override
+    public synchronized void store(Object[] managers, boolean[] changed, MutationJournal journal, long journalEnd,
+                                   SaveReport report) throws IOException {
+        long start = System.nanoTime();
+        try {
+            journal.read(journalEnd, this::apply);
+            connection.commit();
+        } catch (IOException | ClassNotFoundException | SQLException e) {
+            rollback();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+        report.addWrite(url, System.nanoTime() - start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void discard(int managerIndex) throws IOException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM " + TABLES[managerIndex]);
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean storesRecords() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() {
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID findUserByUsername(String username) {
+        return queryID("SELECT id FROM users WHERE username = ?", username);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID findUserByEmail(String email) {
+        return queryID("SELECT id FROM users WHERE email = ?", email);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String[] findUsernamesByPrefix(String prefix, int limit) {
+        String sql = "SELECT DISTINCT username FROM users WHERE username LIKE ? ESCAPE '!' ORDER BY username";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%");
+            statement.setMaxRows(limit);
+            List<String> res = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()){
+                    res.add(rows.getString(1));
+                }
+            }
+            return res.toArray(new String[0]);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Query failed: " + sql, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID findOwner(UUID creationID) {
+        return queryID("SELECT owner_id FROM creations WHERE creation_id = ?", creationID.toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID[] getUserIDs() {
+        return queryIDs("SELECT id FROM users", null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID[] getCreations(UUID userID) {
+        return queryIDs("SELECT creation_id FROM creations WHERE owner_id = ?", userID.toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Map<UUID, LocalDate> getStoredBans() {
+        String sql = "SELECT id, banned_until FROM users WHERE banned_until IS NOT NULL";
+        Map<?, ?> resident = managers[0] == null ? Collections.emptyMap() : managers[0].getEntries();
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet rows = statement.executeQuery()) {
+            Map<UUID, LocalDate> res = new HashMap<>();
+            while (rows.next()){
+                UUID userID = UUID.fromString(rows.getString(1));
+                if (!resident.containsKey(userID)){
+                    res.put(userID, LocalDate.ofEpochDay(rows.getLong(2)));
+                }
+            }
+            return res;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Query failed: " + sql, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID[] getStoredCreations(boolean publicOnly) {
+        String sql = "SELECT cr.creation_id, cr.owner_id FROM creations cr JOIN containers c ON c.id = cr.creation_id"
+                + (publicOnly ? " WHERE c.is_private = FALSE" : "");
+        Map<?, ?> resident = managers[0] == null ? Collections.emptyMap() : managers[0].getEntries();
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet rows = statement.executeQuery()) {
+            List<UUID> res = new ArrayList<>();
+            while (rows.next()){
+                if (!resident.containsKey(UUID.fromString(rows.getString(2)))){
+                    res.add(UUID.fromString(rows.getString(1)));
+                }
+            }
+            return res.toArray(new UUID[0]);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Query failed: " + sql, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Map<UUID, String> getStoredCreationsAfter(ContainerOrder order, String key, UUID creationID,
+                                                                  boolean publicOnly, int limit) {
+        String column = "c." + SORT_COLUMNS[order.ordinal()];
+        String select = "SELECT cr.creation_id, " + column + ", cr.owner_id FROM creations cr "
+                + "JOIN containers c ON c.id = cr.creation_id WHERE " + column + " IS NOT NULL"
+                + (publicOnly ? " AND c.is_private = FALSE" : "");
+        Map<?, ?> resident = managers[0] == null ? Collections.emptyMap() : managers[0].getEntries();
+        return queryAfter(select, column, key, creationID, limit, resident::containsKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Map<UUID, String> getStoredUsersAfter(String username, UUID userID, int limit) {
+        String select = "SELECT id, username, id FROM users WHERE username IS NOT NULL";
+        Map<?, ?> resident = managers[0] == null ? Collections.emptyMap() : managers[0].getEntries();
+        return queryAfter(select, "username", username, userID, limit, resident::containsKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isStoredPublic(UUID creationID) {
+        return queryID("SELECT cr.creation_id FROM creations cr JOIN containers c ON c.id = cr.creation_id "
+                + "WHERE c.is_private = FALSE AND cr.creation_id = ?", creationID.toString()) != null;
+    }
+
+    /**
+     * Does nothing, since users are never evicted once loaded.
+     */
+    @Override
+    public void touch(UUID id) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean load(UUID userID) {
+        if (loaded.contains(userID) || managers[0] == null){
+            return false;
+        }
+
+        try {
+            List<Object[]> users = queryRows("SELECT id, data FROM users WHERE id = ?", userID);
+            if (users.isEmpty()){
+                return false;
+            }
+            putAbsent(managers[0], users);
+            putAbsent(managers[1], queryRows("SELECT c.id, c.data FROM containers c "
+                    + "JOIN creations cr ON cr.creation_id = c.id WHERE cr.owner_id = ?", userID));
+            putAbsent(managers[2], queryRows("SELECT e.id, e.data FROM events e "
+                    + "JOIN container_events ce ON ce.event_id = e.id "
+                    + "JOIN creations cr ON cr.creation_id = ce.container_id WHERE cr.owner_id = ?", userID));
+        } catch (SQLException | IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Could not load user " + userID, e);
+        }
+
+        loaded.add(userID);
+        return true;
+    }
+
+    // =============== Helper methods ================
+    private void apply(int managerIndex, boolean put, Object key, Object value) throws IOException {
+        try {
+            String id = key.toString();
+            switch (managerIndex){
+                case 0:
+                    update("DELETE FROM creations WHERE owner_id = ?", id);
+                    if (!put){
+                        update("DELETE FROM users WHERE id = ?", id);
+                        return;
+                    }
+                    User user = (User) value;
+                    String email = user instanceof LogInable ? ((LogInable) user).getEmail() : null;
+                    Long bannedUntil = user.getBannedUntil() == null ? null : user.getBannedUntil().toEpochDay();
+                    upsert("UPDATE users SET username = ?, email = ?, banned_until = ?, data = ? WHERE id = ?",
+                            "INSERT INTO users (username, email, banned_until, data, id) VALUES (?, ?, ?, ?, ?)",
+                            user.getUsername(), email, bannedUntil, encode(user), id);
+                    if (user instanceof CreationUser){
+                        for (UUID creationID : ((CreationUser) user).getCreationSet()){
+                            update("DELETE FROM creations WHERE creation_id = ?", creationID.toString());
+                            update("INSERT INTO creations (creation_id, owner_id) VALUES (?, ?)",
+                                    creationID.toString(), id);
+                        }
+                    }
+                    break;
+                case 1:
+                    update("DELETE FROM container_events WHERE container_id = ?", id);
+                    if (!put){
+                        update("DELETE FROM containers WHERE id = ?", id);
+                        return;
+                    }
+                    EventContainer container = (EventContainer) value;
+                    upsert("UPDATE containers SET is_private = ?, sort_name = ?, sort_type = ?, sort_created = ?, "
+                                    + "data = ? WHERE id = ?",
+                            "INSERT INTO containers (is_private, sort_name, sort_type, sort_created, data, id) "
+                                    + "VALUES (?, ?, ?, ?, ?, ?)",
+                            container.getPrivacy(), sortKey(ContainerOrder.NAME, container),
+                            sortKey(ContainerOrder.TYPE, container), sortKey(ContainerOrder.CREATED, container),
+                            encode(value), id);
+                    for (UUID eventID : container.getEventCollection()){
+                        update("DELETE FROM container_events WHERE event_id = ?", eventID.toString());
+                        update("INSERT INTO container_events (event_id, container_id) VALUES (?, ?)",
+                                eventID.toString(), id);
+                    }
+                    break;
+                default:
+                    String table = TABLES[managerIndex];
+                    String keyColumn = managerIndex == 3 ? "path" : "id";
+                    if (!put){
+                        update("DELETE FROM " + table + " WHERE " + keyColumn + " = ?", id);
+                        return;
+                    }
+                    upsert("UPDATE " + table + " SET data = ? WHERE " + keyColumn + " = ?",
+                            "INSERT INTO " + table + " (data, " + keyColumn + ") VALUES (?, ?)", encode(value), id);
+            }
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    // add the sort key columns to a containers table made before it had them
+    private void addSortColumns(Statement statement) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        try (ResultSet rows = statement.executeQuery("SELECT * FROM containers WHERE 1 = 0")) {
+            ResultSetMetaData columns = rows.getMetaData();
+            for (int i = 1; i <= columns.getColumnCount(); i++){
+                // some databases report unquoted names in upper case
+                existing.add(columns.getColumnName(i).toLowerCase(Locale.ROOT));
+            }
+        }
+        for (String column : SORT_COLUMNS){
+            if (!existing.contains(column)){
+                statement.execute("ALTER TABLE containers ADD COLUMN " + column + " VARCHAR(1024)");
+            }
+            statement.execute("CREATE INDEX IF NOT EXISTS containers_" + column + " ON containers (" + column + ")");
+        }
+    }
+
+    // fill in the sort keys of the containers stored before the table had them
+    private void fillSortColumns() throws SQLException, IOException, ClassNotFoundException {
+        List<Object[]> containers = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT id, data FROM containers WHERE sort_name IS NULL")) {
+            while (rows.next()){
+                containers.add(new Object[]{rows.getString(1), decode(rows.getBytes(2))});
+            }
+        }
+        for (Object[] row : containers){
+            EventContainer container = (EventContainer) row[1];
+            update("UPDATE containers SET sort_name = ?, sort_type = ?, sort_created = ? WHERE id = ?",
+                    sortKey(ContainerOrder.NAME, container), sortKey(ContainerOrder.TYPE, container),
+                    sortKey(ContainerOrder.CREATED, container), row[0]);
+        }
+    }
+
+    private String sortKey(ContainerOrder order, EventContainer container){
+        return order.keyOf(container.getModuleName(), container.getContainerType(), container.getCreated());
+    }
+
+    /**
+     * Read the rows after the given position, ordered by key then UUID, like a SortedIndex. The database only orders
+     * the rows by key, so rows with the same key are read together and ordered by UUID here.
+     * @param select query of the rows, selecting their UUID, key and owner and ending in a WHERE clause
+     * @param column column of the key
+     * @param key key of the position, or null to start from the first row
+     * @param id UUID of the position
+     * @param limit maximum number of rows returned
+     * @param skip owners whose rows are left out
+     * @return map from UUID to key of at most limit rows, in order
+     */
+    private Map<UUID, String> queryAfter(String select, String column, String key, UUID id, int limit,
+                                         Predicate<UUID> skip){
+        Comparator<String[]> order = Comparator.comparing((String[] row) -> row[1])
+                .thenComparing(row -> UUID.fromString(row[0]));
+        Map<UUID, String> res = new LinkedHashMap<>();
+        String boundary = key;
+        UUID boundaryID = id;
+        while (true){
+            if (boundary != null){
+                List<String[]> tied = queryStrings(select + " AND " + column + " = ?", boundary, 0);
+                tied.sort(order);
+                for (String[] row : tied){
+                    UUID rowID = UUID.fromString(row[0]);
+                    if ((boundaryID == null || rowID.compareTo(boundaryID) > 0) && !skip.test(UUID.fromString(row[2]))){
+                        if (res.size() == limit){
+                            return res;
+                        }
+                        res.put(rowID, row[1]);
+                    }
+                }
+            }
+
+            List<String[]> rows = queryStrings(select + (boundary == null ? "" : " AND " + column + " > ?")
+                    + " ORDER BY " + column, boundary, BATCH_SIZE);
+            boolean last = rows.size() < BATCH_SIZE;
+            String lastKey = rows.isEmpty() ? null : rows.get(rows.size() - 1)[1];
+            rows.sort(order);
+            for (String[] row : rows){
+                // the batch may end in the middle of its last key, whose rows are all read with the next batch
+                if (!last && row[1].equals(lastKey)){
+                    continue;
+                }
+                if (!skip.test(UUID.fromString(row[2]))){
+                    if (res.size() == limit){
+                        return res;
+                    }
+                    res.put(UUID.fromString(row[0]), row[1]);
+                }
+            }
+            if (last){
+                return res;
+            }
+            boundary = lastKey;
+            boundaryID = null;
+        }
+    }
+
+    private List<String[]> queryStrings(String sql, String param, int maxRows){
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (param != null){
+                statement.setString(1, param);
+            }
+            statement.setMaxRows(maxRows);
+            List<String[]> res = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()){
+                    res.add(new String[]{rows.getString(1), rows.getString(2), rows.getString(3)});
+                }
+            }
+            return res;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Query failed: " + sql, e);
+        }
+    }
+
+    /**
+     * Update a row, or insert it if it does not exist. Both statements take the same parameters.
+     * @param update UPDATE statement
+     * @param insert INSERT statement
+     * @param params parameters of both statements
+     * @throws SQLException if either statement failed
+     */
+    private void upsert(String update, String insert, Object... params) throws SQLException {
+        if (update(update, params) == 0){
+            update(insert, params);
+        }
+    }
+
+    private int update(String sql, Object... params) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++){
+                if (params[i] == null){
+                    statement.setNull(i + 1, Types.VARCHAR);
+                }
+                else {
+                    statement.setObject(i + 1, params[i]);
+                }
+            }
+            return statement.executeUpdate();
+        }
+    }
+
+    private UUID queryID(String sql, String param){
+        UUID[] ids = queryIDs(sql, param);
+        return ids.length == 0 ? null : ids[0];
+    }
+
+    private UUID[] queryIDs(String sql, String param){
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            if (param != null){
+                statement.setString(1, param);
+            }
+            List<UUID> res = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()){
+                    res.add(UUID.fromString(rows.getString(1)));
+                }
+            }
+            return res.toArray(new UUID[0]);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Query failed: " + sql, e);
+        }
+    }
+
+    private List<Object[]> queryRows(String sql, UUID param) throws SQLException, IOException, ClassNotFoundException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, param.toString());
+            List<Object[]> res = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()){
+                    res.add(new Object[]{UUID.fromString(rows.getString(1)), decode(rows.getBytes(2))});
+                }
+            }
+            return res;
+        }
+    }
+
+    private void putAbsent(JournaledManager manager, List<Object[]> rows){
+        if (manager == null){
+            return;
+        }
+        for (Object[] row : rows){
+            // entities already in memory were changed after they were stored
+            if (!manager.getEntries().containsKey(row[0])){
+                manager.replayPut(row[0], row[1]);
+            }
+        }
+    }
+
+    private byte[] encode(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodecOutput output = new CodecOutput(bytes);
+        codec.write(output, value);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private Object decode(byte[] data) throws IOException, ClassNotFoundException {
+        return codec.read(new CodecInput(new ByteArrayInputStream(data)));
+    }
+
+    private void rollback(){
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package gateway;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record of how long each step of loading the managers took.
+ */
+public class LoadReport {
+
+    private final Map<String, Long> steps = new LinkedHashMap<>();
+    private final List<String> errors = new ArrayList<>();
+    private long wallNanos;
+
+    /**
+     * Record how long a step of the load took. Steps may be recorded from several threads.
+     * @param step name of the step, such as the file that was read
+     * @param nanos time taken by the step, in nanoseconds
+     */
+    synchronized void addStep(String step, long nanos){
+        steps.put(step, nanos);
+    }
+
+    /**
+     * Record how long the whole load took, from start to finish.
+     * @param nanos elapsed time in nanoseconds
+     */
+    synchronized void setWallTime(long nanos){
+        wallNanos = nanos;
+    }
+
+    /**
+     * Record a problem met during the load that did not stop it, such as data that had to be skipped.
+     * @param error description of the problem
+     */
+    synchronized void addError(String error){
+        errors.add(error);
+    }
+
+    /**
+     * Get the problems met during the load that did not stop it.
+     * @return array of descriptions, empty if there was none
+     */
+    public synchronized String[] getErrors(){
+        return errors.toArray(new String[0]);
+    }
+
+    /**
+     * Get the names of the steps recorded in this report.
+     * @return array of step names
+     */
+    public synchronized String[] getSteps(){
+        return steps.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * Get how long a step took.
+     * @param step name of the step
+     * @return time taken in milliseconds, or 0 if the step was not recorded
+     */
+    public synchronized long getStepMillis(String step){
+        Long nanos = steps.get(step);
+        return nanos == null ? 0 : nanos / 1000000;
+    }
+
+    /**
+     * Get how long the whole load took. Steps that ran concurrently are only counted once.
+     * @return elapsed time in milliseconds
+     */
+    public synchronized long getWallMillis(){
+        return wallNanos / 1000000;
+    }
+
+    /**
+     * Return a string representation of this LoadReport.
+     * @return one line per step, followed by the elapsed time
+     */
+    @Override
+    public synchronized String toString(){
+        StringBuilder res = new StringBuilder();
+        for (String step : steps.keySet()){
+            res.append(step).append(": ").append(getStepMillis(step)).append(" ms\n");
+        }
+        for (String error : errors){
+            res.append("error: ").append(error).append('\n');
+        }
+        res.append("elapsed: ").append(getWallMillis()).append(" ms");
+        return res.toString();
+    }
+}
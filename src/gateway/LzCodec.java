@@ -0,0 +1,334 @@
+package gateway;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * A fast LZ77 codec in the style of LZ4, compressing streams block by block. Each block is up to BLOCK_SIZE bytes,
+ * stored as a flag byte, followed by the stored length and raw length, followed by the block; blocks that do not
+ * shrink are stored as is. Within a compressed block, each sequence is a token holding the literal and match lengths,
+ * the literals, and a two byte back-reference offset.
+ */
+final class LzCodec {
+
+    static final int BLOCK_SIZE = 1 << 16;
+
+    private static final int MIN_MATCH = 4;
+    // the last bytes of a block are always literals, so that matching never reads past its end
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_BITS = 12;
+
+    private static final int RAW_BLOCK = 0;
+    private static final int LZ_BLOCK = 1;
+
+    private LzCodec(){
+    }
+
+    /**
+     * Get the largest size a block of the given length can compress to.
+     * @param length length of the block
+     * @return upper bound of the compressed length
+     */
+    static int maxCompressedLength(int length){
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compress a block.
+     * @param src array holding the block
+     * @param length length of the block
+     * @param dst array of at least maxCompressedLength(length) bytes to compress into
+     * @param table scratch hash table of 1 << 12 entries
+     * @return compressed length
+     */
+    static int compress(byte[] src, int length, byte[] dst, int[] table){
+        Arrays.fill(table, -1);
+        int anchor = 0;
+        int ip = 0;
+        int op = 0;
+        int matchEnd = length - LAST_LITERALS;
+
+        while (ip + MIN_MATCH <= matchEnd){
+            int sequence = readInt(src, ip);
+            int hash = (sequence * -1640531535) >>> (32 - HASH_BITS);
+            int ref = table[hash];
+            table[hash] = ip;
+
+            if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence){
+                ip++;
+                continue;
+            }
+
+            int matchLength = MIN_MATCH;
+            while (ip + matchLength < matchEnd && src[ref + matchLength] == src[ip + matchLength]){
+                matchLength++;
+            }
+
+            op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLength);
+            ip += matchLength;
+            anchor = ip;
+        }
+        return writeSequence(src, anchor, length - anchor, dst, op, 0, 0);
+    }
+
+    /**
+     * Decompress a block.
+     * @param src array holding the compressed block
+     * @param length compressed length
+     * @param dst array to decompress into
+     * @param rawLength length of the block once decompressed
+     * @throws IOException if the block is corrupt
+     */
+    static void decompress(byte[] src, int length, byte[] dst, int rawLength) throws IOException {
+        int ip = 0;
+        int op = 0;
+
+        while (ip < length){
+            int token = src[ip++] & 0xFF;
+
+            int literals = token >>> 4;
+            if (literals == 15){
+                int b;
+                do {
+                    checkBounds(ip < length);
+                    b = src[ip++] & 0xFF;
+                    literals += b;
+                } while (b == 255);
+            }
+            checkBounds(ip + literals <= length && op + literals <= rawLength);
+            System.arraycopy(src, ip, dst, op, literals);
+            ip += literals;
+            op += literals;
+
+            if (ip == length){
+                break;
+            }
+
+            checkBounds(ip + 2 <= length);
+            int offset = (src[ip] & 0xFF) | (src[ip + 1] & 0xFF) << 8;
+            ip += 2;
+
+            int matchLength = token & 0x0F;
+            if (matchLength == 15){
+                int b;
+                do {
+                    checkBounds(ip < length);
+                    b = src[ip++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+
+            checkBounds(offset > 0 && offset <= op && op + matchLength <= rawLength);
+            // copied byte by byte, since a match may overlap the bytes it produces
+            for (int i = 0; i < matchLength; i++){
+                dst[op] = dst[op - offset];
+                op++;
+            }
+        }
+        checkBounds(op == rawLength);
+    }
+
+    // =============== Helper methods ================
+    private static int writeSequence(byte[] src, int literalStart, int literals, byte[] dst, int op,
+                                     int offset, int matchLength){
+        int extraMatch = matchLength - MIN_MATCH;
+        int token = Math.min(literals, 15) << 4 | (matchLength == 0 ? 0 : Math.min(extraMatch, 15));
+        dst[op++] = (byte) token;
+        if (literals >= 15){
+            op = writeLength(dst, op, literals - 15);
+        }
+        System.arraycopy(src, literalStart, dst, op, literals);
+        op += literals;
+
+        if (matchLength == 0){
+            return op;
+        }
+        dst[op++] = (byte) offset;
+        dst[op++] = (byte) (offset >>> 8);
+        if (extraMatch >= 15){
+            op = writeLength(dst, op, extraMatch - 15);
+        }
+        return op;
+    }
+
+    private static int writeLength(byte[] dst, int op, int length){
+        while (length >= 255){
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    private static int readInt(byte[] src, int i){
+        return (src[i] & 0xFF) | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF) << 16 | (src[i + 3] & 0xFF) << 24;
+    }
+
+    private static void checkBounds(boolean valid) throws IOException {
+        if (!valid){
+            throw new IOException("Corrupt LZ block");
+        }
+    }
+
+    /**
+     * Stream compressing what is written to it one block at a time.
+     */
+    static class Output extends FilterOutputStream {
+
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+        private final int[] table = new int[1 << HASH_BITS];
+        private final DataOutputStream data;
+        private int count;
+
+        Output(OutputStream out){
+            super(out);
+            data = new DataOutputStream(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == block.length){
+                writeBlock();
+            }
+            block[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0){
+                if (count == block.length){
+                    writeBlock();
+                }
+                int n = Math.min(len, block.length - count);
+                System.arraycopy(b, off, block, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeBlock();
+            data.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writeBlock();
+            } finally {
+                data.close();
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (count == 0){
+                return;
+            }
+            int length = compress(block, count, compressed, table);
+            if (length < count){
+                data.writeByte(LZ_BLOCK);
+                data.writeInt(length);
+                data.writeInt(count);
+                data.write(compressed, 0, length);
+            }
+            else {
+                data.writeByte(RAW_BLOCK);
+                data.writeInt(count);
+                data.write(block, 0, count);
+            }
+            count = 0;
+        }
+    }
+
+    /**
+     * Stream decompressing what was written by an Output, one block at a time.
+     */
+    static class Input extends FilterInputStream {
+
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+        private final DataInputStream data;
+        private int position;
+        private int count;
+
+        Input(InputStream in){
+            super(in);
+            data = new DataInputStream(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == count && !readBlock()){
+                return -1;
+            }
+            return block[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0){
+                return 0;
+            }
+            if (position == count && !readBlock()){
+                return -1;
+            }
+            int n = Math.min(len, count - position);
+            System.arraycopy(block, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && (position < count || readBlock())){
+                int step = (int) Math.min(n - skipped, count - position);
+                position += step;
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available(){
+            return count - position;
+        }
+
+        @Override
+        public boolean markSupported(){
+            return false;
+        }
+
+        private boolean readBlock() throws IOException {
+            int kind = data.read();
+            if (kind < 0){
+                return false;
+            }
+
+            if (kind == LZ_BLOCK){
+                int length = data.readInt();
+                int rawLength = data.readInt();
+                checkBounds(length >= 0 && length <= compressed.length && rawLength >= 0 && rawLength <= BLOCK_SIZE);
+                data.readFully(compressed, 0, length);
+                decompress(compressed, length, block, rawLength);
+                count = rawLength;
+            }
+            else if (kind == RAW_BLOCK){
+                int rawLength = data.readInt();
+                checkBounds(rawLength >= 0 && rawLength <= BLOCK_SIZE);
+                data.readFully(block, 0, rawLength);
+                count = rawLength;
+            }
+            else {
+                throw new IOException("Corrupt LZ block");
+            }
+            position = 0;
+            return true;
+        }
+    }
+}
@@ -5,107 +5,637 @@ package gateway;
 
 import use_case.EventContainerManager;
 import use_case.EventManager;
+import use_case.JournaledManager;
 import use_case.MessageManager;
+import use_case.MutationListener;
 import use_case.TemplateManager;
 import use_case.UserManager;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Gateway class responsible for configuring all managers in this program.
  */
 public class ManagerGateway implements Serializable{
 
-    private String umSerPath = "phase2/serialized_um.ser";
-    private String ecmSerPath = "phase2/serialized_ecm.ser";
-    private String emSerPath = "phase2/serialized_em.ser";
-    private String tmSerPath = "phase2/serialized_tm.ser";
-    private String mmSerPath = "phase2/serialized_mm.ser";
+    private static final long serialVersionUID = -6067641016433261105L;
+
+    private String journalPath = "phase2/journal.log";
+    private String shardDirectory = "phase2/shards";
+
+    // the journal is folded into fresh snapshots once it outgrows them, but never before it reaches this size
+    private static final long MIN_COMPACTION_BYTES = 1 << 20;
+    // number of snapshot files read at the same time on startup
+    private static final int LOAD_THREADS = 5;
+    // number of recently opened message bodies kept in memory
+    private static final int MESSAGE_BODY_CACHE_SIZE = 256;
+    // names of the managers in load reports
+    private static final String[] MANAGER_NAMES = {"users", "event containers", "events", "templates", "messages"};
+    // shards that have not been loaded, read or written for this long are evicted from memory on save
+    private static final long SHARD_IDLE_MILLIS = 10 * 60 * 1000;
+
+    private MutationJournal journal = new MutationJournal(journalPath);
+    // set when a mutation could not be journaled, so that the next save writes it in a snapshot
+    private volatile boolean unjournaled;
+    // version of each manager when its snapshot was last written or read
+    private long[] snapshotVersions = new long[5];
+    private SnapshotFormat format;
+    private StorageBackend backend;
+    private Compression compression = Compression.NONE;
+    private volatile LoadReport lastLoadReport = new LoadReport();
+    // when set, events live in a memory-mapped file at this path instead of in EventManager's snapshot
+    private String eventStorePath;
+    private MappedEventStore eventStore;
+    private boolean migratingEvents;
+    // when set, message bodies live in a file at this path and only message headers are kept in memory
+    private String messageBodyPath;
+    private PagedMessageBodyStore messageBodies;
+    // set when the format is SHARDED
+    private ShardStore shards;
+
+    /**
+     * Initializes a ManagerGateway that writes snapshots in the compact binary format.
+     */
+    public ManagerGateway(){
+        this(SnapshotFormat.BINARY);
+    }
+
+    /**
+     * Initializes a ManagerGateway that writes snapshots in the given format. Snapshots in either format can be read.
+     * @param format format new snapshots are written in
+     */
+    public ManagerGateway(SnapshotFormat format){
+        this(format, null);
+    }
+
+    /**
+     * Initializes a ManagerGateway that writes snapshots in the given format, and keeps events in a memory-mapped
+     * MappedEventStore instead of on the heap. The first time the store is opened, the events in EventManager's
+     * snapshot and journal are copied into it.
+     * @param format format new snapshots are written in
+     * @param eventStorePath path of the event store file, or null to keep events on the heap
+     */
+    public ManagerGateway(SnapshotFormat format, String eventStorePath){
+        this(format, eventStorePath, null);
+    }
+
+    /**
+     * Initializes a ManagerGateway that writes snapshots in the given format, optionally keeps events in a
+     * MappedEventStore, and optionally keeps message bodies in a PagedMessageBodyStore so that only message headers
+     * stay in memory.
+     * @param format format new snapshots are written in
+     * @param eventStorePath path of the event store file, or null to keep events on the heap
+     * @param messageBodyPath path of the message body file, or null to keep message bodies on the heap
+     */
+    public ManagerGateway(SnapshotFormat format, String eventStorePath, String messageBodyPath){
+        this.format = format;
+        this.backend = new FileStorageBackend(format);
+        this.eventStorePath = eventStorePath;
+        this.messageBodyPath = messageBodyPath;
+    }
+
+    /**
+     * Initializes a ManagerGateway that saves the managers in the given StorageBackend.
+     * @param backend backend the managers are saved in
+     */
+    public ManagerGateway(StorageBackend backend){
+        this.format = SnapshotFormat.BINARY;
+        this.backend = backend;
+    }
 
     /**
-     * Save all managers, in the order of, UserManager, EventContainerManager, EventManager, and TemplateManager,
-     * to some .ser files.
+     * Set the compression applied to snapshot and shard files written from now on. Files are read with whatever
+     * compression they were written with.
+     * @param compression compression of new snapshot files
+     */
+    public void setCompression(Compression compression){
+        this.compression = compression;
+        if (backend instanceof FileStorageBackend){
+            ((FileStorageBackend) backend).setCompression(compression);
+        }
+    }
+
+    /**
+     * Save all managers, in the order of, UserManager, EventContainerManager, EventManager, and TemplateManager.
+     * Mutations made since the last save are appended to the journal; the journal is only folded into the
+     * StorageBackend once it has grown larger than the saved state, and then only for managers that changed since
+     * they were last stored.
+     * Managers that are still loading may be passed as null; the snapshots are then left alone until a later save.
      * @param managers array containing the managers to be saved.
+     * @return report of the files written by this save
+     */
+    public SaveReport saveManagers(Object[] managers) {
+        SaveReport report = new SaveReport();
+        try {
+            commit(report);
+            // shards are small enough to rewrite on every save, so a sharded journal is folded in every time
+            if (isFullyLoaded(managers) && !journal.isHeld() && (shards != null || backend.storesRecords()
+                    || unjournaled || journal.length() > Math.max(MIN_COMPACTION_BYTES, backend.size()))){
+                compact(managers, report);
+            }
+        } catch (IOException e){
+            e.printStackTrace();
+        }
+        return report;
+    }
+
+    /**
+     * Append the mutations made since the last save to the journal, without rewriting any snapshot. This never reads
+     * the managers themselves, so it is safe to call from another thread while they are in use.
+     * @return report of the files written
+     * @throws IOException if the journal could not be written
+     */
+    public SaveReport commitChanges() throws IOException {
+        SaveReport report = new SaveReport();
+        commit(report);
+        return report;
+    }
+
+    /**
+     * Stop saving mutations made from now on, such as those of a trial session, until the managers are loaded
+     * again. Mutations made before this call are still saved.
+     */
+    public void holdChanges(){
+        journal.hold();
+    }
+
+    /**
+     * Resume saving every mutation, including those made since holdChanges was called.
+     */
+    public void releaseChanges(){
+        journal.release();
+    }
+
+    /**
+     * Start a copy-on-write overlay over the given managers, such as for a trial session. Mutations made from now on
+     * are made on copies of the entities they touch and are not saved, until endOverlay drops them.
+     * @param managers array of managers, in the order used by configureManagers
+     */
+    public void beginOverlay(Object[] managers){
+        journal.hold();
+        for (Object manager : managers){
+            ((JournaledManager) manager).beginOverlay();
+        }
+    }
+
+    /**
+     * Drop every mutation made since beginOverlay was called, putting back the entities they touched. Only those
+     * entities are touched, and nothing is read from or written to disk.
+     * @param managers array of managers the overlay was started over
+     */
+    public void endOverlay(Object[] managers){
+        for (Object manager : managers){
+            ((JournaledManager) manager).endOverlay();
+        }
+        journal.discardHeld();
+    }
+
+    /**
+     * Get when the oldest mutation that has not been saved yet was made.
+     * @return System.nanoTime() when the oldest unsaved mutation was made, or 0 if every mutation has been saved
      */
-    public void saveManagers(Object[] managers) {
-        saveToFile(managers[0], this.umSerPath);
-        saveToFile(managers[1], this.ecmSerPath);
-        saveToFile(managers[2], this.emSerPath);
-        saveToFile(managers[3], this.tmSerPath);
-        saveToFile(managers[4], this.mmSerPath);
+    public long getUnsavedSince(){
+        return journal.getPendingSince();
+    }
+
+    /**
+     * Run the given action each time the number of unsaved mutations reaches count. The action is run on the
+     * thread making the mutation, so it should only hand work off to another thread.
+     * @param count number of unsaved mutations that fires the action
+     * @param action action to run, or null to remove it
+     */
+    public void setSaveTrigger(int count, Runnable action){
+        journal.setCommitTrigger(count, action);
     }
 
     /**
      * Return an array of managers, in the order of, UserManager, EventContainerManager, EventManager, and TemplateManager,
-     * read from some .ser files. Constructs empty empty managers if .ser files are empty.
+     * read from their snapshot files and brought up to date by replaying the journal. A binary snapshot is preferred
+     * over a .ser file for the same manager. Constructs empty managers if snapshot files are missing or empty; a
+     * snapshot that exists but can not be read is an error, so that it is never replaced by an empty one. Any
+     * mutation that was not saved before this call is discarded. The snapshot files are read concurrently, and how
+     * long each took is available from getLastLoadReport.
      *
      * @return An array of managers in order of, UserManager, EventContainerManager, EventManager, and TemplateManager.
      * @throws ClassNotFoundException when the serialization files could not be read.
+     * @throws UncheckedIOException when a snapshot file exists but could not be read
      */
     public Object[] configureManagers() throws ClassNotFoundException{
         Object[] managers = new Object[5];
-        managers[0] = readFromFile(umSerPath);
-        managers[1] = readFromFile(ecmSerPath);
-        managers[2] = readFromFile(emSerPath);
-        managers[3] = readFromFile(tmSerPath);
-        managers[4] = readFromFile(mmSerPath);
-
-        if (managers[0] == null){
-            managers[0] = new UserManager();
-        } if (managers[1] == null) {
-            managers[1] = new EventContainerManager();
-        } if (managers[2] == null) {
-            managers[2] = new EventManager();
-        } if (managers[3] == null) {
-            TemplateManager tm = new TemplateManager();
-            managers[3] = tm;
-        }if (managers[4] == null) {
-            MessageManager mm = new MessageManager();
-            managers[4] = mm;
-        }
-        return managers;
+        try {
+            return configureManagersStaged(managers).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ClassNotFoundException){
+                throw (ClassNotFoundException) e.getCause();
+            }
+            if (e.getCause() instanceof UncheckedIOException){
+                throw (UncheckedIOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Load the managers in two stages, like configureManagers. Returns as soon as the UserManager has been loaded
+     * into the first slot of managers; the remaining slots are filled in the background.
+     *
+     * @param managers empty array of length 5 to be filled with managers in the order of configureManagers
+     * @return future completing with managers once every slot has been filled
+     * @throws ClassNotFoundException when the UserManager's save file could not be read.
+     */
+    public CompletableFuture<Object[]> configureManagersStaged(Object[] managers) throws ClassNotFoundException {
+        long start = System.nanoTime();
+        LoadReport report = new LoadReport();
+
+        journal.discard();
+        recoverJournal(report);
+        if (backend.storesRecords() && journal.length() > 0){
+            foldJournal(report);
+        }
+        if (format == SnapshotFormat.SHARDED){
+            openShards(report);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(LOAD_THREADS);
+        List<Future<JournaledManager>> loads = new ArrayList<>();
+        for (int i = 0; i < managers.length; i++){
+            final int index = i;
+            loads.add(pool.submit(() -> loadManager(index, report)));
+        }
+        pool.shutdown();
+
+        // stage one: the UserManager, which is all that logging in needs
+        Object[] userStage = new Object[managers.length];
+        try {
+            userStage[0] = awaitLoad(loads.get(0));
+        } catch (ClassNotFoundException e) {
+            pool.shutdownNow();
+            throw e;
+        }
+        replayAndAttach(userStage, report);
+        managers[0] = userStage[0];
+
+        // stage two: everything else
+        CompletableFuture<Object[]> remaining = new CompletableFuture<>();
+        Thread loader = new Thread(() -> {
+            try {
+                Object[] rest = new Object[managers.length];
+                for (int i = 1; i < managers.length; i++){
+                    rest[i] = awaitLoad(loads.get(i));
+                }
+                replayAndAttach(rest, report);
+                System.arraycopy(rest, 1, managers, 1, managers.length - 1);
+
+                report.setWallTime(System.nanoTime() - start);
+                lastLoadReport = report;
+                remaining.complete(managers);
+            } catch (Throwable e) {
+                remaining.completeExceptionally(e);
+            }
+        }, "manager-loader");
+        loader.setDaemon(true);
+        loader.start();
+        return remaining;
+    }
+
+    /**
+     * Get the timings of the last call to configureManagers.
+     * @return report of how long each snapshot file and the journal took to load
+     */
+    public LoadReport getLastLoadReport(){
+        return lastLoadReport;
     }
 
     // =============== Helper methods ================
-    private void saveToFile(Object o, String filePath) throws ClassCastException{
+
+    /**
+     * Rewrite the snapshots of the managers that changed since their last snapshot, then drop the records the
+     * snapshots contain from the journal. The snapshot in the other format is removed so that it can not shadow the
+     * new one. Mutations may be made and committed while the snapshots are written: the snapshots are read after the
+     * journal's length is taken, so they contain every record before it, and the records committed after it are kept
+     * to be replayed over them.
+     * @param managers array containing the managers to be saved.
+     * @param report report to record the written files in
+     * @throws IOException if a snapshot could not be written or the journal could not be emptied
+     */
+    private synchronized void compact(Object[] managers, SaveReport report) throws IOException {
+        long covered = journal.length();
+        if (shards != null){
+            shards.flush(report);
+        }
+
+        Object[] stored = new Object[managers.length];
+        boolean[] changed = new boolean[managers.length];
+        long[] versions = new long[managers.length];
+        for (int i = 0; i < managers.length; i++){
+            if (i == 2 && eventStore != null){
+                continue;
+            }
+            if (i <= 2 && shards != null){
+                backend.discard(i);
+                continue;
+            }
+            stored[i] = managers[i];
+            versions[i] = ((JournaledManager) managers[i]).getVersion();
+            changed[i] = versions[i] != snapshotVersions[i];
+        }
+        unjournaled = false;
         try {
-            OutputStream file = new FileOutputStream(filePath);
-            OutputStream buffer = new BufferedOutputStream(file);
-            ObjectOutput output = new ObjectOutputStream(buffer);
-
-            // Serialize the object
-            output.writeObject(o);
-            output.close();
-            file.close();
-        } catch (IOException e){
-            e.printStackTrace();
+            backend.store(stored, changed, journal, covered, report);
+        } catch (IOException e) {
+            unjournaled = true;
+            throw e;
+        }
+        for (int i = 0; i < managers.length; i++){
+            if (stored[i] != null){
+                snapshotVersions[i] = versions[i];
+            }
+        }
+        journal.drop(covered);
+
+        if (shards != null){
+            shards.evictIdle(SHARD_IDLE_MILLIS);
+        }
+    }
+
+    private boolean isFullyLoaded(Object[] managers){
+        for (Object manager : managers){
+            if (manager == null){
+                return false;
+            }
         }
+        return true;
     }
 
     /**
-     *
-     * @param path path of the file to be read
-     * @return object that deserialized from the file, or null if file is empty or there is IOException caught
-     * @throws ClassNotFoundException
+     * Load a single manager from its snapshot, or construct an empty one if it has no snapshot. Managers backed by
+     * the ShardStore start out empty.
+     * @param index index of the manager in the managers array
+     * @param report report to record the load time in
+     * @return the loaded manager
+     * @throws ClassNotFoundException if the snapshot could not be read
+     * @throws IOException if the snapshot exists but could not be read
      */
-    private Object readFromFile(String path) throws ClassNotFoundException {
+    private JournaledManager loadManager(int index, LoadReport report) throws ClassNotFoundException, IOException {
+        long start = System.nanoTime();
+
+        if (shards != null && index <= 2 && shards.getManager(index) != null){
+            // filled from the shards as users are needed
+            return shards.getManager(index);
+        }
+        if (index == 2 && eventStorePath != null){
+            JournaledManager manager = openEventStore();
+            if (manager != null){
+                report.addStep(eventStorePath, System.nanoTime() - start);
+                return manager;
+            }
+        }
+
+        JournaledManager manager;
         try {
-            BufferedReader br = new BufferedReader(new FileReader(path));
-            File file1 = new File(path);
-            if (br.readLine() == null && file1.length() == 0) {
-                return null;
+            manager = backend.read(index);
+        } catch (IOException e) {
+            // an empty manager in its place would overwrite the snapshot at the next compaction
+            throw new IOException("the " + MANAGER_NAMES[index] + " snapshot could not be read", e);
+        }
+        if (manager == null){
+            manager = newManager(index);
+        }
+        report.addStep(MANAGER_NAMES[index], System.nanoTime() - start);
+        return manager;
+    }
+
+    /**
+     * Replay the journal into the non-null managers of the given array, then start recording their mutations.
+     * @param managers array of managers, with null in the slots that are not loaded yet
+     * @param report report to record the replay time in
+     * @throws ClassNotFoundException if a journal record could not be read
+     */
+    private void replayAndAttach(Object[] managers, LoadReport report) throws ClassNotFoundException {
+        long start = System.nanoTime();
+        Object storedEvents = null;
+        if (eventStore != null && !migratingEvents && managers[2] != null){
+            // the event store is already up to date, so journaled events must not be appended to it again
+            storedEvents = managers[2];
+            managers[2] = null;
+        }
+
+        int[] replayed;
+        try {
+            replayed = journal.replay(managers, report);
+        } catch (IOException e) {
+            // starting without the journaled changes would drop them at the next compaction
+            throw new UncheckedIOException(e);
+        }
+        report.addStep(journalPath + (managers[0] != null ? " (users)" : " (others)"), System.nanoTime() - start);
+
+        if (storedEvents != null){
+            managers[2] = storedEvents;
+        }
+        else if (eventStore != null && migratingEvents && managers[2] != null){
+            EventManager stored = new EventManager(eventStore);
+            for (Map.Entry<?, ?> entry : ((EventManager) managers[2]).getEntries().entrySet()){
+                stored.replayPut(entry.getKey(), entry.getValue());
             }
+            managers[2] = stored;
+            migratingEvents = false;
+        }
 
-            InputStream file = new FileInputStream(path);
-            InputStream buffer = new BufferedInputStream(file);
-            ObjectInput input = new ObjectInputStream(buffer);
+        if (messageBodyPath != null && managers[4] != null){
+            openMessageBodies((MessageManager) managers[4]);
+        }
 
-            // Deserialize the object
-            return input.readObject();
+        for (int i = 0; i < managers.length; i++){
+            if (i == 2 && eventStore != null){
+                // the event store persists its own changes
+                continue;
+            }
+            if (managers[i] != null){
+                JournaledManager manager = (JournaledManager) managers[i];
+                MutationListener listener = journal.listenerFor(i);
+                if (shards != null && i <= 2){
+                    listener = shards.attach(i, manager, listener);
+                    if (replayed[i] > 0 || !shards.hasIndex()){
+                        // the journal or the old snapshots hold changes the shards have not seen
+                        shards.markAllDirty();
+                    }
+                }
+                manager.setMutationListener(listener);
+                // a manager with journaled changes is newer than its snapshot
+                snapshotVersions[i] = replayed[i] > 0 ? -1 : manager.getVersion();
+            }
+        }
+    }
+
+    /**
+     * Cut off a record left partly written at the end of the journal by a crash, so that new records are not appended
+     * after it.
+     * @param report report to record the bytes cut off in
+     */
+    private void recoverJournal(LoadReport report){
+        try {
+            long dropped = journal.recover();
+            if (dropped > 0){
+                report.addError(journalPath + ": cut off " + dropped + " bytes of a record cut short by a crash");
+            }
         } catch (IOException e) {
-            // file can't be read
-            return null;
+            // appending to a journal that ends with a torn record would lose everything appended
+            throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Fold the journal left by a crash into a backend that stores records, so that the managers it reads lazily are
+     * up to date.
+     * @param report report to record the time taken in
+     */
+    private void foldJournal(LoadReport report){
+        long start = System.nanoTime();
+        try {
+            long end = journal.length();
+            backend.store(new Object[5], new boolean[5], journal, end, new SaveReport());
+            journal.drop(end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        report.addStep(journalPath, System.nanoTime() - start);
+    }
+
+    /**
+     * Open the ShardStore and read its index. If the index exists, the shard-backed managers are created empty, to be
+     * filled as users are needed; otherwise UserManager, EventContainerManager and EventManager are read from their
+     * old snapshots and moved into shards on the next save. If the journal holds unsaved changes, the shards of the
+     * users and creations they change are loaded, so that they can be replayed.
+     * @param report report to record the index read time in
+     */
+    private void openShards(LoadReport report){
+        long start = System.nanoTime();
+        shards = new ShardStore(shardDirectory, eventStorePath == null, compression);
+        try {
+            shards.readIndex();
+        } catch (IOException e) {
+            // a missing index would make every stored user look new
+            throw new UncheckedIOException(e);
+        }
+
+        if (shards.hasIndex()){
+            for (int i = 0; i <= 2; i++){
+                if (i != 2 || eventStorePath == null){
+                    shards.setManager(i, newManager(i));
+                }
+            }
+            try {
+                // only the shards the journal changes have to be in memory to replay it
+                shards.loadTouched(journal.readKeys(0), journal.readKeys(1));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        report.addStep(shardDirectory, System.nanoTime() - start);
+    }
+
+    /**
+     * Open the event store, closing any store opened by an earlier load.
+     * @return EventManager backed by the store, or null if the store is new and the events still have to be loaded
+     * from EventManager's snapshot and copied into it
+     * @throws IOException if the store could not be opened
+     */
+    private JournaledManager openEventStore() throws IOException {
+        if (eventStore != null){
+            eventStore.close();
+        }
+
+        boolean existed = new File(eventStorePath).exists();
+        eventStore = new MappedEventStore(eventStorePath);
+        migratingEvents = !existed;
+        return existed ? new EventManager(eventStore) : null;
+    }
+
+    private void commit(SaveReport report) throws IOException {
+        long start = System.nanoTime();
+        if (journal.commit() > 0){
+            report.addWrite(journalPath, System.nanoTime() - start);
+        }
+        for (String failure : journal.takeFailures()){
+            report.addError("not journaled, saved with the next snapshot: " + failure);
+            unjournaled = true;
+        }
+        if (eventStore != null){
+            start = System.nanoTime();
+            eventStore.force();
+            report.addWrite(eventStorePath, System.nanoTime() - start);
+        }
+        if (messageBodies != null){
+            start = System.nanoTime();
+            messageBodies.force();
+            report.addWrite(messageBodyPath, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Open the message body store, closing any store opened by an earlier load, and move the bodies of the given
+     * MessageManager into it.
+     * @param mm MessageManager to keep its bodies in the store
+     */
+    private void openMessageBodies(MessageManager mm){
+        try {
+            if (messageBodies != null){
+                messageBodies.close();
+            }
+            messageBodies = new PagedMessageBodyStore(messageBodyPath, MESSAGE_BODY_CACHE_SIZE);
+            mm.setBodyStore(messageBodies);
+        } catch (IOException e) {
+            // keep the bodies on the heap
+            messageBodies = null;
+            e.printStackTrace();
+        }
+    }
+
+    private JournaledManager awaitLoad(Future<JournaledManager> load) throws ClassNotFoundException {
+        try {
+            return load.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ClassNotFoundException){
+                throw (ClassNotFoundException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException){
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Construct an empty manager.
+     * @param index index of the manager in the managers array
+     * @return the manager
+     */
+    public static JournaledManager newManager(int index){
+        switch (index){
+            case 0:
+                return new UserManager();
+            case 1:
+                return new EventContainerManager();
+            case 2:
+                return new EventManager();
+            case 3:
+                return new TemplateManager();
+            default:
+                return new MessageManager();
+        }
+    }
 }
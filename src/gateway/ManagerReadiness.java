@@ -0,0 +1,37 @@
+package gateway;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Tracks whether the managers a CILoadable depends on have been loaded, so that calls made while they are still
+ * loading in the background can wait for them.
+ */
+public class ManagerReadiness {
+
+    private volatile Future<?> ready = CompletableFuture.completedFuture(null);
+
+    /**
+     * Set the future that completes once the managers have been loaded.
+     * @param ready future completing once load has been called with every manager
+     */
+    public void set(Future<?> ready){
+        this.ready = ready;
+    }
+
+    /**
+     * Block until the managers have been loaded.
+     * @throws IllegalStateException if the managers could not be loaded
+     */
+    public void await(){
+        try {
+            ready.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Save files could not be loaded", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for save files to load", e);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package gateway;
+
+import entities.creation.Event;
+import use_case.EventStore;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An EventStore keeping events in an append-only, memory-mapped file instead of on the heap. Only a UUID to offset
+ * index is kept in memory; events are decoded from the file each time they are requested.
+ *
+ * Each record in the file is an op byte, the event's UUID as two longs, the payload length as an int, and for puts
+ * the event encoded with EntityCodec. The latest record for a UUID wins.
+ */
+public class MappedEventStore implements EventStore, Closeable {
+
+    private static final byte REMOVE = 0;
+    private static final byte PUT = 1;
+    private static final int HEADER_LENGTH = 1 + 16 + 4;
+    // a single mapping can not exceed 2 GB, so the file is mapped in segments of this size
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final UUIDOffsetIndex index = new UUIDOffsetIndex();
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final EntityCodec codec = new EntityCodec();
+    private long mappedLength;
+    private long length;
+
+    /**
+     * Opens the MappedEventStore at the given path, creating the file if it does not exist, and rebuilds the index
+     * by scanning the record headers. A record cut short by a crash is dropped.
+     * @param path path of the event file
+     * @throws IOException if the file could not be opened or read
+     */
+    public MappedEventStore(String path) throws IOException {
+        channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        length = channel.size();
+        scan();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void put(Event event) {
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            CodecOutput output = new CodecOutput(payload);
+            codec.write(output, event);
+            output.flush();
+
+            long offset = append(PUT, event.getEventID(), payload.toByteArray());
+            index.put(event.getEventID(), offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Event get(UUID eventID) {
+        long offset = index.get(eventID);
+        if (offset < 0){
+            return null;
+        }
+
+        try {
+            byte[] header = new byte[HEADER_LENGTH];
+            read(offset, header);
+            byte[] payload = new byte[ByteBuffer.wrap(header).getInt(17)];
+            read(offset + HEADER_LENGTH, payload);
+            return (Event) codec.read(new CodecInput(new ByteArrayInputStream(payload)));
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Event " + eventID + " could not be read", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void remove(UUID eventID) {
+        if (index.get(eventID) < 0){
+            return;
+        }
+
+        try {
+            append(REMOVE, eventID, new byte[0]);
+            index.remove(eventID);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Map<UUID, Event> getAll() {
+        Map<UUID, Event> res = new HashMap<>();
+        for (UUID eventID : index.keys()){
+            res.put(eventID, get(eventID));
+        }
+        return res;
+    }
+
+    /**
+     * Get the number of events in this store.
+     * @return number of events
+     */
+    public synchronized int size(){
+        return index.size();
+    }
+
+    /**
+     * Force every appended record to disk.
+     * @throws IOException if the file could not be forced
+     */
+    public synchronized void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Close the event file. The store can not be used afterwards.
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+        segments.clear();
+    }
+
+    // =============== Helper methods ================
+    private void scan() throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        long offset = 0;
+
+        while (offset + HEADER_LENGTH <= length){
+            read(offset, header);
+            ByteBuffer fields = ByteBuffer.wrap(header);
+            byte op = fields.get();
+            UUID eventID = new UUID(fields.getLong(), fields.getLong());
+            int payloadLength = fields.getInt();
+
+            if (payloadLength < 0 || offset + HEADER_LENGTH + payloadLength > length){
+                break;
+            }
+
+            if (op == PUT){
+                index.put(eventID, offset);
+            }
+            else {
+                index.remove(eventID);
+            }
+            offset += HEADER_LENGTH + payloadLength;
+        }
+
+        if (offset < length){
+            channel.truncate(offset);
+            length = offset;
+            segments.clear();
+            mappedLength = 0;
+        }
+    }
+
+    private long append(byte op, UUID eventID, byte[] payload) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_LENGTH + payload.length);
+        record.put(op);
+        record.putLong(eventID.getMostSignificantBits());
+        record.putLong(eventID.getLeastSignificantBits());
+        record.putInt(payload.length);
+        record.put(payload);
+        record.flip();
+
+        long offset = length;
+        while (record.hasRemaining()){
+            channel.write(record, length + record.position());
+        }
+        length += record.limit();
+        return offset;
+    }
+
+    private void read(long offset, byte[] dst) throws IOException {
+        if (offset + dst.length > mappedLength){
+            remap();
+        }
+
+        int copied = 0;
+        while (copied < dst.length){
+            long position = offset + copied;
+            ByteBuffer segment = segments.get((int) (position / SEGMENT_SIZE)).duplicate();
+            segment.position((int) (position % SEGMENT_SIZE));
+
+            int n = Math.min(dst.length - copied, segment.remaining());
+            segment.get(dst, copied, n);
+            copied += n;
+        }
+    }
+
+    private void remap() throws IOException {
+        // the last segment may only cover part of its range; map it again now that the file is longer
+        if (!segments.isEmpty() && segments.get(segments.size() - 1).capacity() < SEGMENT_SIZE){
+            segments.remove(segments.size() - 1);
+        }
+
+        long start = segments.size() * SEGMENT_SIZE;
+        while (start < length){
+            long size = Math.min(SEGMENT_SIZE, length - start);
+            segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start, size));
+            start += size;
+        }
+        mappedLength = length;
+    }
+}
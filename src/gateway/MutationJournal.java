@@ -0,0 +1,500 @@
+package gateway;
+
+import use_case.JournaledManager;
+import use_case.MutationListener;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Append-only journal of mutations made to the managers. Each mutation is encoded as a compact record when it happens,
+ * kept pending until the next commit, and then appended to the journal file. Replaying the journal over the last
+ * snapshot of the managers rebuilds their current state.
+ *
+ * Since each record is encoded when the mutation happens, the pending records are a point-in-time copy of the changes
+ * made since the last commit. Committing only swaps them out while holding the journal's lock, so the managers can
+ * keep being mutated while the records are written.
+ *
+ * Each commit is forced to disk before it returns. A crash in the middle of a commit can leave a record cut short at
+ * the end of the file, which recover cuts off before anything new is appended.
+ *
+ * Once a snapshot is written, only the records committed before it was started are dropped, so that records committed
+ * by another thread while it is written are kept. Each record holds the whole entity, so replaying a record that the
+ * snapshot already contains only puts back the same entity.
+ */
+public class MutationJournal {
+
+    private static final byte PUT = 0;
+    private static final byte REMOVE = 1;
+
+    private final String path;
+    private final EntityCodec codec = new EntityCodec();
+    // taken for the whole of a commit, replay or reset, so that records reach the file in the order they were made
+    private final Object fileLock = new Object();
+    private List<byte[]> pending = new ArrayList<>();
+    // number of pending records that may still be committed while the journal is held, or -1 if it is not held
+    private int committable = -1;
+    // System.nanoTime() when the oldest pending record was made
+    private long pendingSince;
+    // incremented by discard, so that a failed commit does not restore records that were discarded meanwhile
+    private int generation;
+    private int triggerCount;
+    private Runnable trigger;
+    // mutations that could not be encoded since failures were last taken, which only a snapshot can save
+    private List<String> failures = new ArrayList<>();
+
+    /**
+     * Initializes a MutationJournal stored at the given path.
+     * @param path path of the journal file
+     */
+    public MutationJournal(String path){
+        this.path = path;
+    }
+
+    /**
+     * Get a listener that records the mutations of the manager at the given index into this journal.
+     * @param managerIndex index of the manager in the managers array
+     * @return listener recording the mutations of that manager
+     */
+    public MutationListener listenerFor(int managerIndex){
+        return new MutationListener() {
+            @Override
+            public void onPut(Object key, Object value) {
+                record(managerIndex, PUT, key, value);
+            }
+
+            @Override
+            public void onRemove(Object key) {
+                record(managerIndex, REMOVE, key, null);
+            }
+        };
+    }
+
+    /**
+     * Append all pending records to the journal file, except those made since the journal was held. Mutations made
+     * while the records are being written are kept pending for the next commit.
+     * @return number of records appended
+     * @throws IOException if the journal file could not be written
+     */
+    public int commit() throws IOException {
+        synchronized (fileLock){
+            List<byte[]> batch;
+            int batchGeneration;
+            synchronized (this){
+                int count = committable < 0 ? pending.size() : committable;
+                if (count == 0){
+                    return 0;
+                }
+                if (count == pending.size()){
+                    batch = pending;
+                    pending = new ArrayList<>();
+                }
+                else {
+                    batch = new ArrayList<>(pending.subList(0, count));
+                    pending.subList(0, count).clear();
+                    pendingSince = System.nanoTime();
+                }
+                if (committable > 0){
+                    committable = 0;
+                }
+                batchGeneration = generation;
+            }
+
+            try (FileOutputStream file = new FileOutputStream(path, true)) {
+                long start = file.getChannel().size();
+                try {
+                    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file));
+                    for (byte[] record : batch){
+                        output.writeInt(record.length);
+                        output.write(record);
+                    }
+                    output.flush();
+                    file.getChannel().force(true);
+                } catch (IOException e) {
+                    // cut off the part of the batch that was written, so that the retried records follow a whole one
+                    try {
+                        file.getChannel().truncate(start);
+                    } catch (IOException truncateFailure) {
+                        e.addSuppressed(truncateFailure);
+                    }
+                    throw e;
+                }
+            } catch (IOException e) {
+                restore(batch, batchGeneration);
+                throw e;
+            }
+            return batch.size();
+        }
+    }
+
+    /**
+     * Drop all records that have not been committed yet, and release the journal if it was held.
+     */
+    public synchronized void discard(){
+        pending.clear();
+        committable = -1;
+        generation++;
+    }
+
+    /**
+     * Drop the records made since the journal was held, and release it. Records made before it was held are kept
+     * pending. Does nothing if the journal is not held.
+     */
+    public synchronized void discardHeld(){
+        if (committable < 0){
+            return;
+        }
+        pending.subList(committable, pending.size()).clear();
+        committable = -1;
+    }
+
+    /**
+     * Hold the journal: records made from now on are kept pending and never committed, until they are dropped by
+     * discard or discardHeld. Records made before this call can still be committed.
+     */
+    public synchronized void hold(){
+        if (committable < 0){
+            committable = pending.size();
+        }
+    }
+
+    /**
+     * Release the journal, so that every pending record can be committed again.
+     */
+    public synchronized void release(){
+        committable = -1;
+    }
+
+    /**
+     * Whether the journal is held.
+     * @return true if records are being held back from commits
+     */
+    public synchronized boolean isHeld(){
+        return committable >= 0;
+    }
+
+    /**
+     * Get when the oldest pending record was made.
+     * @return System.nanoTime() when the oldest pending record was made, or 0 if no record is pending
+     */
+    public synchronized long getPendingSince(){
+        return pending.isEmpty() ? 0 : pendingSince;
+    }
+
+    /**
+     * Run the given trigger each time the number of records that can be committed reaches count. The trigger is
+     * run on the thread making the mutation, while the journal is locked, so it should only hand work off.
+     * @param count number of committable records that fires the trigger
+     * @param trigger action to run, or null to remove the trigger
+     */
+    public synchronized void setCommitTrigger(int count, Runnable trigger){
+        this.triggerCount = count;
+        this.trigger = trigger;
+    }
+
+    /**
+     * Get the mutations that could not be encoded since this was last called, and forget them. Those mutations are
+     * not in the journal, so they are only saved by the next snapshot.
+     * @return descriptions of the mutations that could not be recorded
+     */
+    public synchronized List<String> takeFailures(){
+        List<String> res = failures;
+        failures = new ArrayList<>();
+        return res;
+    }
+
+    /**
+     * Cut off a record left partly written at the end of the journal file by a crash, so that records committed from
+     * now on follow the last whole record instead of being read as part of the torn one. The bytes cut off are
+     * appended to a file next to the journal rather than thrown away. Must be called before anything is committed
+     * after a restart.
+     * @return number of bytes cut off, or 0 if the journal ends with a whole record
+     * @throws IOException if the journal could not be read or truncated
+     */
+    public long recover() throws IOException {
+        synchronized (fileLock){
+            File file = new File(path);
+            if (!file.exists()){
+                return 0;
+            }
+
+            long end = file.length();
+            long whole = 0;
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (end - whole >= 4){
+                    int length = input.readInt();
+                    if (length < 2 || length > end - whole - 4){
+                        break;
+                    }
+                    skipFully(input, length);
+                    whole += 4 + length;
+                }
+            }
+            if (whole == end){
+                return 0;
+            }
+
+            try (RandomAccessFile journalFile = new RandomAccessFile(file, "rw");
+                 FileOutputStream torn = new FileOutputStream(path + ".torn", true)) {
+                journalFile.getChannel().transferTo(whole, end - whole, torn.getChannel());
+                torn.getChannel().force(true);
+                journalFile.setLength(whole);
+                journalFile.getChannel().force(true);
+            }
+            return end - whole;
+        }
+    }
+
+    /**
+     * Apply every committed record in the journal file to the given managers, in the order they were recorded.
+     * A record cut short by a crash ends the replay. Records for managers that are null in the array are skipped, and
+     * so are records whose entity could not be decoded, which are counted in the report.
+     * @param managers array of managers, in the order used by ManagerGateway
+     * @param report report to record the records that could not be decoded in
+     * @return number of records replayed into each manager, indexed like managers
+     * @throws IOException if the journal file could not be read
+     * @throws ClassNotFoundException if a record contains an entity that could not be read
+     */
+    public int[] replay(Object[] managers, LoadReport report) throws IOException, ClassNotFoundException {
+        synchronized (fileLock){
+            return replayFile(managers, report);
+        }
+    }
+
+    /**
+     * Visit the committed records in the journal file before the given offset, in the order they were recorded. A
+     * record cut short by a crash ends the visit.
+     * @param end offset in the journal file to stop at, as returned by length
+     * @param visitor visitor called with each record
+     * @throws IOException if the journal could not be read, or the visitor failed
+     * @throws ClassNotFoundException if a record contains an entity that could not be read
+     */
+    public void read(long end, RecordVisitor visitor) throws IOException, ClassNotFoundException {
+        synchronized (fileLock){
+            File file = new File(path);
+            if (!file.exists()){
+                return;
+            }
+
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                long offset = 0;
+                while (offset < end){
+                    byte[] record;
+                    try {
+                        record = new byte[input.readInt()];
+                        input.readFully(record);
+                    } catch (EOFException e) {
+                        // reached the end of the journal, or a record that was only partly written
+                        return;
+                    }
+                    offset += 4 + record.length;
+
+                    CodecInput decoder = new CodecInput(new ByteArrayInputStream(record, 2, record.length - 2));
+                    Object key = codec.read(decoder);
+                    Object value = record[1] == PUT ? codec.read(decoder) : null;
+                    visitor.visit(record[0], record[1] == PUT, key, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the keys of the committed records of one manager, without decoding their entities, such as to find which
+     * stored data a replay will change before replaying it.
+     * @param managerIndex index of the manager, as in the managers passed to replay
+     * @return keys of the manager's records
+     * @throws IOException if the journal file could not be read, or a key could not be decoded
+     */
+    public Set<Object> readKeys(int managerIndex) throws IOException {
+        Set<Object> keys = new HashSet<>();
+        synchronized (fileLock){
+            File file = new File(path);
+            if (!file.exists()){
+                return keys;
+            }
+
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (true){
+                    byte[] record;
+                    try {
+                        record = new byte[input.readInt()];
+                        input.readFully(record);
+                    } catch (EOFException e) {
+                        return keys;
+                    }
+                    if (record[0] == managerIndex){
+                        keys.add(codec.read(new CodecInput(new ByteArrayInputStream(record, 2, record.length - 2))));
+                    }
+                }
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown key type in journal " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Get the size of the committed journal. Since commits hold the journal's lock, this always ends with a whole
+     * record, so it can be passed to read and drop.
+     * @return size of the journal file in bytes
+     */
+    public long length(){
+        synchronized (fileLock){
+            return new File(path).length();
+        }
+    }
+
+    /**
+     * Remove the records before the given offset from the journal file. Called once a snapshot containing every
+     * record before the offset has been written; the records committed after the offset are kept.
+     * @param end offset in the journal file, as returned by length before the snapshot was started
+     * @throws IOException if the journal file could not be rewritten
+     */
+    public void drop(long end) throws IOException {
+        synchronized (fileLock){
+            File file = new File(path);
+            long length = file.length();
+            if (end >= length){
+                new FileOutputStream(path).close();
+                return;
+            }
+            if (end <= 0){
+                return;
+            }
+
+            File temp = new File(path + ".tmp");
+            try (FileInputStream input = new FileInputStream(file);
+                 FileOutputStream output = new FileOutputStream(temp)) {
+                long position = end;
+                while (position < length){
+                    position += input.getChannel().transferTo(position, length - position, output.getChannel());
+                }
+                output.getChannel().force(true);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // =============== Helper methods ================
+    private int[] replayFile(Object[] managers, LoadReport report) throws IOException, ClassNotFoundException {
+        int[] replayed = new int[managers.length];
+        File file = new File(path);
+        if (!file.exists()){
+            return replayed;
+        }
+
+        int skipped = 0;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true){
+                byte[] record;
+                try {
+                    int length = input.readInt();
+                    if (length < 2){
+                        break;
+                    }
+                    record = new byte[length];
+                    input.readFully(record);
+                } catch (EOFException e) {
+                    // reached the end of the journal, or a record that was only partly written
+                    break;
+                }
+
+                if (managers[record[0]] != null){
+                    try {
+                        apply(record, managers);
+                        replayed[record[0]]++;
+                    } catch (IOException e) {
+                        // every record has its own length, so the records after it can still be read
+                        skipped++;
+                    }
+                }
+            }
+        }
+        if (skipped > 0){
+            report.addError(path + ": skipped " + skipped + " records that could not be decoded");
+        }
+        return replayed;
+    }
+
+    private static void skipFully(DataInputStream input, int length) throws IOException {
+        int left = length;
+        while (left > 0){
+            int skipped = input.skipBytes(left);
+            if (skipped <= 0){
+                throw new EOFException();
+            }
+            left -= skipped;
+        }
+    }
+
+    private synchronized void record(int managerIndex, byte op, Object key, Object value){
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write(managerIndex);
+            bytes.write(op);
+
+            CodecOutput output = new CodecOutput(bytes);
+            codec.write(output, key);
+            if (op == PUT){
+                codec.write(output, value);
+            }
+            output.flush();
+            if (pending.isEmpty()){
+                pendingSince = System.nanoTime();
+            }
+            pending.add(bytes.toByteArray());
+
+            if (trigger != null && committable < 0 && pending.size() == triggerCount){
+                trigger.run();
+            }
+        } catch (IOException e) {
+            failures.add("manager " + managerIndex + ", " + key + ": " + e);
+        }
+    }
+
+    private synchronized void restore(List<byte[]> batch, int batchGeneration){
+        if (batchGeneration != generation){
+            return;
+        }
+        pending.addAll(0, batch);
+        pendingSince = System.nanoTime();
+        if (committable >= 0){
+            committable += batch.size();
+        }
+    }
+
+    private void apply(byte[] record, Object[] managers) throws IOException, ClassNotFoundException {
+        JournaledManager manager = (JournaledManager) managers[record[0]];
+        byte op = record[1];
+
+        CodecInput input = new CodecInput(new ByteArrayInputStream(record, 2, record.length - 2));
+        Object key = codec.read(input);
+        if (op == PUT){
+            manager.replayPut(key, codec.read(input));
+        }
+        else {
+            manager.replayRemove(key);
+        }
+    }
+
+    /**
+     * Visitor of the records in a journal.
+     */
+    public interface RecordVisitor {
+
+        /**
+         * Visit a record.
+         * @param managerIndex index of the manager the mutation was made to
+         * @param put true if the entity was added or modified, false if it was removed
+         * @param key key of the entity
+         * @param value the entity after the mutation, or null if it was removed
+         * @throws IOException if the record could not be handled
+         */
+        void visit(int managerIndex, boolean put, Object key, Object value) throws IOException;
+    }
+}
@@ -0,0 +1,142 @@
+package gateway;
+
+import use_case.MessageBodyStore;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A MessageBodyStore keeping message bodies in an append-only file. Bodies are read from disk when a message is
+ * opened, and the most recently opened ones are kept in a bounded LRU cache.
+ *
+ * Each record in the file is the message's UUID as two longs, the body length as an int, and the body in UTF-8.
+ */
+public class PagedMessageBodyStore implements MessageBodyStore, Closeable {
+
+    private static final int HEADER_LENGTH = 16 + 4;
+
+    private final RandomAccessFile file;
+    private final UUIDOffsetIndex index = new UUIDOffsetIndex();
+    private final Map<UUID, String> cache;
+
+    /**
+     * Opens the PagedMessageBodyStore at the given path, creating the file if it does not exist, and rebuilds the
+     * index by scanning the record headers. A record cut short by a crash is dropped.
+     * @param path path of the body file
+     * @param cacheSize number of recently opened bodies kept in memory
+     * @throws IOException if the file could not be opened or read
+     */
+    public PagedMessageBodyStore(String path, int cacheSize) throws IOException {
+        file = new RandomAccessFile(path, "rw");
+        cache = new LinkedHashMap<UUID, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        scan();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void putBody(UUID messageID, String body) {
+        try {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            long offset = file.length();
+
+            file.seek(offset);
+            file.writeLong(messageID.getMostSignificantBits());
+            file.writeLong(messageID.getLeastSignificantBits());
+            file.writeInt(bytes.length);
+            file.write(bytes);
+
+            index.put(messageID, offset);
+            cache.remove(messageID);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String getBody(UUID messageID) {
+        String cached = cache.get(messageID);
+        if (cached != null){
+            return cached;
+        }
+
+        long offset = index.get(messageID);
+        if (offset < 0){
+            return null;
+        }
+
+        try {
+            file.seek(offset + 16);
+            byte[] bytes = new byte[file.readInt()];
+            file.readFully(bytes);
+
+            String body = new String(bytes, StandardCharsets.UTF_8);
+            cache.put(messageID, body);
+            return body;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean hasBody(UUID messageID) {
+        return index.get(messageID) >= 0;
+    }
+
+    /**
+     * Force every appended body to disk.
+     * @throws IOException if the file could not be forced
+     */
+    public synchronized void force() throws IOException {
+        file.getFD().sync();
+    }
+
+    /**
+     * Close the body file. The store can not be used afterwards.
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+        cache.clear();
+    }
+
+    // =============== Helper methods ================
+    private void scan() throws IOException {
+        long length = file.length();
+        long offset = 0;
+
+        while (offset + HEADER_LENGTH <= length){
+            file.seek(offset);
+            UUID messageID = new UUID(file.readLong(), file.readLong());
+            int bodyLength = file.readInt();
+
+            if (bodyLength < 0 || offset + HEADER_LENGTH + bodyLength > length){
+                break;
+            }
+            index.put(messageID, offset);
+            offset += HEADER_LENGTH + bodyLength;
+        }
+
+        if (offset < length){
+            file.setLength(offset);
+        }
+    }
+}
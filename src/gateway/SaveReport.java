@@ -0,0 +1,87 @@
+package gateway;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record of the files written by one save, and how long each write took.
+ */
+public class SaveReport {
+
+    private final Map<String, Long> writes = new LinkedHashMap<>();
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * Record that a file was written.
+     * @param path path of the file written
+     * @param nanos time taken to write the file, in nanoseconds
+     */
+    void addWrite(String path, long nanos){
+        writes.put(path, nanos);
+    }
+
+    /**
+     * Record a problem met during the save that did not stop it, such as data that had to be skipped.
+     * @param error description of the problem
+     */
+    void addError(String error){
+        errors.add(error);
+    }
+
+    /**
+     * Get the problems met during the save that did not stop it.
+     * @return array of descriptions, empty if there was none
+     */
+    public String[] getErrors(){
+        return errors.toArray(new String[0]);
+    }
+
+    /**
+     * Get the paths of the files written by this save, in the order they were written.
+     * @return array of file paths
+     */
+    public String[] getWrittenFiles(){
+        return writes.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * Get how long it took to write a file.
+     * @param path path of the file
+     * @return time taken in milliseconds, or 0 if the file was not written by this save
+     */
+    public long getWriteMillis(String path){
+        Long nanos = writes.get(path);
+        return nanos == null ? 0 : nanos / 1000000;
+    }
+
+    /**
+     * Get how long the whole save took.
+     * @return total time spent writing files, in milliseconds
+     */
+    public long getTotalMillis(){
+        long total = 0;
+        for (long nanos : writes.values()){
+            total += nanos;
+        }
+        return total / 1000000;
+    }
+
+    /**
+     * Return a string representation of this SaveReport.
+     * @return one line per file written, followed by the total
+     */
+    @Override
+    public String toString(){
+        StringBuilder res = new StringBuilder();
+        for (String path : writes.keySet()){
+            res.append(path).append(": ").append(getWriteMillis(path)).append(" ms\n");
+        }
+        for (String error : errors){
+            res.append("error: ").append(error).append('\n');
+        }
+        res.append("total: ").append(getTotalMillis()).append(" ms");
+        return res.toString();
+    }
+}
@@ -0,0 +1,892 @@
+package gateway;
+
+import entities.creation.EventContainer;
+import entities.creation.Event;
+import entities.user.CreationUser;
+import entities.user.LogInable;
+import entities.user.User;
+import use_case.ContainerOrder;
+import use_case.EventContainerManager;
+import use_case.JournaledManager;
+import use_case.MutationListener;
+import use_case.ShardSource;
+import use_case.SortedIndex;
+import use_case.StripedLock;
+import use_case.UserManager;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Storage of users, EventContainers and events partitioned by owner. Each user is stored in a separate shard file
+ * holding their user record, the EventContainers they own and the events in them, and an index file maps every
+ * stored user's username, email and creations to their shard. The index also holds the name, type, creation time
+ * and privacy of every stored EventContainer, so that they can be browsed in order without loading their shards.
+ * Only the index is read on startup; a shard is loaded into the managers when its user is first needed, and evicted
+ * again once it has been idle for a while.
+ *
+ * Mutations are tracked per owner, so that a save only rewrites the shards of the users that changed.
+ */
+public class ShardStore implements ShardSource {
+
+    private static final String INDEX_FILE = "index.bin";
+    private static final String SHARD_SUFFIX = ".shard";
+    // starts an index holding the EventContainers of each user, where older indexes start with the number of users
+    private static final int CONTAINER_INDEX = -1;
+
+    private final File directory;
+    private final boolean withEvents;
+    private final Compression compression;
+    private final EntityCodec codec = new EntityCodec();
+    // UserManager, EventContainerManager and EventManager, in the order used by ManagerGateway
+    private final JournaledManager[] managers = new JournaledManager[3];
+
+    private final Map<UUID, IndexEntry> index = new HashMap<>();
+    // sorted, so that usernames can also be looked up by prefix
+    private final NavigableMap<String, UUID> byUsername = new TreeMap<>();
+    private final Map<String, UUID> byEmail = new HashMap<>();
+    private final Map<UUID, UUID> ownerByCreation = new HashMap<>();
+    private final Map<UUID, StoredContainer> containersByID = new HashMap<>();
+    private final Map<ContainerOrder, SortedIndex> storedOrders = new EnumMap<>(ContainerOrder.class);
+
+    // users whose shard is in memory, and when it was last loaded or written
+    private final Map<UUID, Long> lastAccess = new HashMap<>();
+    // when users and creations in memory were last read, updated without holding the store's lock
+    private final Map<UUID, Long> lastRead = new ConcurrentHashMap<>();
+    private final Set<UUID> dirtyUsers = new HashSet<>();
+    private final Set<UUID> dirtyContainers = new HashSet<>();
+    private final Set<UUID> removedUsers = new HashSet<>();
+    private boolean rewriteAll;
+
+    /**
+     * Initializes a ShardStore keeping its files in the given directory, which is created if it does not exist.
+     * @param directory directory of the shard and index files
+     * @param withEvents whether events are stored in the shards, rather than in a separate event store
+     * @param compression compression of the shard and index files written
+     */
+    public ShardStore(String directory, boolean withEvents, Compression compression){
+        this.directory = new File(directory);
+        this.withEvents = withEvents;
+        this.compression = compression;
+        this.directory.mkdirs();
+        for (ContainerOrder order : ContainerOrder.values()){
+            storedOrders.put(order, new SortedIndex());
+        }
+    }
+
+    /**
+     * Whether the index has been written, meaning the users are stored in this ShardStore rather than in manager
+     * snapshots.
+     * @return true if the index file exists
+     */
+    public boolean hasIndex(){
+        return indexFile().exists();
+    }
+
+    /**
+     * Read the index of stored users. An index written before the index held EventContainers is completed from the
+     * shards once and rewritten.
+     * @throws IOException if the index could not be read
+     */
+    public synchronized void readIndex() throws IOException {
+        index.clear();
+        byUsername.clear();
+        byEmail.clear();
+        ownerByCreation.clear();
+        containersByID.clear();
+        for (ContainerOrder order : ContainerOrder.values()){
+            storedOrders.put(order, new SortedIndex());
+        }
+        if (!hasIndex()){
+            return;
+        }
+
+        boolean legacy;
+        try (InputStream buffer = Compression.decompress(new FileInputStream(indexFile()))) {
+            CodecInput input = new CodecInput(buffer);
+            int count = input.readVarInt();
+            legacy = count != CONTAINER_INDEX;
+            if (!legacy){
+                count = input.readVarInt();
+            }
+            for (int i = 0; i < count; i++){
+                UUID userID = input.readUUID();
+                String username = input.readString();
+                String email = input.readString();
+                UUID[] creations = readUUIDs(input);
+                StoredContainer[] containers;
+                if (legacy){
+                    // the public creations, which the EventContainers read from the shard tell as well
+                    readUUIDs(input);
+                    containers = readShardContainers(userID);
+                }
+                else {
+                    containers = new StoredContainer[input.readVarInt()];
+                    for (int j = 0; j < containers.length; j++){
+                        containers[j] = new StoredContainer(input.readUUID(), input.readString(),
+                                input.readString(), input.readVarLong(), input.readBoolean());
+                    }
+                }
+                LocalDate bannedUntil = input.readBoolean() ? LocalDate.ofEpochDay(input.readVarLong()) : null;
+                putIndexEntry(userID, new IndexEntry(username, email, creations, containers, bannedUntil));
+            }
+        }
+        if (legacy){
+            writeIndex();
+        }
+    }
+
+    /**
+     * Set the manager that shards load into at the given index, and start tracking which users its mutations touch.
+     * The manager also starts loading the users or EventContainers it does not hold from this ShardStore.
+     * @param managerIndex 0 for UserManager, 1 for EventContainerManager, 2 for EventManager
+     * @param manager the manager
+     * @param next listener the manager's mutations are passed on to, such as the journal's
+     * @return listener to be set on the manager
+     */
+    public synchronized MutationListener attach(int managerIndex, JournaledManager manager, MutationListener next){
+        managers[managerIndex] = manager;
+        if (manager instanceof UserManager){
+            ((UserManager) manager).setShardSource(this);
+        }
+        else if (manager instanceof EventContainerManager){
+            ((EventContainerManager) manager).setShardSource(this);
+        }
+
+        return new MutationListener() {
+            @Override
+            public void onPut(Object key, Object value) {
+                markDirty(managerIndex, (UUID) key, false);
+                next.onPut(key, value);
+            }
+
+            @Override
+            public void onRemove(Object key) {
+                markDirty(managerIndex, (UUID) key, true);
+                next.onRemove(key);
+            }
+        };
+    }
+
+    /**
+     * Get the manager shards load into at the given index.
+     * @param managerIndex 0 for UserManager, 1 for EventContainerManager, 2 for EventManager
+     * @return the manager, or null if none is set
+     */
+    public synchronized JournaledManager getManager(int managerIndex){
+        return managers[managerIndex];
+    }
+
+    /**
+     * Set the manager that shards load into at the given index, without attaching to it.
+     * @param managerIndex 0 for UserManager, 1 for EventContainerManager, 2 for EventManager
+     * @param manager the manager
+     */
+    public synchronized void setManager(int managerIndex, JournaledManager manager){
+        managers[managerIndex] = manager;
+    }
+
+    /**
+     * Load the shards of the given users and of the stored owners of the given creations, such as the shards a
+     * journal is about to change when it is replayed.
+     * @param userIDs UUIDs of the users
+     * @param creationIDs UUIDs of the creations
+     */
+    public synchronized void loadTouched(Collection<?> userIDs, Collection<?> creationIDs){
+        for (Object userID : userIDs){
+            load((UUID) userID);
+        }
+        for (Object creationID : creationIDs){
+            UUID owner = ownerByCreation.get(creationID);
+            if (owner != null){
+                load(owner);
+            }
+        }
+    }
+
+    /**
+     * Rewrite the shard of every user in memory on the next flush, such as after their data was changed without
+     * being tracked.
+     */
+    public synchronized void markAllDirty(){
+        rewriteAll = true;
+    }
+
+    /**
+     * Rewrite the shards of the users whose data changed since the last flush, then the index. Users that were
+     * removed have their shard deleted. The managers can be used meanwhile: each shard is written while holding the
+     * locks of its entities, so no mutation changes it halfway, and changes made after a shard was written are left
+     * for the next flush.
+     * @param report report to record the written files in
+     * @throws IOException if a shard or the index could not be written
+     */
+    public void flush(SaveReport report) throws IOException {
+        Set<UUID> owners = new HashSet<>();
+        Set<UUID> containers;
+        Set<UUID> removed;
+        boolean rewrote;
+        synchronized (this){
+            owners.addAll(dirtyUsers);
+            if (rewriteAll){
+                for (Object userID : managers[0].getEntries().keySet()){
+                    owners.add((UUID) userID);
+                }
+            }
+            UserManager um = (UserManager) managers[0];
+            for (UUID containerID : dirtyContainers){
+                UUID owner = um.getResidentOwner(containerID);
+                if (owner != null){
+                    owners.add(owner);
+                }
+            }
+            if (owners.isEmpty() && removedUsers.isEmpty()){
+                return;
+            }
+            containers = new HashSet<>(dirtyContainers);
+            removed = new HashSet<>(removedUsers);
+            rewrote = rewriteAll;
+            rewriteAll = false;
+        }
+
+        try {
+            for (UUID owner : owners){
+                // the locks are taken before this store's lock, in the same order as mutations take them
+                StripedLock.Held held = lockShard(owner, false);
+                try {
+                    writeShard(owner, report);
+                } finally {
+                    held.unlock();
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this){
+                rewriteAll |= rewrote;
+            }
+            throw e;
+        }
+
+        synchronized (this){
+            removed.retainAll(removedUsers);
+            for (UUID userID : removed){
+                shardFile(userID).delete();
+                removeIndexEntry(userID);
+                lastAccess.remove(userID);
+                lastRead.remove(userID);
+            }
+
+            long start = System.nanoTime();
+            writeIndex();
+            report.addWrite(indexFile().getPath(), System.nanoTime() - start);
+
+            // containers without an owner in memory were removed, and have no shard left to write
+            containers.retainAll(dirtyContainers);
+            for (UUID containerID : containers){
+                if (((UserManager) managers[0]).getResidentOwner(containerID) == null){
+                    dirtyContainers.remove(containerID);
+                }
+            }
+            removedUsers.removeAll(removed);
+        }
+    }
+
+    /**
+     * Remove from the managers the shards that have not been loaded, read or written for the given time. Only shards
+     * without unsaved changes are evicted, so this should follow a flush. Shards being changed by another thread are
+     * in use, and are skipped.
+     * @param idleMillis time a shard must have been idle for, in milliseconds
+     * @return number of shards evicted
+     */
+    public synchronized int evictIdle(long idleMillis){
+        long cutoff = System.currentTimeMillis() - idleMillis;
+        int evicted = 0;
+
+        Iterator<Map.Entry<UUID, Long>> it = lastAccess.entrySet().iterator();
+        while (it.hasNext()){
+            Map.Entry<UUID, Long> entry = it.next();
+            UUID userID = entry.getKey();
+            if (entry.getValue() > cutoff || dirtyUsers.contains(userID)){
+                continue;
+            }
+            // mutations hold these locks while waiting for this store's, so they are only tried
+            StripedLock.Held held = lockShard(userID, true);
+            if (held == null){
+                continue;
+            }
+            try {
+                List<Object> contents = shardContents((User) managers[0].getEntries().get(userID));
+                if (dirtyUsers.contains(userID) || readSince(userID, contents, cutoff)){
+                    continue;
+                }
+
+                for (Object value : contents){
+                    if (value instanceof EventContainer){
+                        UUID containerID = ((EventContainer) value).getModuleID();
+                        managers[1].replayRemove(containerID);
+                        lastRead.remove(containerID);
+                    }
+                    else if (value instanceof Event){
+                        managers[2].replayRemove(((Event) value).getEventID());
+                    }
+                }
+                managers[0].replayRemove(userID);
+                lastRead.remove(userID);
+                it.remove();
+                evicted++;
+            } finally {
+                held.unlock();
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID findUserByUsername(String username) {
+        UUID userID = byUsername.get(username);
+        return userID == null || removedUsers.contains(userID) ? null : userID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID findUserByEmail(String email) {
+        UUID userID = byEmail.get(email);
+        return userID == null || removedUsers.contains(userID) ? null : userID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String[] findUsernamesByPrefix(String prefix, int limit) {
+        List<String> res = new ArrayList<>();
+        for (Map.Entry<String, UUID> entry : byUsername.tailMap(prefix, true).entrySet()){
+            if (res.size() == limit || !entry.getKey().startsWith(prefix)){
+                break;
+            }
+            if (!removedUsers.contains(entry.getValue())){
+                res.add(entry.getKey());
+            }
+        }
+        return res.toArray(new String[0]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID findOwner(UUID creationID) {
+        UUID userID = ownerByCreation.get(creationID);
+        return userID == null || removedUsers.contains(userID) ? null : userID;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID[] getUserIDs() {
+        List<UUID> res = new ArrayList<>();
+        for (UUID userID : index.keySet()){
+            if (!removedUsers.contains(userID)){
+                res.add(userID);
+            }
+        }
+        return res.toArray(new UUID[0]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID[] getCreations(UUID userID) {
+        IndexEntry entry = index.get(userID);
+        return entry == null || removedUsers.contains(userID) ? new UUID[0] : entry.creations.clone();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Map<UUID, LocalDate> getStoredBans() {
+        Map<?, ?> resident = managers[0] == null ? Collections.emptyMap() : managers[0].getEntries();
+        Map<UUID, LocalDate> res = new HashMap<>();
+        for (Map.Entry<UUID, IndexEntry> entry : index.entrySet()){
+            LocalDate bannedUntil = entry.getValue().bannedUntil;
+            if (bannedUntil != null && !resident.containsKey(entry.getKey()) && !removedUsers.contains(entry.getKey())){
+                res.put(entry.getKey(), bannedUntil);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized UUID[] getStoredCreations(boolean publicOnly) {
+        Map<?, ?> resident = managers[0] == null ? Collections.emptyMap() : managers[0].getEntries();
+        List<UUID> res = new ArrayList<>();
+        for (Map.Entry<UUID, IndexEntry> entry : index.entrySet()){
+            if (resident.containsKey(entry.getKey()) || removedUsers.contains(entry.getKey())){
+                continue;
+            }
+            if (!publicOnly){
+                res.addAll(Arrays.asList(entry.getValue().creations));
+                continue;
+            }
+            for (StoredContainer container : entry.getValue().containers){
+                if (!container.isPrivate){
+                    res.add(container.id);
+                }
+            }
+        }
+        return res.toArray(new UUID[0]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Map<UUID, String> getStoredCreationsAfter(ContainerOrder order, String key, UUID creationID,
+                                                                  boolean publicOnly, int limit) {
+        Map<?, ?> resident = managers[0] == null ? Collections.emptyMap() : managers[0].getEntries();
+        SortedIndex sorted = storedOrders.get(order);
+        Map<UUID, String> res = new LinkedHashMap<>();
+        for (UUID id : sorted.after(key, creationID)){
+            if (res.size() == limit){
+                break;
+            }
+            UUID owner = ownerByCreation.get(id);
+            StoredContainer container = containersByID.get(id);
+            if (owner != null && !resident.containsKey(owner) && !removedUsers.contains(owner)
+                    && !(publicOnly && container.isPrivate)){
+                res.put(id, sorted.getKey(id));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Map<UUID, String> getStoredUsersAfter(String username, UUID userID, int limit) {
+        Map<?, ?> resident = managers[0] == null ? Collections.emptyMap() : managers[0].getEntries();
+        Map<String, UUID> tail = username == null ? byUsername : byUsername.tailMap(username, true);
+        Map<UUID, String> res = new LinkedHashMap<>();
+        for (Map.Entry<String, UUID> entry : tail.entrySet()){
+            if (res.size() == limit){
+                break;
+            }
+            UUID id = entry.getValue();
+            // usernames are unique among stored users, so only the user at the position itself has its username
+            boolean afterPosition = username == null || !entry.getKey().equals(username) || id.compareTo(userID) > 0;
+            if (afterPosition && !resident.containsKey(id) && !removedUsers.contains(id)){
+                res.put(id, entry.getKey());
+            }
+        }
+        return res;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean isStoredPublic(UUID creationID) {
+        StoredContainer container = containersByID.get(creationID);
+        return container != null && !container.isPrivate && findOwner(creationID) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void touch(UUID id) {
+        lastRead.put(id, System.currentTimeMillis());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean load(UUID userID) {
+        if (lastAccess.containsKey(userID) || !index.containsKey(userID) || removedUsers.contains(userID)){
+            return false;
+        }
+
+        try (InputStream buffer = Compression.decompress(new FileInputStream(shardFile(userID)))) {
+            CodecInput input = new CodecInput(buffer);
+            int count = input.readVarInt();
+            for (int i = 0; i < count; i++){
+                Object key = codec.read(input);
+                Object value = codec.read(input);
+                JournaledManager manager = managerFor(value);
+                // entities already in memory were changed after the shard was written
+                if (manager != null && !manager.getEntries().containsKey(key)){
+                    manager.replayPut(key, value);
+                }
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        lastAccess.put(userID, System.currentTimeMillis());
+        return true;
+    }
+
+    // =============== Helper methods ================
+    private synchronized void markDirty(int managerIndex, UUID key, boolean removed){
+        if (managerIndex == 0){
+            if (removed){
+                removedUsers.add(key);
+                dirtyUsers.remove(key);
+            }
+            else {
+                dirtyUsers.add(key);
+                removedUsers.remove(key);
+            }
+        }
+        else if (managerIndex == 1){
+            dirtyContainers.add(key);
+        }
+        // events only change along with their EventContainer or its owner, which marks the shard instead
+    }
+
+    private boolean readSince(UUID userID, List<Object> contents, long cutoff){
+        Long read = lastRead.get(userID);
+        if (read != null && read > cutoff){
+            return true;
+        }
+        for (Object value : contents){
+            if (value instanceof EventContainer){
+                read = lastRead.get(((EventContainer) value).getModuleID());
+                if (read != null && read > cutoff){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private JournaledManager managerFor(Object value){
+        if (value instanceof User){
+            return managers[0];
+        }
+        if (value instanceof EventContainer){
+            return managers[1];
+        }
+        if (value instanceof Event && withEvents){
+            return managers[2];
+        }
+        return null;
+    }
+
+    /**
+     * Get the entities stored in a user's shard: the user, the EventContainers they own and, if events are stored
+     * in shards, the events in those EventContainers.
+     * @param user the user
+     * @return list of entities in the shard, starting with the user
+     */
+    private List<Object> shardContents(User user){
+        List<Object> res = new ArrayList<>();
+        if (user == null){
+            return res;
+        }
+        res.add(user);
+        if (!(user instanceof CreationUser)){
+            return res;
+        }
+
+        for (UUID containerID : ((CreationUser) user).getCreationSet()){
+            EventContainer container = (EventContainer) managers[1].getEntries().get(containerID);
+            if (container == null){
+                continue;
+            }
+            res.add(container);
+            if (withEvents && managers[2] != null){
+                for (UUID eventID : container.getEventCollection()){
+                    Object event = managers[2].getEntries().get(eventID);
+                    if (event != null){
+                        res.add(event);
+                    }
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Lock a user's shard: the user, then their containers, then the containers' events, the same order in which
+     * mutations spanning managers would take them. Holding the user's lock keeps their creations from changing, and
+     * holding a container's lock keeps its events from changing.
+     * @param userID UUID of the user
+     * @param tryOnly whether to give up rather than wait if another thread holds one of the locks
+     * @return the acquired locks, or null if tryOnly and one of them is held elsewhere
+     */
+    private StripedLock.Held lockShard(UUID userID, boolean tryOnly){
+        List<StripedLock.Held> held = new ArrayList<>();
+        StripedLock.Held all = () -> {
+            for (int i = held.size() - 1; i >= 0; i--){
+                held.get(i).unlock();
+            }
+        };
+        if (!lockInto(held, managers[0], tryOnly, userID)){
+            return null;
+        }
+
+        User user = (User) managers[0].getEntries().get(userID);
+        Set<UUID> containerIDs = user instanceof CreationUser ? ((CreationUser) user).getCreationSet()
+                : Collections.<UUID>emptySet();
+        if (!lockInto(held, managers[1], tryOnly, containerIDs.toArray())){
+            all.unlock();
+            return null;
+        }
+
+        if (withEvents && managers[2] != null){
+            List<Object> eventIDs = new ArrayList<>();
+            for (UUID containerID : containerIDs){
+                EventContainer container = (EventContainer) managers[1].getEntries().get(containerID);
+                if (container != null){
+                    eventIDs.addAll(Arrays.asList(container.getEventCollection()));
+                }
+            }
+            if (!lockInto(held, managers[2], tryOnly, eventIDs.toArray())){
+                all.unlock();
+                return null;
+            }
+        }
+        return all;
+    }
+
+    private static boolean lockInto(List<StripedLock.Held> held, JournaledManager manager, boolean tryOnly,
+                                    Object... keys){
+        StripedLock.Held locks = tryOnly ? manager.tryLockKeys(keys) : manager.lockKeys(keys);
+        if (locks == null){
+            return false;
+        }
+        held.add(locks);
+        return true;
+    }
+
+    private synchronized void writeShard(UUID userID, SaveReport report) throws IOException {
+        User user = (User) managers[0].getEntries().get(userID);
+        if (user == null){
+            dirtyUsers.remove(userID);
+            return;
+        }
+
+        long start = System.nanoTime();
+        List<Object> contents = shardContents(user);
+        File file = shardFile(user.getUserID());
+        File temp = new File(directory, file.getName() + ".tmp");
+
+        try (OutputStream buffer = compression.compress(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            CodecOutput output = new CodecOutput(buffer);
+            output.writeVarInt(contents.size());
+            for (Object value : contents){
+                codec.write(output, keyOf(value));
+                codec.write(output, value);
+            }
+            output.flush();
+        }
+        replace(temp, file);
+
+        String email = user instanceof LogInable ? ((LogInable) user).getEmail() : null;
+        UUID[] creations = user instanceof CreationUser ? ((CreationUser) user).getCreations() : new UUID[0];
+        List<StoredContainer> containers = new ArrayList<>();
+        for (Object value : contents){
+            if (value instanceof EventContainer){
+                EventContainer container = (EventContainer) value;
+                containers.add(new StoredContainer(container.getModuleID(), container.getModuleName(),
+                        container.getContainerType(), container.getCreated(), container.getPrivacy()));
+            }
+        }
+        removeIndexEntry(user.getUserID());
+        putIndexEntry(user.getUserID(), new IndexEntry(user.getUsername(), email, creations,
+                containers.toArray(new StoredContainer[0]), user.getBannedUntil()));
+        report.addWrite(file.getPath(), System.nanoTime() - start);
+        lastAccess.put(userID, System.currentTimeMillis());
+
+        // the shard's locks are held, so nothing in it changed since it was read
+        dirtyUsers.remove(userID);
+        for (Object value : contents){
+            if (value instanceof EventContainer){
+                dirtyContainers.remove(((EventContainer) value).getModuleID());
+            }
+        }
+    }
+
+    private StoredContainer[] readShardContainers(UUID userID) throws IOException {
+        List<StoredContainer> res = new ArrayList<>();
+        try (InputStream buffer = Compression.decompress(new FileInputStream(shardFile(userID)))) {
+            CodecInput input = new CodecInput(buffer);
+            int count = input.readVarInt();
+            for (int i = 0; i < count; i++){
+                codec.read(input);
+                Object value = codec.read(input);
+                if (value instanceof EventContainer){
+                    EventContainer container = (EventContainer) value;
+                    res.add(new StoredContainer(container.getModuleID(), container.getModuleName(),
+                            container.getContainerType(), container.getCreated(), container.getPrivacy()));
+                }
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Could not read the shard of " + userID, e);
+        }
+        return res.toArray(new StoredContainer[0]);
+    }
+
+    private void writeIndex() throws IOException {
+        File temp = new File(directory, INDEX_FILE + ".tmp");
+        try (OutputStream buffer = compression.compress(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            CodecOutput output = new CodecOutput(buffer);
+            output.writeVarInt(CONTAINER_INDEX);
+            output.writeVarInt(index.size());
+            for (Map.Entry<UUID, IndexEntry> entry : index.entrySet()){
+                output.writeUUID(entry.getKey());
+                output.writeString(entry.getValue().username);
+                output.writeString(entry.getValue().email);
+                writeUUIDs(output, entry.getValue().creations);
+                output.writeVarInt(entry.getValue().containers.length);
+                for (StoredContainer container : entry.getValue().containers){
+                    output.writeUUID(container.id);
+                    output.writeString(container.name);
+                    output.writeString(container.containerType);
+                    output.writeVarLong(container.created);
+                    output.writeBoolean(container.isPrivate);
+                }
+                LocalDate bannedUntil = entry.getValue().bannedUntil;
+                output.writeBoolean(bannedUntil != null);
+                if (bannedUntil != null){
+                    output.writeVarLong(bannedUntil.toEpochDay());
+                }
+            }
+            output.flush();
+        }
+        replace(temp, indexFile());
+    }
+
+    private UUID[] readUUIDs(CodecInput input) throws IOException {
+        UUID[] res = new UUID[input.readVarInt()];
+        for (int i = 0; i < res.length; i++){
+            res[i] = input.readUUID();
+        }
+        return res;
+    }
+
+    private void writeUUIDs(CodecOutput output, UUID[] ids) throws IOException {
+        output.writeVarInt(ids.length);
+        for (UUID id : ids){
+            output.writeUUID(id);
+        }
+    }
+
+    private Object keyOf(Object value){
+        if (value instanceof User){
+            return ((User) value).getUserID();
+        }
+        if (value instanceof EventContainer){
+            return ((EventContainer) value).getModuleID();
+        }
+        return ((Event) value).getEventID();
+    }
+
+    private void putIndexEntry(UUID userID, IndexEntry entry){
+        index.put(userID, entry);
+        byUsername.put(entry.username, userID);
+        if (entry.email != null){
+            byEmail.put(entry.email, userID);
+        }
+        for (UUID creationID : entry.creations){
+            ownerByCreation.put(creationID, userID);
+        }
+        for (StoredContainer container : entry.containers){
+            containersByID.put(container.id, container);
+            for (ContainerOrder order : ContainerOrder.values()){
+                storedOrders.get(order).put(container.id,
+                        order.keyOf(container.name, container.containerType, container.created));
+            }
+        }
+    }
+
+    private void removeIndexEntry(UUID userID){
+        IndexEntry entry = index.remove(userID);
+        if (entry == null){
+            return;
+        }
+        // another user may have taken the username or email since
+        byUsername.remove(entry.username, userID);
+        if (entry.email != null){
+            byEmail.remove(entry.email, userID);
+        }
+        for (UUID creationID : entry.creations){
+            ownerByCreation.remove(creationID);
+        }
+        for (StoredContainer container : entry.containers){
+            containersByID.remove(container.id);
+            for (SortedIndex sorted : storedOrders.values()){
+                sorted.remove(container.id);
+            }
+        }
+    }
+
+    private void replace(File temp, File target) throws IOException {
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private File shardFile(UUID userID){
+        return new File(directory, userID + SHARD_SUFFIX);
+    }
+
+    private File indexFile(){
+        return new File(directory, INDEX_FILE);
+    }
+
+    /**
+     * Index entry of a stored user.
+     */
+    private static class IndexEntry {
+        private final String username;
+        private final String email;
+        private final UUID[] creations;
+        // the creations whose EventContainer was written to the shard
+        private final StoredContainer[] containers;
+        private final LocalDate bannedUntil;
+
+        private IndexEntry(String username, String email, UUID[] creations, StoredContainer[] containers,
+                           LocalDate bannedUntil){
+            this.username = username;
+            this.email = email;
+            this.creations = creations;
+            this.containers = containers;
+            this.bannedUntil = bannedUntil;
+        }
+    }
+
+    /**
+     * Index entry of a stored EventContainer, holding what it is browsed by.
+     */
+    private static class StoredContainer {
+        private final UUID id;
+        private final String name;
+        private final String containerType;
+        private final long created;
+        private final boolean isPrivate;
+
+        private StoredContainer(UUID id, String name, String containerType, long created, boolean isPrivate){
+            this.id = id;
+            this.name = name;
+            this.containerType = containerType;
+            this.created = created;
+            this.isPrivate = isPrivate;
+        }
+    }
+}
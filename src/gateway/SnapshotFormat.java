@@ -0,0 +1,22 @@
+package gateway;
+
+/**
+ * Formats that ManagerGateway can write manager snapshots in.
+ */
+public enum SnapshotFormat {
+    /**
+     * Java serialization of the whole manager, in serialized_*.ser files.
+     */
+    SERIALIZED,
+
+    /**
+     * The compact binary format of EntityCodec, in snapshot_*.bin files.
+     */
+    BINARY,
+
+    /**
+     * Users, EventContainers and events in one shard file per user, loaded when the user is first needed, with the
+     * other managers in the BINARY format. See ShardStore.
+     */
+    SHARDED
+}
@@ -0,0 +1,57 @@
+package gateway;
+
+import use_case.JournaledManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Storage engine holding the saved state of the managers, in the order used by ManagerGateway. Mutations are first
+ * appended to ManagerGateway's journal, and folded into the backend by store once the journal is compacted.
+ */
+public interface StorageBackend extends Closeable {
+
+    /**
+     * Read the saved state of a manager.
+     * @param managerIndex index of the manager in the managers array
+     * @return the manager, or null if nothing is saved for it
+     * @throws IOException if the saved state could not be read
+     * @throws ClassNotFoundException if a saved entity could not be read
+     */
+    JournaledManager read(int managerIndex) throws IOException, ClassNotFoundException;
+
+    /**
+     * Fold the changes made since the last call into the saved state. A backend stores either the whole of each
+     * changed manager, or the records of the journal, depending on storesRecords.
+     * @param managers array of managers; slots not saved through this backend are null
+     * @param changed whether each manager changed since it was last stored
+     * @param journal journal of every mutation made since the last call
+     * @param journalEnd length of the journal when the managers started being stored; records after it are left
+     * for the next call
+     * @param report report to record the written files in
+     * @throws IOException if the saved state could not be written
+     */
+    void store(Object[] managers, boolean[] changed, MutationJournal journal, long journalEnd, SaveReport report)
+            throws IOException;
+
+    /**
+     * Forget the saved state of a manager, once it is saved somewhere else.
+     * @param managerIndex index of the manager in the managers array
+     * @throws IOException if the saved state could not be removed
+     */
+    void discard(int managerIndex) throws IOException;
+
+    /**
+     * Whether store folds the records of the journal rather than whole managers. Such a backend is cheap to store
+     * into, so the journal is folded into it on every save, and it reads managers lazily, so the journal is folded
+     * into it before managers are read rather than replayed over them.
+     * @return true if store uses the journal's records
+     */
+    boolean storesRecords();
+
+    /**
+     * Get the size of the saved state.
+     * @return size in bytes, used to decide when the journal has grown large enough to be folded in
+     */
+    long size();
+}
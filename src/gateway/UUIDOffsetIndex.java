@@ -0,0 +1,156 @@
+package gateway;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Open-addressing hash table from UUID to file offset, stored in three primitive arrays so that each entry costs
+ * 24 bytes of heap and no objects.
+ */
+class UUIDOffsetIndex {
+
+    private static final long EMPTY = -1;
+
+    private long[] mostBits;
+    private long[] leastBits;
+    private long[] offsets;
+    private int size;
+
+    /**
+     * Initializes an empty UUIDOffsetIndex.
+     */
+    UUIDOffsetIndex(){
+        allocate(1024);
+    }
+
+    /**
+     * Get the offset stored for a UUID.
+     * @param id UUID to look up
+     * @return offset stored for id, or -1 if there is none
+     */
+    long get(UUID id){
+        int slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        return slot < 0 ? EMPTY : offsets[slot];
+    }
+
+    /**
+     * Store the offset for a UUID, replacing any offset already stored for it.
+     * @param id UUID to store the offset under
+     * @param offset non-negative offset
+     */
+    void put(UUID id, long offset){
+        if ((size + 1) * 4L > offsets.length * 3L){
+            resize();
+        }
+        insert(id.getMostSignificantBits(), id.getLeastSignificantBits(), offset);
+    }
+
+    /**
+     * Remove the offset stored for a UUID.
+     * @param id UUID to remove
+     */
+    void remove(UUID id){
+        int slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        if (slot < 0){
+            return;
+        }
+
+        // shift later entries of the probe sequence back so that lookups never stop at the removed slot
+        int mask = offsets.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (offsets[next] != EMPTY){
+            int home = hash(mostBits[next], leastBits[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)){
+                mostBits[hole] = mostBits[next];
+                leastBits[hole] = leastBits[next];
+                offsets[hole] = offsets[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        offsets[hole] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Get the number of UUIDs in this index.
+     * @return number of entries
+     */
+    int size(){
+        return size;
+    }
+
+    /**
+     * Get every UUID in this index.
+     * @return array of UUIDs, in no particular order
+     */
+    UUID[] keys(){
+        UUID[] res = new UUID[size];
+        int i = 0;
+        for (int slot = 0; slot < offsets.length; slot++){
+            if (offsets[slot] != EMPTY){
+                res[i++] = new UUID(mostBits[slot], leastBits[slot]);
+            }
+        }
+        return res;
+    }
+
+    // =============== Helper methods ================
+    private int find(long most, long least){
+        int mask = offsets.length - 1;
+        int slot = hash(most, least) & mask;
+        while (offsets[slot] != EMPTY){
+            if (mostBits[slot] == most && leastBits[slot] == least){
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(long most, long least, long offset){
+        int mask = offsets.length - 1;
+        int slot = hash(most, least) & mask;
+        while (offsets[slot] != EMPTY){
+            if (mostBits[slot] == most && leastBits[slot] == least){
+                offsets[slot] = offset;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        mostBits[slot] = most;
+        leastBits[slot] = least;
+        offsets[slot] = offset;
+        size++;
+    }
+
+    private void resize(){
+        long[] oldMost = mostBits;
+        long[] oldLeast = leastBits;
+        long[] oldOffsets = offsets;
+
+        allocate(oldOffsets.length * 2);
+        for (int slot = 0; slot < oldOffsets.length; slot++){
+            if (oldOffsets[slot] != EMPTY){
+                insert(oldMost[slot], oldLeast[slot], oldOffsets[slot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity){
+        mostBits = new long[capacity];
+        leastBits = new long[capacity];
+        offsets = new long[capacity];
+        Arrays.fill(offsets, EMPTY);
+        size = 0;
+    }
+
+    private static int hash(long most, long least){
+        long h = most ^ least;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
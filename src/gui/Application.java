@@ -12,6 +12,10 @@ import java.io.IOException;
  */
 public class Application extends javafx.application.Application {
 
+    // changes are saved in the background this often, or sooner once this many have piled up
+    private static final long AUTOSAVE_INTERVAL_MILLIS = 5000;
+    private static final int AUTOSAVE_MUTATIONS = 100;
+
     private ControllerBuilder builder;
 
     /**
@@ -33,13 +37,15 @@ public class Application extends javafx.application.Application {
     }
 
     /**
-     * Initialize Controller.
+     * Initialize Controller. Returns once the users are loaded, so the login screen can be shown while the rest of
+     * the save data keeps loading in the background.
      */
     @Override
     public void init(){
         try {
             builder = new ControllerBuilder();
             builder.getControllerInitializer().loadControllers();
+            builder.getControllerInitializer().startAutosave(AUTOSAVE_INTERVAL_MILLIS, AUTOSAVE_MUTATIONS);
 
         } catch (ClassNotFoundException e) {
             System.out.println("Save files could not be read");
@@ -47,6 +53,16 @@ public class Application extends javafx.application.Application {
         }
     }
 
+    /**
+     * Save the changes that autosave has not written yet before the application exits, and fold the journal into
+     * the snapshots so that the next start does not have to replay it.
+     */
+    @Override
+    public void stop(){
+        builder.getControllerInitializer().stopAutosave();
+        builder.getControllerInitializer().saveControllers();
+    }
+
     // application entry point
     public static void main(String[] args) {
         launch();
@@ -10,6 +10,7 @@ import gui.template.TemplateViewController;
 import gui.user_activity.StartViewController;
 import gui.user_activity.UserProfileController;
 import javafx.stage.Stage;
+import use_case.SessionManager;
 import controller.UserMessageController;
 import presenter.*;
 import controller.TemplateController;
@@ -26,17 +27,21 @@ public class ControllerBuilder {
     private UserMessageController umc;
 
     private ControllerInitializer ci;
+    // token of the session of the user logged in to this window, null if nobody is
+    private String session;
 
     /**
      * Initializes UserActivityController, CreationControllable, TemplateController, UserMessageController and
-     * ControllerInitializer.
-     * @throws ClassNotFoundException Thrown if the save file can not be read
+     * ControllerInitializer. The controllers share the sessions, so that a session opened at login is known to all.
+     * The session of the user of this window lasts until they log out, however long they leave the window idle, since
+     * the window has no way to log them back in.
      */
-    public ControllerBuilder() throws ClassNotFoundException {
-        this.uac = new UserActivityController();
-        this.cc = new EventController();
-        this.tc = new TemplateController();
-        this.umc = new UserMessageController();
+    public ControllerBuilder() {
+        SessionManager sessions = new SessionManager(SessionManager.NEVER_IDLE);
+        this.uac = new UserActivityController(sessions);
+        this.cc = new EventController(sessions);
+        this.tc = new TemplateController(sessions);
+        this.umc = new UserMessageController(sessions);
 
         ci = new ControllerInitializer(new CILoadable[]{uac, (CILoadable) cc, tc, umc});
     }
@@ -59,6 +64,24 @@ public class ControllerBuilder {
         return ci;
     }
 
+    /**
+     * Gets the session of the user logged in to this window
+     * @return token of the session, null if nobody is logged in
+     */
+    public String getSession(){
+        return session;
+    }
+
+    // ============== Setters =================
+
+    /**
+     * Sets the session of the user logged in to this window
+     * @param session token of the session, null when the user logs out
+     */
+    public void setSession(String session){
+        this.session = session;
+    }
+
     /**
      * Load the GUI controller based on which controller it is
      *
@@ -104,6 +127,9 @@ public class ControllerBuilder {
             @Override
             public void updateBanView(String response) {}
 
+            @Override
+            public void updateBanListView(String title, String[] bans) {}
+
             @Override
             public void updatePasswordChangeView(String response) {}
 
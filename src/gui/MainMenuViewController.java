@@ -143,7 +143,8 @@ public class MainMenuViewController implements UIControllerLoadable{
         this.builder = builder;
 
         UserActivityController uac = (UserActivityController) builder.getControllers()[0];
-        if (uac.getProfile()[1].equals("admin")){
+        String[] profile = uac.getProfile(builder.getSession());
+        if (profile.length > 1 && profile[1].equals("admin")){
             Button templateButton = constructTemplateButton();
             actionContainer.getChildren().add(templateButton);
         }
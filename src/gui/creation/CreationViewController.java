@@ -1,6 +1,5 @@
 package gui.creation;
 
-import controller.UserActivityController;
 import gui.ControllerBuilder;
 import gui.MainMenuViewController;
 import gui.UIControllerLoadable;
@@ -27,7 +26,8 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
     private Stage stage;
     private ControllerBuilder builder;
     private CreationPresenter cp;
-    private UUID viewer;
+    // token of the session of the user viewing the creations
+    private String session;
 
     /**
      * Sets a new stage for the Creation View
@@ -42,6 +42,11 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
 
     private ObservableList<Map<String, String>> browseCreations;
 
+    // whether each tab has more creations than it shows
+    private boolean moreOwnCreations;
+
+    private boolean moreBrowseCreations;
+
     @FXML
     private TabPane tabPane;
     @FXML
@@ -51,6 +56,8 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
     @FXML
     private Button backButton;
     @FXML
+    private Button moreButton;
+    @FXML
     private Tab ownTab;
     @FXML
     private TableView<Map<String, String>> ownTableView;
@@ -96,11 +103,21 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
         if (sel.size() > 0){
             String raw = sel.get(t.getSelectionModel().getSelectedIndex()).get("UUID");
             creation = UUID.fromString(raw);
-            cp.deleteCreation(creation);
-            sel.remove(t.getSelectionModel().getSelectedIndex());
+            if (cp.deleteCreation(session, creation)){
+                sel.remove(t.getSelectionModel().getSelectedIndex());
+            }
         }
     }
 
+    /**
+     * Action when the user click More button.
+     * Show the next page of creations in the selected tab
+     */
+    @FXML
+    void onClickMoreButton(){
+        cp.showMoreCreations(session, tabPane.getSelectionModel().getSelectedItem().getText().equals("Owned"));
+    }
+
     /**
      * Action when the user click Add Creation button.
      * Add a creation
@@ -163,6 +180,7 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
         assert addCreation != null : "fx:id=\"addTodo\" was not injected: check your FXML file 'MainView.fxml'.";
         assert deleteButton != null : "fx:id=\"deleteButton\" was not injected: check your FXML file 'MainView.fxml'.";
         assert backButton != null : "fx:id=\"exitButton\" was not injected: check your FXML file 'MainView.fxml'.";
+        assert moreButton != null : "fx:id=\"moreButton\" was not injected: check your FXML file 'CreationView.fxml'.";
         assert ownTab != null : "fx:id=\"scheduleTab\" was not injected: check your FXML file 'MainView.fxml'.";
         assert ownNameCol != null : "fx:id=\"scheduleModuleNameCol\" was not injected: check your FXML file 'MainView.fxml'.";
         assert ownTypeCol != null : "fx:id=\"scheduleNameCol\" was not injected: check your FXML file 'MainView.fxml'.";
@@ -204,17 +222,17 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
     public void editCreationCallback(UUID creation, List<String[]> addedEvents,
                                      Map<String, String> editedCreationParams, Map<UUID, String> editedEvents){
         for (String[] s : addedEvents){
-            cp.editCreation(creation, s[0], s[1]);
+            cp.editCreation(session, creation, s[0], s[1]);
         }
 
         for (String s : editedCreationParams.keySet()){
-            cp.editCreation(creation, s, editedCreationParams.get(s));
+            cp.editCreation(session, creation, s, editedCreationParams.get(s));
         }
 
         for (UUID id : editedEvents.keySet()){
-            cp.editCreation(creation, editedEvents.get(id), id.toString());
+            cp.editCreation(session, creation, editedEvents.get(id), id.toString());
         }
-        cp.showCreationBrowser(viewer, true);
+        cp.showCreationBrowser(session, true);
     }
 
     /**
@@ -222,9 +240,9 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
      * @param creationID UUID of the creation
      */
     public void linkCreationCallback(UUID creationID){
-        cp.showCreationBrowser(viewer, true);
+        cp.showCreationBrowser(session, true);
         tabPane.getSelectionModel().select(browseTab);
-        cp.showCreationBrowser(viewer, false);
+        cp.showCreationBrowser(session, false);
 
         tabPane.getSelectionModel().select(ownTab);
         if (!selectCreationRow(ownCreations, ownTableView, creationID)){
@@ -240,8 +258,8 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
      */
 
     public void addCreationCallback(String[] res, String path){
-        cp.makeCreation(res, path, viewer);
-        cp.showCreationBrowser(viewer, true);
+        cp.makeCreation(res, path, session);
+        cp.showCreationBrowser(session, true);
     }
 
     /**
@@ -256,8 +274,8 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
         this.cp = (CreationPresenter) presenter;
         this.builder = builder;
 
-        this.viewer = ((UserActivityController)builder.getControllers()[0]).getLoggedInUser();
-        cp.showCreationBrowser(viewer, true);
+        this.session = builder.getSession();
+        cp.showCreationBrowser(session, true);
     }
 
     // ============== Update View =================
@@ -314,15 +332,18 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
     }
 
     /**
-     * Update the creation browser view by updating the table
+     * Update the creation browser view by updating the table of the given tab. Only the first page is shown; the
+     * following pages are added when the user clicks More.
      * @param creations the new creations need to be added to CreationBrowserView.
+     * @param more true if there are more creations to be added.
+     * @param own true to update the Owned tab, false to update the Creation Browser tab.
      */
     @Override
-    public void updateCreationBrowserView(Map<UUID, String[]> creations) {
+    public void updateCreationBrowserView(Map<UUID, String[]> creations, boolean more, boolean own) {
         ObservableList<Map<String, String>> sel;
         TableView<Map<String, String>> t;
 
-        if (tabPane.getSelectionModel().getSelectedItem().getText().equals("Owned")){
+        if (own){
             sel = ownCreations;
             t = ownTableView;
         }
@@ -331,16 +352,26 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
             t = browseTableView;
         }
         sel.clear();
-        for (UUID u : creations.keySet()){
-            Map<String, String> res = new HashMap<>();
-            res.put("name", creations.get(u)[0]);
-            res.put("type", creations.get(u)[1]);
-            res.put("author", creations.get(u)[2]);
-            res.put("UUID", u.toString());
+        addCreationRows(sel, creations);
+        t.setItems(sel);
+        setMoreCreations(own, more);
+    }
 
-            sel.add(res);
+    /**
+     * Add the next creations to the creation browser view of the given tab.
+     * @param creations the creations to be added after those shown.
+     * @param more true if there are more creations to be added.
+     * @param own true to add to the Owned tab, false to add to the Creation Browser tab.
+     */
+    @Override
+    public void appendCreationBrowserView(Map<UUID, String[]> creations, boolean more, boolean own) {
+        if (own){
+            addCreationRows(ownCreations, creations);
         }
-        t.setItems(sel);
+        else{
+            addCreationRows(browseCreations, creations);
+        }
+        setMoreCreations(own, more);
     }
 
     /**
@@ -379,12 +410,42 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
 
     // ================ Helper Methods ==============
 
+    // add a row for each creation
+    private void addCreationRows(ObservableList<Map<String, String>> sel, Map<UUID, String[]> creations){
+        for (UUID u : creations.keySet()){
+            Map<String, String> res = new HashMap<>();
+            res.put("name", creations.get(u)[0]);
+            res.put("type", creations.get(u)[1]);
+            res.put("author", creations.get(u)[2]);
+            res.put("UUID", u.toString());
+
+            sel.add(res);
+        }
+    }
+
+    // remember whether a tab has more creations, and let the user ask for them if that tab is shown
+    private void setMoreCreations(boolean own, boolean more){
+        if (own){
+            moreOwnCreations = more;
+        }
+        else{
+            moreBrowseCreations = more;
+        }
+        updateMoreButton();
+    }
+
+    // let the user ask for more creations only if the shown tab has more
+    private void updateMoreButton(){
+        boolean ownShown = tabPane.getSelectionModel().getSelectedItem().getText().equals("Owned");
+        moreButton.setDisable(!(ownShown ? moreOwnCreations : moreBrowseCreations));
+    }
+
     // set click listeners for row selection
     private void setTabClick(ObservableList<Map<String, String>> sel, TableView<Map<String, String>> t){
         t.setOnMouseClicked(action -> {
             if (action.getClickCount() == 2 && (t.getSelectionModel().getSelectedItem() != null) ) {
                 String raw = sel.get(t.getSelectionModel().getSelectedIndex()).get("UUID");
-                cp.showCreation(UUID.fromString(raw), viewer);
+                cp.showCreation(UUID.fromString(raw), session);
             }
             if (t.getSelectionModel().getSelectedItem() != null) {
                 deleteButton.setDisable(false);
@@ -398,12 +459,14 @@ public class CreationViewController implements UIControllerLoadable, CreationVie
     private void setTabSwitch(){
         tabPane.setOnMouseClicked(event -> {
             if (tabPane.getSelectionModel().getSelectedItem().getText().equals("Owned")){
-                cp.showCreationBrowser(viewer, true);
+                cp.showCreationBrowser(session, true);
             }
             else{
-                cp.showCreationBrowser(viewer, false);
+                cp.showCreationBrowser(session, false);
             }
         });
+        tabPane.getSelectionModel().selectedItemProperty().addListener(
+                (observable, oldTab, newTab) -> updateMoreButton());
     }
 
 
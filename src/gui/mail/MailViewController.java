@@ -14,7 +14,6 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 import presenter.MailPresenter;
 import presenter.MailView;
-import controller.UserActivityController;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -30,7 +29,8 @@ public class MailViewController implements UIControllerLoadable, MailView {
     private Stage stage;
     private ControllerBuilder builder;
     private MailPresenter mp;
-    private UUID sender;
+    // token of the session of the user whose mail is shown
+    private String session;
 
     // ============== Button Action =================
 
@@ -50,7 +50,7 @@ public class MailViewController implements UIControllerLoadable, MailView {
 
         SendMessageViewController controller = loader.getController();
         builder.ConfigureUIController(controller, stage);
-        controller.setSender(sender);
+        controller.setSession(session);
         stage.show();
     }
 
@@ -78,24 +78,25 @@ public class MailViewController implements UIControllerLoadable, MailView {
 
     /**
      * Callback method when new mail is sent
-     * @param sender sender's UUID
+     * @param session token of the sender's session
      * @param receivers receiver's username
      * @param subject subject of message
      * @param content content of message
      * @param attachments attachments of message
      */
-    public void sendCallback(UUID sender, String receivers, String subject, String content, UUID[] attachments){
-        Object[] mailParams = new Object[]{sender, receivers, subject, content, attachments};
-        mp.sendMessage(mailParams);
+    public void sendCallback(String session, String receivers, String subject, String content, UUID[] attachments){
+        Object[] mailParams = new Object[]{receivers, subject, content, attachments};
+        mp.sendMessage(session, mailParams);
     }
 
     /**
      * Callback method when a mail is replied to
+     * @param session token of the sender's session
      * @param mailParams array containing mail info
      * @param repliedMsg UUID of the message being replied to
      */
-    public void replyCallback(Object[] mailParams, UUID repliedMsg){
-        mp.replyMessage(mailParams, repliedMsg);
+    public void replyCallback(String session, Object[] mailParams, UUID repliedMsg){
+        mp.replyMessage(session, mailParams, repliedMsg);
     }
 
     /**
@@ -110,10 +111,8 @@ public class MailViewController implements UIControllerLoadable, MailView {
         this.stage = stage;
         this.builder = builder;
 
-        UserActivityController uac = (UserActivityController) builder.getControllers()[0];
-
-        sender = uac.getLoggedInUser();
-        mp.updateInbox(uac.getLoggedInUser());
+        session = builder.getSession();
+        mp.updateInbox(session);
     }
 
     // ============== Update View =================
@@ -156,7 +155,7 @@ public class MailViewController implements UIControllerLoadable, MailView {
 
         SingleMailViewController controller = loader.getController();
         builder.ConfigureUIController(controller, stage);
-        controller.setMessageInfo(res, messageID, sender);
+        controller.setMessageInfo(res, messageID, session);
 
         stage.show();
     }
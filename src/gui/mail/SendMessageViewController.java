@@ -7,8 +7,12 @@ import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.geometry.Side;
 import javafx.scene.Scene;
+import controller.UserMessageController;
 import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.VBox;
@@ -25,14 +29,18 @@ import java.util.*;
  */
 public class SendMessageViewController implements UIControllerLoadable {
 
+    private static final int SUGGESTION_COUNT = 10;
+
     private Stage stage;
     private ControllerBuilder builder;
     private Map<String, UUID> attachmentLookup = new HashMap<>();
     private List<String> attachments = new ArrayList<>();
-    private UUID sender;
+    // token of the session of the sender
+    private String session;
     private UUID receiverReply;
     private UUID replyMsgID;
     private boolean replyMode = false;
+    private ContextMenu receiverSuggestions = new ContextMenu();
 
     @FXML
     private ChoiceBox<String> creationSelector;
@@ -58,19 +66,19 @@ public class SendMessageViewController implements UIControllerLoadable {
     }
 
     /**
-     * Sets the sender of the mail given their UUID
-     * @param sender UUID of the sender
+     * Sets the sender of the mail given their session
+     * @param session token of the session of the sender
      */
-    public void setSender(UUID sender){
-        this.sender = sender;
+    public void setSession(String session){
+        this.session = session;
 
         CreationControllable cc = (CreationControllable) builder.getControllers()[1];
         List<String> attachmentItems = new ArrayList<>();
 
         // configure attachable creations
-        for (Object clist : new Object[]{cc.getBrowsableCreations(sender), cc.getOwnCreations(sender)}){
+        for (Object clist : new Object[]{cc.getBrowsableCreations(session), cc.getOwnCreations(session)}){
             for (UUID cid : (UUID[]) clist){
-                String[] res = cc.viewCreationSummary(cid, sender);
+                String[] res = cc.viewCreationSummary(cid, session);
                 String curr = "\"" + res[0] + "\" (" + res[1] +") by:"+ res[2];
                 String added = addAttachmentEntry(cid, curr);
                 attachmentItems.add(added);
@@ -81,16 +89,16 @@ public class SendMessageViewController implements UIControllerLoadable {
 
     /**
      * Configures the controller to reply to messages instead of creating new messages
-     * @param sender UUID of the sender
+     * @param session token of the session of the sender
      * @param receiver UUID of the receiver of the message
      * @param msg UUID of the message
      */
-    public void setReplyMode(UUID sender, UUID receiver, UUID msg){
-        this.sender = sender;
+    public void setReplyMode(String session, UUID receiver, UUID msg){
+        this.session = session;
         this.receiverReply = receiver;
         this.replyMsgID = msg;
         UserActivityController uac = (UserActivityController) builder.getControllers()[0];
-        toField.setText(uac.getDisplayedUsername(sender, receiver));
+        toField.setText(uac.getDisplayedUsername(session, receiver));
         toField.setEditable(false);
     }
 
@@ -118,11 +126,11 @@ public class SendMessageViewController implements UIControllerLoadable {
         if (replyMode){
             UserActivityController uac = (UserActivityController) builder.getControllers()[0];
 
-            Object[] mailParams = new Object[]{sender, uac.getUsername(receiverReply), subject, contents, attached.toArray(new UUID[0])};
-            prev.replyCallback(mailParams, replyMsgID);
+            Object[] mailParams = new Object[]{uac.getUsername(receiverReply), subject, contents, attached.toArray(new UUID[0])};
+            prev.replyCallback(session, mailParams, replyMsgID);
         }
         else{
-            prev.sendCallback(sender, to, subject, contents, attached.toArray(new UUID[0]));
+            prev.sendCallback(session, to, subject, contents, attached.toArray(new UUID[0]));
         }
         stage.show();
     }
@@ -142,10 +150,38 @@ public class SendMessageViewController implements UIControllerLoadable {
     @FXML
     public void initialize(){
         contentArea.setWrapText(true);
+        toField.textProperty().addListener((observable, oldText, newText) -> suggestReceivers(newText));
     }
 
     // ============== Helper Methods ==============
 
+    // show the usernames completing the receiver being typed
+    private void suggestReceivers(String typed){
+        receiverSuggestions.hide();
+        if (builder == null || !toField.isEditable()){
+            return;
+        }
+
+        UserMessageController umc = (UserMessageController) builder.getControllers()[3];
+        String[] usernames = umc.suggestReceivers(typed, SUGGESTION_COUNT);
+        String start = typed.substring(0, typed.lastIndexOf(',') + 1);
+        // nothing to complete, or the name is already complete
+        if (usernames.length == 0 || (usernames.length == 1 && typed.equals(start + usernames[0]))){
+            return;
+        }
+
+        receiverSuggestions.getItems().clear();
+        for (String username : usernames){
+            MenuItem item = new MenuItem(username);
+            item.setOnAction(event -> {
+                toField.setText(start + username);
+                toField.positionCaret(toField.getText().length());
+            });
+            receiverSuggestions.getItems().add(item);
+        }
+        receiverSuggestions.show(toField, Side.BOTTOM, 0, 0);
+    }
+
     // adds a number in case of creations with same string representation
     private String addAttachmentEntry(UUID creationID, String strRep){
         int i = 1;
@@ -28,7 +28,8 @@ public class SingleMailViewController implements UIControllerLoadable {
     private ControllerBuilder builder;
     private UUID messageID;
     private UUID mailSender;
-    private UUID viewer;
+    // token of the session of the user viewing the message
+    private String session;
 
     @FXML
     private TextArea messageArea;
@@ -57,8 +58,8 @@ public class SingleMailViewController implements UIControllerLoadable {
         }
         SendMessageViewController controller = loader.getController();
         builder.ConfigureUIController(controller, stage);
-        controller.setReplyMode(viewer, mailSender, messageID);
-        controller.setSender(viewer);
+        controller.setReplyMode(session, mailSender, messageID);
+        controller.setSession(session);
         stage.show();
     }
 
@@ -95,11 +96,11 @@ public class SingleMailViewController implements UIControllerLoadable {
      * Displays the message info to the text area in this view
      * @param info Array of message info
      * @param messageID message's UUID
-     * @param viewer UUID of user viewing message
+     * @param session token of the session of the user viewing message
      */
-    public void setMessageInfo(String[] info, UUID messageID, UUID viewer){
+    public void setMessageInfo(String[] info, UUID messageID, String session){
         this.mailSender = UUID.fromString(info[0]);
-        this.viewer = viewer;
+        this.session = session;
         UserActivityController uac = (UserActivityController) builder.getControllers()[0];
         String displayed = "";
 
@@ -108,7 +109,7 @@ public class SingleMailViewController implements UIControllerLoadable {
             // sender
             if (i % 5 == 0){
                 displayed += "--------------------------------------------------\n";
-                displayed += "From: " + uac.getDisplayedUsername(viewer, UUID.fromString(s)) + "\n";
+                displayed += "From: " + uac.getDisplayedUsername(session, UUID.fromString(s)) + "\n";
             }
             // receivers
             else if (i % 5 == 1){
@@ -137,7 +138,7 @@ public class SingleMailViewController implements UIControllerLoadable {
         StringBuilder res = new StringBuilder();
         UserActivityController uac = (UserActivityController) builder.getControllers()[0];
         for (String s : ids){
-            res.append(uac.getDisplayedUsername(viewer, UUID.fromString(s)));
+            res.append(uac.getDisplayedUsername(session, UUID.fromString(s)));
         }
         return res.toString();
     }
@@ -165,7 +166,7 @@ public class SingleMailViewController implements UIControllerLoadable {
             return null;
         }
 
-        String[] creationInfo = cc.viewCreationSummary(creationID, viewer);
+        String[] creationInfo = cc.viewCreationSummary(creationID, session);
         Button b = new Button(creationInfo[0] + " ( " + creationInfo[1] + " ) By: "+ creationInfo[2]);
 
         b.setOnAction(new EventHandler<ActionEvent>() {
@@ -105,7 +105,7 @@ public class TemplateViewController implements UIControllerLoadable, TemplateVie
     }
 
     protected void editCallback(String newPrompts, String path){
-        tp.editTemplate(path, newPrompts, "2");
+        tp.editTemplate(builder.getSession(), path, newPrompts, "2");
     }
 
     // ============== Button Action =================
@@ -176,7 +176,7 @@ public class TemplateViewController implements UIControllerLoadable, TemplateVie
 
         if (res.isPresent()){
             String path = templates.get(templateTableView.getSelectionModel().getSelectedIndex()).get("path");
-            tp.editTemplate(path, res.get(), "1");
+            tp.editTemplate(builder.getSession(), path, res.get(), "1");
         }
 
         tp.showTemplateBrowser();
@@ -3,6 +3,7 @@ package gui.user_activity;
 import gui.ControllerBuilder;
 import gui.MainMenuViewController;
 import gui.UIControllerLoadable;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -92,10 +93,15 @@ public class StartViewController implements UserStartView, UIControllerLoadable
      */
     @FXML
     void onClickLogin(){
-        boolean loggedIn = uap.Login(usernameTextField.getText(), passwordField.getText());
-        if (loggedIn){
-            showMainMenu();
-        }
+        // the password is checked off the JavaFX thread; the button stays disabled until it has been
+        loginButton.setDisable(true);
+        uap.Login(usernameTextField.getText(), passwordField.getText(), Platform::runLater).thenAccept(session -> {
+            loginButton.setDisable(false);
+            if (session != null){
+                builder.setSession(session);
+                showMainMenu();
+            }
+        });
     }
 
     /**
@@ -109,7 +115,7 @@ public class StartViewController implements UserStartView, UIControllerLoadable
         Optional<String> res = td.showAndWait();
 
         if (res.isPresent()){
-            uap.generateTempPassword(td.getEditor().getText());
+            uap.generateTempPassword(td.getEditor().getText(), Platform::runLater);
         }
     }
 
@@ -136,9 +142,16 @@ public class StartViewController implements UserStartView, UIControllerLoadable
      */
     @FXML
     void onClickStartTrial() {
-        if (uap.startTrial(usernameTextField.getText())){
+        // nothing done during the trial is saved
+        builder.getControllerInitializer().beginTrial();
+        String session = uap.startTrial(usernameTextField.getText());
+        if (session != null){
+            builder.setSession(session);
             showMainMenu();
         }
+        else {
+            builder.getControllerInitializer().endTrial();
+        }
     }
 
     /**
@@ -153,10 +166,13 @@ public class StartViewController implements UserStartView, UIControllerLoadable
             usertype = "";
         }
 
-        if (uap.Signup(username, password, email, usertype)){
-            showConfirmation("Sign up successful", "Sign up").show();
-            builder.getControllerInitializer().saveControllers();
-        }
+        // the password is hashed off the JavaFX thread
+        uap.Signup(username, password, email, usertype, Platform::runLater).thenAccept(signedUp -> {
+            if (signedUp){
+                showConfirmation("Sign up successful", "Sign up").show();
+                builder.getControllerInitializer().saveControllers();
+            }
+        });
     }
 
     /**
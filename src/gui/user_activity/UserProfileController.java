@@ -4,6 +4,7 @@ import gui.Application;
 import gui.ControllerBuilder;
 import gui.MainMenuViewController;
 import gui.UIControllerLoadable;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
@@ -11,6 +12,7 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.TextArea;
 import javafx.scene.control.TextInputDialog;
 import javafx.scene.layout.HBox;
 import javafx.scene.text.Text;
@@ -26,6 +28,9 @@ import java.util.Optional;
  * Class responsible for controlling User profile GUI
  */
 public class UserProfileController implements UIControllerLoadable, UserProfileView {
+    // number of banned users listed at once
+    private static final int BAN_LIST_SIZE = 100;
+
     private Stage stage;
     private ControllerBuilder builder;
     private UserActivityPresenter uap;
@@ -48,7 +53,7 @@ public class UserProfileController implements UIControllerLoadable, UserProfileV
         this.uap = (UserActivityPresenter) presenter;
         this.stage = stage;
         this.builder = builder;
-        uap.accessProfile();
+        uap.accessProfile(builder.getSession());
     }
 
     // ============== Update View =================
@@ -72,6 +77,22 @@ public class UserProfileController implements UIControllerLoadable, UserProfileV
         a.show();
     }
 
+    /**
+     * Show a dialog listing bans
+     * @param title title of the dialog
+     * @param bans one line per ban
+     */
+    @Override
+    public void updateBanListView(String title, String[] bans) {
+        TextArea textArea = new TextArea(bans.length == 0 ? "No bans" : String.join("\n", bans));
+        textArea.setEditable(false);
+
+        Alert a = new Alert(Alert.AlertType.INFORMATION);
+        a.setTitle(title);
+        a.getDialogPane().setContent(textArea);
+        a.show();
+    }
+
     /**
      * Show a confirmation dialog after changing the password
      * @param response a String show to the user
@@ -111,6 +132,8 @@ public class UserProfileController implements UIControllerLoadable, UserProfileV
         if (response[1].equals("admin")){
             Button banUser = constructBanButton();
             profileHBox.getChildren().add(banUser);
+            profileHBox.getChildren().add(constructBanListButton());
+            profileHBox.getChildren().add(constructBanHistoryButton());
         }
 
         stage.show();
@@ -144,14 +167,11 @@ public class UserProfileController implements UIControllerLoadable, UserProfileV
     public void onSignOut(ActionEvent actionEvent) {
         Alert a = new Alert(Alert.AlertType.CONFIRMATION);
         a.setTitle("Log out");
-        if (!uap.logOut()){
+        boolean registered = uap.logOut(builder.getSession());
+        builder.setSession(null);
+        if (!registered){
             a.setContentText("Trial successfully ended");
-            try {
-                builder.getControllerInitializer().loadControllers();
-            } catch (ClassNotFoundException e) {
-                a.setContentText("Save data could not be loaded");
-                a.setAlertType(Alert.AlertType.ERROR);
-            }
+            builder.getControllerInitializer().endTrial();
         }
         else{
             a.setContentText("Logged out successfully");
@@ -191,7 +211,7 @@ public class UserProfileController implements UIControllerLoadable, UserProfileV
                 Optional<String> duration = td.showAndWait();
 
                 if (uname.isPresent() && duration.isPresent()){
-                    uap.suspendUser(uname.get(), duration.get());
+                    uap.suspendUser(builder.getSession(), uname.get(), duration.get());
                 }
             }
         });
@@ -199,6 +219,40 @@ public class UserProfileController implements UIControllerLoadable, UserProfileV
         return banUser;
     }
 
+    /**
+     * Show the users that are banned
+     */
+    private Button constructBanListButton(){
+        Button banList = new Button("Banned users");
+        banList.setOnAction(new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(ActionEvent event) {
+                uap.showBannedUsers(builder.getSession(), BAN_LIST_SIZE);
+            }
+        });
+        return banList;
+    }
+
+    /**
+     * Show a dialog to see a user's ban history
+     */
+    private Button constructBanHistoryButton(){
+        Button banHistory = new Button("Ban history");
+        banHistory.setOnAction(new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(ActionEvent event) {
+                TextInputDialog td = new TextInputDialog("Enter username");
+                td.setTitle("Ban history");
+                Optional<String> uname = td.showAndWait();
+
+                if (uname.isPresent()){
+                    uap.showBanHistory(builder.getSession(), uname.get());
+                }
+            }
+        });
+        return banHistory;
+    }
+
     /**
      * Show a dialog to change password
      */
@@ -212,7 +266,7 @@ public class UserProfileController implements UIControllerLoadable, UserProfileV
                 Optional<String> res = td.showAndWait();
 
                 if (res.isPresent()){
-                    uap.changePassword(res.get());
+                    uap.changePassword(builder.getSession(), res.get(), Platform::runLater);
                 }
             }
         });
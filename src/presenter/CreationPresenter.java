@@ -1,11 +1,15 @@
 package presenter;
 
 import controller.CreationControllable;
+import controller.CreationPage;
+import controller.CreationSort;
 import controller.TemplateController;
 import controller.UserActivityController;
+import util.NullUserException;
 
 import java.text.ParseException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 
@@ -14,10 +18,15 @@ import java.util.UUID;
  */
 public class CreationPresenter {
 
+    private static final int PAGE_SIZE = 50;
+
     private CreationView view;
     private CreationControllable cc;
     private UserActivityController uac;
     private TemplateController tc;
+    // token of the next page of the viewer's own creations and of the others', or null if all are shown
+    private String nextOwnPage;
+    private String nextBrowsePage;
 
     /**
      * Initializes this creation presenter
@@ -30,14 +39,15 @@ public class CreationPresenter {
     }
 
     /**
-     * Makes a creation given an array of parameters, path and the creator UUID, and updates the corresponding view
+     * Makes a creation given an array of parameters, path and the creator's session, and updates the corresponding
+     * view
      * @param params array containing creation info
      * @param path path to template used to make creation
-     * @param creator UUID of the creator
+     * @param session token of the session of the creator
      */
-    public void makeCreation(String[] params, String path, UUID creator){
+    public void makeCreation(String[] params, String path, String session){
         try {
-            cc.constructCreation(params, path, creator);
+            cc.constructCreation(params, path, session);
         } catch (ParseException e) {
             view.updateCreationConstructionView(e.getMessage());
         } catch (Exception e) {
@@ -47,15 +57,18 @@ public class CreationPresenter {
 
     /**
      * Edits the creation and updates its corresponding view
+     * @param session token of the session of the editor
      * @param creationID UUID of the creation
      * @param action action user selected
      * @param input user input to the action
      */
-    public void editCreation(UUID creationID, String action, String input){
+    public void editCreation(String session, UUID creationID, String action, String input){
         try {
-            cc.editCreation(creationID, action, input);
+            cc.editCreation(session, creationID, action, input);
         } catch (ParseException e) {
             view.updateCreationEditView(e.getMessage());
+        } catch (NullUserException e) {
+            view.updateCreationEditView("Your session has expired, please log in again");
         } catch (Exception e) {
             view.updateCreationEditView("Creation could not be edited");
         }
@@ -64,14 +77,14 @@ public class CreationPresenter {
     /**
      * Show a singular creation
      * @param creationID UUID of the creation
-     * @param viewer UUID of the viewer
+     * @param session token of the session of the viewer
      */
-    public void showCreation(UUID creationID, UUID viewer){
+    public void showCreation(UUID creationID, String session){
 
         Map<String, String> res = new HashMap<>();
 
-        String[] creationParams = cc.viewCreationSummary(creationID, viewer);
-        Map<String, String> containedInfo = cc.viewCreation(creationID, viewer);
+        String[] creationParams = cc.viewCreationSummary(creationID, session);
+        Map<String, String> containedInfo = cc.viewCreation(creationID, session);
 
         res.put("name", creationParams[0]);
         res.put("type", creationParams[1]);
@@ -82,24 +95,30 @@ public class CreationPresenter {
     }
 
     /**
-     * Collect info of all creations and display it to a browser view
-     * @param viewer viewer's UUID
+     * Collect info of the first page of creations, sorted by name, and display it to a browser view
+     * @param session token of the viewer's session
      * @param viewSelf true if the user is viewing their own creation
      */
-    public void showCreationBrowser(UUID viewer, boolean viewSelf){
-        Map<UUID, String[]> res = new HashMap<>();
-        UUID[] creations;
-        if (viewSelf){
-            creations = cc.getOwnCreations(viewer);
-        }
-        else{
-            creations = cc.getBrowsableCreations(viewer);
-        }
+    public void showCreationBrowser(String session, boolean viewSelf){
+        CreationPage page = cc.browseCreations(session, viewSelf, CreationSort.NAME, PAGE_SIZE, null);
+        setNextPage(viewSelf, page.getNext());
+        view.updateCreationBrowserView(summarize(page, session), page.hasNext(), viewSelf);
+    }
 
-        for (UUID cid : creations){
-            res.put(cid, cc.viewCreationSummary(cid, viewer));
+    /**
+     * Collect info of the next page of the creations shown in a browser view, and add it to that view. Does
+     * nothing if every creation is shown.
+     * @param session token of the viewer's session
+     * @param viewSelf true for the view of the user's own creations, false for the view of the others'
+     */
+    public void showMoreCreations(String session, boolean viewSelf){
+        String token = viewSelf ? nextOwnPage : nextBrowsePage;
+        if (token == null){
+            return;
         }
-        view.updateCreationBrowserView(res);
+        CreationPage page = cc.browseCreations(session, viewSelf, CreationSort.NAME, PAGE_SIZE, token);
+        setNextPage(viewSelf, page.getNext());
+        view.appendCreationBrowserView(summarize(page, session), page.hasNext(), viewSelf);
     }
 
     /**
@@ -120,9 +139,35 @@ public class CreationPresenter {
 
     /**
      * Deletes the creation and notifies the view on the status
+     * @param session token of the session of the user deleting the creation
      * @param creation UUID of the creation to be deleted
+     * @return true if the creation was deleted
      */
-    public void deleteCreation(UUID creation){
-        cc.deleteCreation(creation);
+    public boolean deleteCreation(String session, UUID creation){
+        try {
+            cc.deleteCreation(session, creation);
+            return true;
+        } catch (NullUserException e) {
+            view.updateCreationEditView("Your session has expired, please log in again");
+        }
+        return false;
+    }
+
+    // =============== Helper methods ================
+    private void setNextPage(boolean viewSelf, String token){
+        if (viewSelf){
+            nextOwnPage = token;
+        }
+        else {
+            nextBrowsePage = token;
+        }
+    }
+
+    private Map<UUID, String[]> summarize(CreationPage page, String session){
+        Map<UUID, String[]> res = new LinkedHashMap<>();
+        for (UUID cid : page.getCreations()){
+            res.put(cid, cc.viewCreationSummary(cid, session));
+        }
+        return res;
     }
 }
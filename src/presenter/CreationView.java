@@ -31,9 +31,19 @@ public interface CreationView {
 
     /**
      * Updates the creation browser
-     * @param creations Mapping of creation UUIDs to creation info
+     * @param creations Mapping of creation UUIDs to creation info, in the order to show them in
+     * @param more true if there are more creations to be shown, which CreationPresenter.showMoreCreations adds
+     * @param own true to update the browser of the user's own creations, false for the browser of the others'
      */
-    void updateCreationBrowserView(Map<UUID, String[]> creations);
+    void updateCreationBrowserView(Map<UUID, String[]> creations, boolean more, boolean own);
+
+    /**
+     * Adds creations after those shown in the creation browser
+     * @param creations Mapping of creation UUIDs to creation info, in the order to show them in
+     * @param more true if there are more creations to be shown after these
+     * @param own true to add to the browser of the user's own creations, false to the browser of the others'
+     */
+    void appendCreationBrowserView(Map<UUID, String[]> creations, boolean more, boolean own);
 
     /**
      * Shows the prompts of a template when using to make a creation
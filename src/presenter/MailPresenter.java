@@ -29,16 +29,20 @@ public class MailPresenter {
 
     /**
      * Updates the inbox view of the user
-     * @param userID UUID of the user
+     * @param session token of the session of the user
      */
-    public void updateInbox(UUID userID){  // Also responsible for "showInbox"
+    public void updateInbox(String session){  // Also responsible for "showInbox"
         Map<UUID, String[]> res = new HashMap<>();
-        for (UUID messageID : umc.getInbox(userID)){
+        for (UUID messageID : umc.getInbox(session)){
             try {
                 String[] curr = umc.getMessageInfo(messageID, "preview");
                 res.put(messageID, curr);
             } catch (NullMesageException e) {
-                umc.deleteMessageFromInbox(messageID, userID);
+                try {
+                    umc.deleteMessageFromInbox(messageID, session);
+                } catch (NullUserException ex) {
+                    break;
+                }
             }
         }
         view.updateInboxView(res);
@@ -65,15 +69,16 @@ public class MailPresenter {
      * Reply to a message and update the view
      * @param repliedMessage the message id of the message gets replied, always the "master"/first one in a whole dialog
      *                       (the first one sent by the opposite)
+     * @param session token of the session of the sender
      * @param params message parameters
      */
-    public void replyMessage(Object[] params, UUID repliedMessage){
+    public void replyMessage(String session, Object[] params, UUID repliedMessage){
         try {
-            umc.replyMessage(params, repliedMessage);
+            umc.replyMessage(session, params, repliedMessage);
             view.updateSendingView("Message successfully sent!");
             showMessage(repliedMessage);
         } catch (NullUserException e) {
-            view.updateSendingView("One of the username input is not valid, please check before click send!");
+            view.updateSendingView("One of the username input is not valid, or your session has expired");
         } catch (MultiReceiverException e) {
             view.updateSendingView("You can only send to one user");
         }
@@ -81,15 +86,16 @@ public class MailPresenter {
 
     /**
      * Send a message and update the view
-     * @param params
+     * @param session token of the session of the sender
+     * @param params message parameters
      */
-    public void sendMessage(Object[] params){
+    public void sendMessage(String session, Object[] params){
         try {
-            umc.sendMessage(params);
+            umc.sendMessage(session, params);
             view.updateSendingView("Message successfully sent!");
 
         } catch (NullUserException e) {
-            view.updateSendingView("One of the receiver's usernames could not be found");
+            view.updateSendingView("One of the receiver's usernames could not be found, or your session has expired");
         } catch (MultiReceiverException e) {
             view.updateSendingView("Your account cannot send to multiple users");
         }
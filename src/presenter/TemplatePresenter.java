@@ -1,6 +1,7 @@
 package presenter;
 
 import controller.TemplateController;
+import util.NullUserException;
 
 import java.text.ParseException;
 import java.util.HashMap;
@@ -54,16 +55,19 @@ public class TemplatePresenter {
 
     /**
      * Edit a template and update the corresponding view
+     * @param session token of the session of the user
      * @param path path to the template
      * @param input input of the user
      * @param action selected action
      */
-    public void editTemplate(String path, String input, String action){
+    public void editTemplate(String session, String path, String input, String action){
         try {
-            tc.editTemplate(path, input, action);
+            tc.editTemplate(session, path, input, action);
             view.updateTemplateEditor("Template successfully edited");
         } catch (ParseException e) {
             view.updateTemplateEditor(e.getMessage());
+        } catch (NullUserException e) {
+            view.updateTemplateEditor("Your session has expired, please log in again");
         }
     }
 }
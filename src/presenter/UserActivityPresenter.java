@@ -3,14 +3,24 @@ package presenter;
 import controller.UserActivityController;
 import util.BannedUserException;
 import util.NullUserException;
+import util.TooManyAttemptsException;
 import util.UserSignupException;
 import util.WrongPasswordException;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Class responsible for showing information related to user activity
  */
 public class UserActivityPresenter {
 
+    // every login made through this program comes from the machine it runs on, so all of them share one source and
+    // its limit caps the attempts made here across every username
+    private static final String LOGIN_SOURCE = "local";
+
     private UserStartView startView;
     private UserProfileView profileView;
     private UserActivityController uac;
@@ -25,75 +35,108 @@ public class UserActivityPresenter {
     }
 
     /**
-     * Signs up the user and updates the view
+     * Signs up the user and updates the view. The password is hashed in the background; the view is updated through
+     * viewThread.
      * @param username username of the user
      * @param password password of the user
      * @param email email of the user
      * @param usertype user type of the user
-     * @return true if the user was registered.
+     * @param viewThread runs tasks on the thread that owns the view
+     * @return future completed on the view thread with true if the user was registered
      */
-    public boolean Signup(String username, String password, String email, String usertype){
-        try {
-            return uac.signUp(username, password, email, usertype);
-        } catch (UserSignupException e) {
-            startView.updateSignUpView(e.getMessage());
+    public CompletableFuture<Boolean> Signup(String username, String password, String email, String usertype,
+                                             Executor viewThread){
+        return uac.signUpAsync(username, password, email, usertype).handleAsync((signedUp, e) -> {
+            if (e == null){
+                return true;
+            }
+
+            Throwable cause = unwrap(e);
+            if (cause instanceof UserSignupException) {
+                startView.updateSignUpView(cause.getMessage());
+            } else if (cause instanceof RejectedExecutionException) {
+                startView.updateSignUpView("Too many sign ups at once, please try again.");
+            } else {
+                startView.updateSignUpView("Sign up failed: " + cause.getMessage());
+            }
             return false;
-        }
+        }, viewThread);
     }
 
     /**
      * Starts a trial and updates the view
      * @param username username of the trial user
-     * @return true if the trial was successfully started
+     * @return token of the trial user's session, or null if the trial could not be started
      */
-    public boolean startTrial(String username){
+    public String startTrial(String username){
         try {
-            uac.signUp(username, "", "", "Trial");
-            return true;
+            return uac.startTrial(username);
         } catch (UserSignupException e) {
             startView.updateSignUpView(e.getMessage());
         }
-        return false;
+        return null;
     }
 
     /**
-     *  Logs in a user and updates the view on the response
+     *  Logs in a user and updates the view on the response. The password is checked in the background; the user is
+     *  logged in and the view updated through viewThread.
      * @param username username of the user
      * @param password password of the user
-     * @return true if the user was able to log in
+     * @param viewThread runs tasks on the thread that owns the view and uses the managers
+     * @return future completed on the view thread with the token of the user's session, or null if the user was not
+     * able to log in
      */
-    public boolean Login(String username, String password){
-        try {
-            uac.userLogin(username, password);
-            return true;
-        } catch (NullUserException e) {
-            startView.updateLoginView("User does not exist.");
-        } catch (BannedUserException e) {
-            startView.updateLoginView("User is banned.");
-        } catch (WrongPasswordException e) {
-            startView.updateLoginView("Password is wrong.");
-        }
-        return false;
+    public CompletableFuture<String> Login(String username, String password, Executor viewThread){
+        return uac.userLoginAsync(username, password, LOGIN_SOURCE).handleAsync((login, e) -> {
+            if (e == null){
+                return uac.finishLogin(login, password);
+            }
+
+            Throwable cause = unwrap(e);
+            if (cause instanceof NullUserException) {
+                startView.updateLoginView("User does not exist.");
+            } else if (cause instanceof BannedUserException) {
+                startView.updateLoginView("User is banned.");
+            } else if (cause instanceof WrongPasswordException) {
+                startView.updateLoginView("Password is wrong.");
+            } else if (cause instanceof TooManyAttemptsException) {
+                startView.updateLoginView(cause.getMessage() + ".");
+            } else if (cause instanceof RejectedExecutionException) {
+                startView.updateLoginView("Too many logins at once, please try again.");
+            } else {
+                startView.updateLoginView("Login failed: " + cause.getMessage());
+            }
+            return null;
+        }, viewThread);
     }
 
     /**
-     * Generate a temporary password and display it
+     * Generate a temporary password and display it. The password is hashed in the background; the view is updated
+     * through viewThread.
      * @param email email of the user
+     * @param viewThread runs tasks on the thread that owns the view
      */
-    public void generateTempPassword(String email){
-        try {
-            String tempPass = uac.recoverPassword(email);
-            startView.updateRecoveryView(tempPass);
-        } catch (NullUserException e) {
-            startView.updateRecoveryView("Email not registered");
-        }
+    public void generateTempPassword(String email, Executor viewThread){
+        uac.recoverPasswordAsync(email).whenCompleteAsync((tempPass, e) -> {
+            Throwable cause = e == null ? null : unwrap(e);
+            if (cause == null) {
+                startView.updateRecoveryView(tempPass);
+            } else if (cause instanceof NullUserException) {
+                startView.updateRecoveryView("Email not registered");
+            } else if (cause instanceof RejectedExecutionException) {
+                startView.updateRecoveryView("Too many requests at once, please try again.");
+            } else {
+                startView.updateRecoveryView("Password recovery failed: " + cause.getMessage());
+            }
+        }, viewThread);
     }
 
     /**
      * Access the profile of the logged in user and display it
+     * @param session token of the user's session
      */
-    public void accessProfile(){
-        String[] res = uac.getProfile();
+    public void accessProfile(String session){
+        String[] res = uac.getProfile(session);
 
         if (res.length > 1){
             profileView.updateProfileView(res);
@@ -102,14 +145,15 @@ public class UserActivityPresenter {
 
     /**
      * Suspend a user and update the view on the response
+     * @param session token of the admin's session
      * @param username username of the user
      * @param duration duration of the ban
      */
-    public void suspendUser(String username, String duration){
+    public void suspendUser(String session, String username, String duration){
 
         String response;
         try {
-            boolean banned = uac.banUser(username, duration);
+            boolean banned = uac.banUser(session, username, duration);
             if (banned){
                 response = "User successfully banned";
             }
@@ -125,25 +169,60 @@ public class UserActivityPresenter {
     }
 
     /**
-     * Change the password and update the view on the status
-     * @param newPassword new password of the user
+     * Show the users that are banned, soonest-lifted first
+     * @param session token of the admin's session
+     * @param limit maximum number of users shown
      */
-    public void changePassword(String newPassword){
+    public void showBannedUsers(String session, int limit){
+        profileView.updateBanListView("Banned users", uac.getBannedUsers(session, limit));
+    }
+
+    /**
+     * Show every ban applied to a user
+     * @param session token of the admin's session
+     * @param username username of the user
+     */
+    public void showBanHistory(String session, String username){
         try {
-            uac.changePassword(newPassword);
-            profileView.updatePasswordChangeView("Password successfully changed");
+            profileView.updateBanListView("Bans of " + username, uac.getBanHistory(session, username));
         } catch (NullUserException e) {
-            profileView.updatePasswordChangeView("User must login to change password");
-        } catch (UserSignupException e) {
-            profileView.updatePasswordChangeView(e.getMessage());
+            profileView.updateBanView("User does not exist");
         }
     }
 
+    /**
+     * Change the password and update the view on the status. The password is hashed in the background; the view is
+     * updated through viewThread.
+     * @param session token of the user's session
+     * @param newPassword new password of the user
+     * @param viewThread runs tasks on the thread that owns the view
+     */
+    public void changePassword(String session, String newPassword, Executor viewThread){
+        uac.changePasswordAsync(session, newPassword).whenCompleteAsync((changed, e) -> {
+            Throwable cause = e == null ? null : unwrap(e);
+            if (cause == null) {
+                profileView.updatePasswordChangeView("Password successfully changed");
+            } else if (cause instanceof NullUserException) {
+                profileView.updatePasswordChangeView("User must login to change password");
+            } else if (cause instanceof RejectedExecutionException) {
+                profileView.updatePasswordChangeView("Too many password changes at once, please try again.");
+            } else {
+                profileView.updatePasswordChangeView(cause.getMessage());
+            }
+        }, viewThread);
+    }
+
     /**
      * Log out the user and update the view on the response
+     * @param session token of the user's session
      * @return true if a registered user logged out
      */
-    public boolean logOut(){
-        return uac.logOut();
+    public boolean logOut(String session){
+        return uac.logOut(session);
+    }
+
+    // =============== Helper methods ================
+    private static Throwable unwrap(Throwable e){
+        return e instanceof CompletionException ? e.getCause() : e;
     }
 }
@@ -11,6 +11,13 @@ public interface UserProfileView {
      */
     void updateBanView(String response);
 
+    /**
+     * Shows a list of bans, such as the users that are banned or the ban history of a user
+     * @param title title of the list
+     * @param bans one line per ban
+     */
+    void updateBanListView(String title, String[] bans);
+
     /**
      * Shows the result of changing the password to the view
      * @param response response from the presenter
@@ -0,0 +1,127 @@
+package use_case;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * The users that are banned, ordered by the day their ban gets lifted, so that expired bans are found without
+ * looking at the other users and the bans still active can be listed soonest-lifted first. The registry can be read
+ * and polled while other threads change it, but the ban of one user must not be put by several threads at once.
+ */
+public class BanRegistry {
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>();
+    private final Map<UUID, LocalDate> until = new ConcurrentHashMap<>();
+
+    /**
+     * Put a user's ban into this registry, replacing the ban they had.
+     * @param userID UUID of the user
+     * @param liftedOn the day the ban gets lifted, or null to remove the user's ban
+     */
+    public void put(UUID userID, LocalDate liftedOn){
+        if (liftedOn == null){
+            remove(userID);
+            return;
+        }
+        LocalDate old = until.put(userID, liftedOn);
+        entries.add(new Entry(liftedOn, userID));
+        if (old != null && !old.equals(liftedOn)){
+            entries.remove(new Entry(old, userID));
+        }
+    }
+
+    /**
+     * Remove a user's ban from this registry.
+     * @param userID UUID of the user
+     */
+    public void remove(UUID userID){
+        LocalDate old = until.remove(userID);
+        if (old != null){
+            entries.remove(new Entry(old, userID));
+        }
+    }
+
+    /**
+     * Remove the bans that are lifted on or before the given day.
+     * @param today the current day
+     * @return UUIDs of the users whose ban was removed, in the order their bans got lifted
+     */
+    public List<UUID> pollExpired(LocalDate today){
+        List<UUID> res = new ArrayList<>();
+        for (Entry entry : entries){
+            if (entry.liftedOn.isAfter(today)){
+                break;
+            }
+            // only one of the threads polling at once removes each ban
+            if (entries.remove(entry)){
+                until.remove(entry.userID, entry.liftedOn);
+                res.add(entry.userID);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Get the banned users, soonest-lifted first.
+     * @param limit maximum number of users returned
+     * @return list of at most limit user UUIDs
+     */
+    public List<UUID> getBanned(int limit){
+        List<UUID> res = new ArrayList<>();
+        for (Entry entry : entries){
+            if (res.size() == limit){
+                break;
+            }
+            res.add(entry.userID);
+        }
+        return res;
+    }
+
+    /**
+     * Get the day a user's ban gets lifted.
+     * @param userID UUID of the user
+     * @return the day the ban gets lifted, or null if the user is not in this registry
+     */
+    public LocalDate getLiftedOn(UUID userID){
+        return until.get(userID);
+    }
+
+    /**
+     * Get the number of banned users.
+     * @return number of users in this registry
+     */
+    public int size(){
+        return until.size();
+    }
+
+    /**
+     * A ban in the registry.
+     */
+    private static class Entry implements Comparable<Entry> {
+        private final LocalDate liftedOn;
+        private final UUID userID;
+
+        private Entry(LocalDate liftedOn, UUID userID){
+            this.liftedOn = liftedOn;
+            this.userID = userID;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int res = liftedOn.compareTo(other.liftedOn);
+            return res != 0 ? res : userID.compareTo(other.userID);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Entry && compareTo((Entry) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(liftedOn, userID);
+        }
+    }
+}
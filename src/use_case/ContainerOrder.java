@@ -0,0 +1,40 @@
+package use_case;
+
+/**
+ * Orders that EventContainerManager can list its EventContainers in.
+ */
+public enum ContainerOrder {
+    /**
+     * By name, ignoring case.
+     */
+    NAME,
+
+    /**
+     * By container type.
+     */
+    TYPE,
+
+    /**
+     * By when the container was made, oldest first.
+     */
+    CREATED;
+
+    /**
+     * Get the sort key of an EventContainer in this order. EventContainers are ordered by sort key, then UUID.
+     * @param name name of the EventContainer
+     * @param containerType type of the EventContainer
+     * @param created when the EventContainer was made, in milliseconds since the epoch
+     * @return sort key of the EventContainer
+     */
+    public String keyOf(String name, String containerType, long created){
+        switch (this){
+            case NAME:
+                return name.toLowerCase();
+            case TYPE:
+                return containerType;
+            default:
+                // fixed width, so that the keys sort like the times
+                return String.format("%016x", created);
+        }
+    }
+}
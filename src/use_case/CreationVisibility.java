@@ -0,0 +1,73 @@
+package use_case;
+
+import entities.user.User;
+
+import java.util.UUID;
+
+/**
+ * What a viewer may see of a creation, resolved once per request. Admins and the owner of the creation see every
+ * event in it, and other viewers only its public events. Admins and the owner also see the owner's username, while
+ * other viewers see the owner as they present themselves, such as "Anonymous User".
+ */
+public final class CreationVisibility {
+
+    private final User owner;
+    private final boolean seesPrivate;
+
+    private CreationVisibility(User owner, boolean seesPrivate){
+        this.owner = owner;
+        this.seesPrivate = seesPrivate;
+    }
+
+    /**
+     * Resolve who owns a creation and whether the viewer is its owner or an admin.
+     * @param um UserManager storing the owner and the viewer
+     * @param creationID UUID of the creation
+     * @param viewer UUID of the user viewing the creation, or null if nobody is logged in
+     * @return visibility of the creation's events to the viewer
+     */
+    public static CreationVisibility resolve(UserManager um, UUID creationID, UUID viewer){
+        UUID ownerID = um.getUserByCreation(creationID);
+        User owner = ownerID == null ? null : um.getUser(ownerID);
+        return new CreationVisibility(owner, viewer != null && (viewer.equals(ownerID) || um.isAdmin(viewer)));
+    }
+
+    /**
+     * Whether the viewer may see an event with the given privacy.
+     * @param isPrivate privacy of the event, true if it is private
+     * @return true if the event is visible to the viewer
+     */
+    public boolean canSee(boolean isPrivate){
+        return seesPrivate || !isPrivate;
+    }
+
+    // ============== Getters =================
+
+    /**
+     * Whether the viewer sees every event of the creation, private or not, so that privacy need not be checked.
+     * @return true if the viewer owns the creation or is an admin
+     */
+    public boolean seesPrivate(){
+        return seesPrivate;
+    }
+
+    /**
+     * Get the owner of the creation.
+     * @return the owner, or null if the creation has none
+     */
+    public User getOwner(){
+        return owner;
+    }
+
+    /**
+     * Get the author of the creation as shown to the viewer: the owner's username to admins and to the owner, and
+     * the owner's string representation to other viewers, which hides the username of anonymous users.
+     * @return name of the author shown to the viewer, or null if the creation has no owner
+     */
+    public String getAuthorName(){
+        if (owner == null){
+            return null;
+        }
+        return seesPrivate ? owner.getUsername() : owner.toString();
+    }
+}
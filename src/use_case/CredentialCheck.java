@@ -0,0 +1,53 @@
+package use_case;
+
+/**
+ * Outcomes of checking a username, password or email with CredentialValidator.
+ */
+public enum CredentialCheck {
+    /**
+     * The credential is valid.
+     */
+    VALID(""),
+
+    /**
+     * The username is shorter or longer than allowed.
+     */
+    USERNAME_LENGTH("Username must be between 3-15 characters long"),
+
+    /**
+     * The password is shorter or longer than allowed.
+     */
+    PASSWORD_LENGTH("password must be at least between 6-25 characters"),
+
+    /**
+     * The email is not of the form name@domain.tld.
+     */
+    EMAIL_FORMAT("Email not in correct format"),
+
+    /**
+     * The email is longer than allowed.
+     */
+    EMAIL_LENGTH("Email too long");
+
+    private final String message;
+
+    CredentialCheck(String message){
+        this.message = message;
+    }
+
+    /**
+     * Get whether the credential passed the check.
+     * @return true if this is VALID
+     */
+    public boolean isValid(){
+        return this == VALID;
+    }
+
+    /**
+     * Get the reason the credential failed the check.
+     * @return string describing why the credential is invalid, "" if it is valid
+     */
+    public String getMessage(){
+        return message;
+    }
+}
@@ -0,0 +1,167 @@
+package use_case;
+
+/**
+ * Checks usernames, passwords and emails without regular expressions. Every check is a single pass over the
+ * characters and answers with a CredentialCheck constant or an int, so checking valid credentials allocates nothing.
+ */
+public final class CredentialValidator {
+
+    /**
+     * Strength at or below which a password is too weak to be used.
+     */
+    public static final int TOO_WEAK = 3;
+
+    private static final int MIN_USERNAME = 3;
+    private static final int MAX_USERNAME = 15;
+    private static final int MIN_PASSWORD = 6;
+    private static final int MAX_PASSWORD = 25;
+    private static final int MAX_EMAIL = 320;
+
+    private CredentialValidator(){
+    }
+
+    /**
+     * Score the strength of a password: 3 for fewer than 9 characters or 4 otherwise, plus one for a symbol
+     * (anything but an ASCII letter, digit or space), one for both upper and lower case letters and one for a digit.
+     *
+     * The score is the one the regular expressions that used to score passwords gave, including for passwords with
+     * line terminators, which those expressions could not match across: such a password scores no case or digit
+     * point, and scores the symbol point only if all its line terminators are in one run of symbols.
+     * @param password the given password
+     * @return strength of the password, where <=3 - too weak, 4 - weak, 5 - med, >=6 - strong
+     */
+    public static int passwordStrength(CharSequence password){
+        boolean symbol = false;
+        boolean upper = false;
+        boolean lower = false;
+        boolean digit = false;
+        // whether a line terminator was seen, and whether a letter, digit or space was seen after the first one
+        boolean lineBreak = false;
+        boolean brokenRun = false;
+        boolean plainAfterBreak = false;
+
+        for (int i = 0; i < password.length(); i++){
+            char c = password.charAt(i);
+            if (c >= 'a' && c <= 'z'){
+                lower = true;
+                plainAfterBreak = lineBreak;
+            } else if (c >= 'A' && c <= 'Z'){
+                upper = true;
+                plainAfterBreak = lineBreak;
+            } else if (c >= '0' && c <= '9'){
+                digit = true;
+                plainAfterBreak = lineBreak;
+            } else if (c == ' '){
+                plainAfterBreak = lineBreak;
+            } else {
+                symbol = true;
+                if (isLineTerminator(c)){
+                    brokenRun |= plainAfterBreak;
+                    lineBreak = true;
+                }
+            }
+        }
+
+        int strength = password.length() < 9 ? 3 : 4;
+        if (lineBreak){
+            return brokenRun ? strength : strength + 1;
+        }
+        if (symbol){
+            strength++;
+        }
+        if (upper && lower){
+            strength++;
+        }
+        if (digit){
+            strength++;
+        }
+        return strength;
+    }
+
+    /**
+     * Check that a username is of an allowed length.
+     * @param username the given username
+     * @return VALID or USERNAME_LENGTH
+     */
+    public static CredentialCheck checkUsername(String username){
+        int length = username.length();
+        return MIN_USERNAME <= length && length <= MAX_USERNAME ? CredentialCheck.VALID : CredentialCheck.USERNAME_LENGTH;
+    }
+
+    /**
+     * Check that a password is of an allowed length.
+     * @param password the given password
+     * @return VALID or PASSWORD_LENGTH
+     */
+    public static CredentialCheck checkPassword(String password){
+        int length = password.length();
+        return MIN_PASSWORD <= length && length <= MAX_PASSWORD ? CredentialCheck.VALID : CredentialCheck.PASSWORD_LENGTH;
+    }
+
+    /**
+     * Check that an email is of the form local@label.tld, where the local part is lower case letters and digits
+     * separated by single '_', '.' or '-', the label is lower case letters, digits and '-', and the tld is 2 to 4
+     * lower case letters.
+     * @param email the given email
+     * @return VALID, EMAIL_FORMAT or EMAIL_LENGTH
+     */
+    public static CredentialCheck checkEmail(String email){
+        int at = email.indexOf('@');
+        if (at < 0 || !isLocalPart(email, at) || !isDomain(email, at + 1)){
+            return CredentialCheck.EMAIL_FORMAT;
+        }
+        if (email.length() > MAX_EMAIL){
+            return CredentialCheck.EMAIL_LENGTH;
+        }
+        return CredentialCheck.VALID;
+    }
+
+    // =============== Helper methods ================
+    private static boolean isLocalPart(String email, int end){
+        boolean afterSeparator = true;
+        for (int i = 0; i < end; i++){
+            char c = email.charAt(i);
+            if (isLowerOrDigit(c)){
+                afterSeparator = false;
+            } else if ((c == '_' || c == '.' || c == '-') && !afterSeparator){
+                afterSeparator = true;
+            } else {
+                return false;
+            }
+        }
+        return !afterSeparator;
+    }
+
+    private static boolean isDomain(String email, int start){
+        int dot = email.indexOf('.', start);
+        if (dot <= start){
+            return false;
+        }
+        for (int i = start; i < dot; i++){
+            char c = email.charAt(i);
+            if (!isLowerOrDigit(c) && c != '-'){
+                return false;
+            }
+        }
+
+        int tld = email.length() - dot - 1;
+        if (tld < 2 || tld > 4){
+            return false;
+        }
+        for (int i = dot + 1; i < email.length(); i++){
+            char c = email.charAt(i);
+            if (c < 'a' || c > 'z'){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLineTerminator(char c){
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isLowerOrDigit(char c){
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+}
@@ -2,17 +2,26 @@ package use_case;
 
 import entities.creation.EventContainer;
 
-import java.io.Serializable;
-import java.util.HashMap;
-import java.util.UUID;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An use case class responsible for manipulating and modifying EventContainers.
  */
 
-public class EventContainerManager implements Serializable {
+public class EventContainerManager extends JournaledManager {
 
-    private HashMap<UUID, EventContainer> eventContainers = new HashMap<>();
+    private static final long serialVersionUID = 5868173660934417982L;
+
+    private Map<UUID, EventContainer> eventContainers = new ConcurrentHashMap<>();
+    // containers that are not in memory are loaded, with the rest of their owner's shard, from here
+    private transient ShardSource shards;
+    // IDs of the public EventContainers in memory, rebuilt when the manager is read back
+    private transient Set<UUID> publicContainers = ConcurrentHashMap.newKeySet();
+    // the EventContainers in memory in each order they can be listed in, rebuilt when the manager is read back
+    private transient Map<ContainerOrder, SortedIndex> orders = newOrders();
 
     /**
      * Add an event container to eventContainers, and return the event container ID of the newly added event container.
@@ -22,12 +31,31 @@ public class EventContainerManager implements Serializable {
      */
     public UUID addEventContainer(String name, String type) {
         EventContainer newEventContainer = new EventContainer(name, type);
-        eventContainers.put(newEventContainer.getModuleID(), newEventContainer);
+        // no other thread knows the new UUID yet, so its lock is not needed
+        copyOnWrite(newEventContainer.getModuleID(), null);
+        putContainer(newEventContainer);
+        recordPut(newEventContainer.getModuleID(), newEventContainer);
         return newEventContainer.getModuleID();
     }
 
-    public void removeEventContainer(UUID containerID){
-        eventContainers.remove(containerID);
+    /**
+     * Remove an EventContainer, and get the events it held when it was removed. No event can be added to the
+     * EventContainer between the two.
+     * @param containerID UUID of the EventContainer.
+     * @return array of the UUIDs of the events the EventContainer held, empty if there was no such EventContainer
+     */
+    public UUID[] removeEventContainer(UUID containerID){
+        StripedLock.Held held = locks.lock(containerID);
+        try {
+            EventContainer container = findContainer(containerID);
+            copyOnWrite(containerID, container);
+            eventContainers.remove(containerID);
+            unindex(containerID);
+            recordRemove(containerID);
+            return container == null ? new UUID[0] : container.getEventCollection();
+        } finally {
+            held.unlock();
+        }
     }
 
     /**
@@ -36,7 +64,13 @@ public class EventContainerManager implements Serializable {
      * @param eventID UUID of the event.
      */
     public void addEventToContainer(UUID containerID, UUID eventID){
-        eventContainers.get(containerID).addEvent(eventID);
+        StripedLock.Held held = locks.lock(containerID);
+        try {
+            writableContainer(containerID).addEvent(eventID);
+            recordPut(containerID, findContainer(containerID));
+        } finally {
+            held.unlock();
+        }
     }
 
     /**
@@ -45,8 +79,16 @@ public class EventContainerManager implements Serializable {
      * @param events array of Event UUIDs to be added to the EventContainer.
      */
     public void addEventsToContainer(UUID containerID, UUID[] events){
-        for (UUID u : events){
-            addEventToContainer(containerID, u);
+        StripedLock.Held held = locks.lock(containerID);
+        try {
+            EventContainer container = writableContainer(containerID);
+            for (UUID u : events){
+                container.addEvent(u);
+            }
+            // record the container once rather than once per added event
+            recordPut(containerID, container);
+        } finally {
+            held.unlock();
         }
     }
 
@@ -56,7 +98,13 @@ public class EventContainerManager implements Serializable {
      * @param eventID UUID of the event to be removed from the container.
      */
     public void removeEventFromModule(UUID containerID, UUID eventID) {
-        eventContainers.get(containerID).removeEvent(eventID);
+        StripedLock.Held held = locks.lock(containerID);
+        try {
+            writableContainer(containerID).removeEvent(eventID);
+            recordPut(containerID, findContainer(containerID));
+        } finally {
+            held.unlock();
+        }
     }
 
     // ============== Getters =================
@@ -67,7 +115,7 @@ public class EventContainerManager implements Serializable {
      * @return String representation of the EventContainer.
      */
     public String getContainerName(UUID creationID) {
-        return eventContainers.get(creationID).toString();
+        return findContainer(creationID).toString();
     }
 
     /**
@@ -76,7 +124,7 @@ public class EventContainerManager implements Serializable {
      * @return EventContainer instance matching the UUID given
      */
     public EventContainer getEventContainer(UUID containerID){
-        return eventContainers.get(containerID);
+        return findContainer(containerID);
     }
 
     /**
@@ -85,7 +133,7 @@ public class EventContainerManager implements Serializable {
      * @return array of event UUIDs contained in this EventContainer.
      */
     public UUID[] getContainedEvents(UUID containerID){
-        return eventContainers.get(containerID).getEventCollection();
+        return findContainer(containerID).getEventCollection();
     }
 
     /**
@@ -94,7 +142,7 @@ public class EventContainerManager implements Serializable {
      * @return String specifying the type of Events that the EventContainer can hold.
      */
     public String getContainerType(UUID containerID){
-        return eventContainers.get(containerID).getContainerType();
+        return findContainer(containerID).getContainerType();
     }
 
     /**
@@ -103,7 +151,7 @@ public class EventContainerManager implements Serializable {
      * @return false if public, true if private
      */
     public boolean getPrivacy(UUID containerID){
-        return eventContainers.get(containerID).getPrivacy();
+        return findContainer(containerID).getPrivacy();
     }
 
     // ============== Setters =================
@@ -114,7 +162,15 @@ public class EventContainerManager implements Serializable {
      * @param newPrivacy false for public, true for private.
      */
     public void setPrivacy(UUID containerID, boolean newPrivacy){
-        eventContainers.get(containerID).setPrivacy(newPrivacy);
+        StripedLock.Held held = locks.lock(containerID);
+        try {
+            EventContainer container = writableContainer(containerID);
+            container.setPrivacy(newPrivacy);
+            putContainer(container);
+            recordPut(containerID, container);
+        } finally {
+            held.unlock();
+        }
     }
 
     /**
@@ -123,6 +179,194 @@ public class EventContainerManager implements Serializable {
      * @param newName New name of the EventContainer
      */
     public void setEventContainerName(UUID containerID, String newName){
-        eventContainers.get(containerID).setModuleName(newName);
+        StripedLock.Held held = locks.lock(containerID);
+        try {
+            EventContainer container = writableContainer(containerID);
+            container.setModuleName(newName);
+            putContainer(container);
+            recordPut(containerID, container);
+        } finally {
+            held.unlock();
+        }
+    }
+
+    /**
+     * Get every public EventContainer, including those that are not in memory, without loading them.
+     * @return array of UUIDs of the public EventContainers
+     */
+    public UUID[] getPublicContainers(){
+        Set<UUID> res = new LinkedHashSet<>(publicContainers);
+        if (shards != null){
+            addStored(res, shards.getStoredCreations(true));
+        }
+        return res.toArray(new UUID[0]);
+    }
+
+    /**
+     * Get every EventContainer, public or private, including those that are not in memory, without loading them.
+     * @return array of UUIDs of all EventContainers
+     */
+    public UUID[] getAllContainers(){
+        Set<UUID> res = new LinkedHashSet<>(eventContainers.keySet());
+        if (shards != null){
+            addStored(res, shards.getStoredCreations(false));
+        }
+        return res.toArray(new UUID[0]);
+    }
+
+    /**
+     * Get the EventContainers that come after the given position in the given order, in that order, including those
+     * that are not in memory, without loading them.
+     * @param order order to list the EventContainers in
+     * @param key sort key of the position, as returned by getSortKey, or null to start from the first EventContainer
+     * @param containerID UUID of the EventContainer at the position
+     * @param publicOnly whether to leave out the EventContainers that are private
+     * @return EventContainers after the position, which may or may not include EventContainers changed while it is
+     * read
+     */
+    public Iterable<UUID> getContainersAfter(ContainerOrder order, String key, UUID containerID, boolean publicOnly){
+        ShardSource source = shards;
+        SortedIndex.Source stored = source == null ? (storedKey, storedID, limit) -> Collections.emptyMap()
+                : (storedKey, storedID, limit) ->
+                        source.getStoredCreationsAfter(order, storedKey, storedID, publicOnly, limit);
+        return orders.get(order).after(key, containerID, id -> !publicOnly || publicContainers.contains(id), stored);
+    }
+
+    /**
+     * Get the sort key of an EventContainer in the given order. EventContainers are ordered by sort key, then UUID.
+     * @param order order of the sort key
+     * @param containerID UUID of the EventContainer
+     * @return sort key of the EventContainer, or null if it does not exist
+     */
+    public String getSortKey(ContainerOrder order, UUID containerID){
+        String res = orders.get(order).getKey(containerID);
+        if (res == null && findContainer(containerID) != null){
+            res = orders.get(order).getKey(containerID);
+        }
+        return res;
+    }
+
+    /**
+     * Whether an EventContainer is public, looked up in the shard index rather than loaded if it is not in memory.
+     * @param containerID UUID of the EventContainer
+     * @return true if the EventContainer exists and is public
+     */
+    public boolean isPublic(UUID containerID){
+        if (eventContainers.containsKey(containerID)){
+            return publicContainers.contains(containerID);
+        }
+        return shards != null && shards.isStoredPublic(containerID);
+    }
+
+    /**
+     * Keep only some EventContainers in memory, and load the others from the given source when they are needed.
+     * @param shards source of the EventContainers that are not in memory
+     */
+    public void setShardSource(ShardSource shards){
+        this.shards = shards;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<?, ?> getEntries() {
+        return Collections.unmodifiableMap(eventContainers);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replayPut(Object key, Object value) {
+        putContainer((EventContainer) value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replayRemove(Object key) {
+        eventContainers.remove((UUID) key);
+        unindex((UUID) key);
+    }
+
+    // =============== Helper methods ================
+    private void putContainer(EventContainer container){
+        eventContainers.put(container.getModuleID(), container);
+        if (container.getPrivacy()){
+            publicContainers.remove(container.getModuleID());
+        }
+        else {
+            publicContainers.add(container.getModuleID());
+        }
+        for (ContainerOrder order : ContainerOrder.values()){
+            orders.get(order).put(container.getModuleID(), sortKey(order, container));
+        }
+    }
+
+    private void unindex(UUID containerID){
+        publicContainers.remove(containerID);
+        for (SortedIndex index : orders.values()){
+            index.remove(containerID);
+        }
+    }
+
+    private String sortKey(ContainerOrder order, EventContainer container){
+        return order.keyOf(container.getModuleName(), container.getContainerType(), container.getCreated());
+    }
+
+    private static Map<ContainerOrder, SortedIndex> newOrders(){
+        Map<ContainerOrder, SortedIndex> res = new EnumMap<>(ContainerOrder.class);
+        for (ContainerOrder order : ContainerOrder.values()){
+            res.put(order, new SortedIndex());
+        }
+        return res;
+    }
+
+    private void addStored(Set<UUID> res, UUID[] stored){
+        // containers in memory are newer than the stored ones, and were added already if they qualify
+        for (UUID containerID : stored){
+            if (!eventContainers.containsKey(containerID)){
+                res.add(containerID);
+            }
+        }
+    }
+
+    private EventContainer writableContainer(UUID containerID){
+        return copyOnWrite(containerID, findContainer(containerID));
+    }
+
+    private EventContainer findContainer(UUID containerID){
+        if (containerID == null){
+            return null;
+        }
+        EventContainer container = eventContainers.get(containerID);
+        if (shards == null){
+            return container;
+        }
+        if (container != null){
+            shards.touch(containerID);
+        }
+        else {
+            UUID owner = shards.findOwner(containerID);
+            if (owner != null && shards.load(owner)){
+                container = eventContainers.get(containerID);
+            }
+        }
+        return container;
+    }
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        // snapshots written before containers could be read and written concurrently hold a HashMap
+        if (!(eventContainers instanceof ConcurrentHashMap)){
+            eventContainers = new ConcurrentHashMap<>(eventContainers);
+        }
+        publicContainers = ConcurrentHashMap.newKeySet();
+        orders = newOrders();
+        for (EventContainer container : eventContainers.values()){
+            putContainer(container);
+        }
     }
 }
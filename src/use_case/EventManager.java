@@ -2,9 +2,9 @@ package use_case;
 
 import entities.creation.Event;
 
-import java.io.Serializable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
@@ -12,12 +12,36 @@ import java.util.UUID;
  * A use case class responsible for storing events and modifying events.
  */
 
-public class EventManager implements Serializable {
+public class EventManager extends JournaledManager {
 
-    private Map<UUID, Event> events = new HashMap<>();
+    private static final long serialVersionUID = 7076553928975295560L;
+
+    private EventStore events;
+
+    /**
+     * Initializes an EventManager keeping its events on the heap.
+     */
+    public EventManager(){
+        this(new HeapEventStore());
+    }
+
+    /**
+     * Initializes an EventManager keeping its events in the given store.
+     * @param events store backing this EventManager
+     */
+    public EventManager(EventStore events){
+        this.events = events;
+    }
 
     public UUID addEvent(Event addedEvent){
-        events.put(addedEvent.getEventID(), addedEvent);
+        StripedLock.Held held = locks.lock(addedEvent.getEventID());
+        try {
+            copyOnWrite(addedEvent.getEventID(), events.get(addedEvent.getEventID()));
+            events.put(addedEvent);
+            recordPut(addedEvent.getEventID(), addedEvent);
+        } finally {
+            held.unlock();
+        }
         return addedEvent.getEventID();
     }
 
@@ -26,7 +50,14 @@ public class EventManager implements Serializable {
      * @param eventID UUID of the event to be removed.
      */
     public void removeEvent(UUID eventID){
-        events.remove(eventID);
+        StripedLock.Held held = locks.lock(eventID);
+        try {
+            copyOnWrite(eventID, events.get(eventID));
+            events.remove(eventID);
+            recordRemove(eventID);
+        } finally {
+            held.unlock();
+        }
     }
 
     // ============= Getters ==============
@@ -46,7 +77,8 @@ public class EventManager implements Serializable {
     }
 
     /**
-     * Get an event by its UUID
+     * Get an event by its UUID. Depending on the store, the instance returned may be a fresh copy, so changes to it
+     * are not guaranteed to be kept.
      * @param eventID UUID of the event.
      * @return Event instance matching the given UUID.
      */
@@ -54,6 +86,44 @@ public class EventManager implements Serializable {
         return events.get(eventID);
     }
 
-}
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<?, ?> getEntries() {
+        return events.getAll();
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replayPut(Object key, Object value) {
+        events.put((Event) value);
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replayRemove(Object key) {
+        events.remove((UUID) key);
+    }
+
+    // =============== Helper methods ================
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = input.readFields();
+        Object stored = fields.get("events", null);
+        if (stored instanceof EventStore){
+            events = (EventStore) stored;
+            return;
+        }
+        // snapshots written before events were kept in an EventStore hold them in a map
+        events = new HeapEventStore();
+        if (stored instanceof Map){
+            for (Object event : ((Map<?, ?>) stored).values()){
+                events.put((Event) event);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package use_case;
+
+import entities.creation.Event;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An Interface for the storage backing an EventManager.
+ */
+public interface EventStore {
+
+    /**
+     * Store an event, replacing any event stored under the same UUID.
+     * @param event event to be stored
+     */
+    void put(Event event);
+
+    /**
+     * Get an event by its UUID.
+     * @param eventID UUID of the event
+     * @return the stored event, or null if no event is stored under eventID
+     */
+    Event get(UUID eventID);
+
+    /**
+     * Remove an event from this store.
+     * @param eventID UUID of the event to be removed
+     */
+    void remove(UUID eventID);
+
+    /**
+     * Get every event in this store. Stores that do not keep events on the heap decode all of them, so this should
+     * only be used when every event is really needed.
+     * @return map from event UUID to event
+     */
+    Map<UUID, Event> getAll();
+}
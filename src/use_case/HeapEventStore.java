@@ -0,0 +1,51 @@
+package use_case;
+
+import entities.creation.Event;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An EventStore keeping every event on the heap.
+ */
+public class HeapEventStore implements EventStore, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Map<UUID, Event> events = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(Event event) {
+        events.put(event.getEventID(), event);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Event get(UUID eventID) {
+        return eventID == null ? null : events.get(eventID);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(UUID eventID) {
+        events.remove(eventID);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<UUID, Event> getAll() {
+        return Collections.unmodifiableMap(events);
+    }
+}
@@ -0,0 +1,205 @@
+package use_case;
+
+import java.io.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A manager whose mutations can be recorded by a MutationListener and replayed later to rebuild its state. Every
+ * recorded mutation also moves the manager's version, so that callers can tell whether it changed since they last
+ * looked at it.
+ * <p>
+ * Managers are used by several threads at once. Entities are kept in concurrent maps so that they can be read without
+ * locking, while mutations that must not interleave with others on the same keys hold the keys' locks.
+ */
+public abstract class JournaledManager implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // stands for an entity that did not exist when the overlay was started
+    private static final Object ABSENT = new Object();
+    private static final int LOCK_STRIPES = 64;
+
+    // held by mutations of the entities under the given keys; replayPut and replayRemove must not take them, since
+    // they are called while a ShardSource is locked
+    protected transient StripedLock locks = new StripedLock(LOCK_STRIPES);
+    private transient volatile MutationListener listener;
+    private transient AtomicLong version = new AtomicLong();
+    // entities as they were before the overlay was started, keyed like replayPut, or null if there is no overlay
+    private transient volatile Map<Object, Object> overlay;
+
+    /**
+     * Get the modification version of this manager. The version moves every time the manager is mutated.
+     * @return the current modification version
+     */
+    public long getVersion(){
+        return version.get();
+    }
+
+    /**
+     * Set the listener notified of every mutation made to this manager.
+     * @param listener listener to be notified, or null to stop recording mutations
+     */
+    public void setMutationListener(MutationListener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Start a copy-on-write overlay over this manager. From now on, the first mutation of each entity is made on a
+     * copy of it, and the original is kept aside until the overlay is ended. Does nothing if an overlay is already
+     * started.
+     */
+    public synchronized void beginOverlay(){
+        if (overlay == null){
+            overlay = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * End the overlay, dropping every mutation made since it was started. Only the entities mutated under the
+     * overlay are touched, and the changes are not recorded.
+     */
+    public synchronized void endOverlay(){
+        if (overlay == null){
+            return;
+        }
+
+        Map<Object, Object> originals = overlay;
+        overlay = null;
+        for (Map.Entry<Object, Object> entry : originals.entrySet()){
+            if (entry.getValue() == ABSENT){
+                replayRemove(entry.getKey());
+            }
+            else {
+                replayPut(entry.getKey(), entry.getValue());
+            }
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Whether an overlay is started over this manager.
+     * @return true if mutations are being made on copies until endOverlay is called
+     */
+    public boolean hasOverlay(){
+        return overlay != null;
+    }
+
+    /**
+     * Get a read-only view of every entity stored in this manager, keyed the same way as replayPut.
+     * @return map from key to entity
+     */
+    public abstract Map<?, ?> getEntries();
+
+    /**
+     * Acquire the locks that mutations of the given keys hold, so that the entities stored under those keys do not
+     * change until they are released. Used to read entities whole while the manager is in use, such as to write them
+     * to a snapshot.
+     * @param keys the keys, of which nulls are skipped
+     * @return the acquired locks, to be released by calling unlock in a finally block
+     */
+    public StripedLock.Held lockKeys(Object... keys){
+        return locks.lock(keys);
+    }
+
+    /**
+     * Acquire the locks of the given keys like lockKeys, but only if no mutation of them is running, without waiting.
+     * @param keys the keys, of which nulls are skipped
+     * @return the acquired locks, to be released by calling unlock in a finally block, or null if a mutation of one of
+     * the keys is running
+     */
+    public StripedLock.Held tryLockKeys(Object... keys){
+        return locks.tryLock(keys);
+    }
+
+    /**
+     * Put an entity into this manager without recording the change. Used when replaying recorded mutations.
+     * @param key key of the entity
+     * @param value the entity to be stored
+     */
+    public abstract void replayPut(Object key, Object value);
+
+    /**
+     * Remove an entity from this manager without recording the change. Used when replaying recorded mutations.
+     * @param key key of the entity
+     */
+    public abstract void replayRemove(Object key);
+
+    /**
+     * Get the entity to mutate for the given key. Must be called before the entity is mutated, added or removed.
+     * If an overlay is started and the entity was not mutated under it yet, the current entity is kept aside and a
+     * copy of it replaces it in this manager; otherwise the current entity is returned as it is. Callers must hold
+     * the lock of key.
+     * @param key key of the entity
+     * @param current the entity currently stored under key, or null if there is none
+     * @param <T> type of the entity
+     * @return the entity the mutation should be made on, or null if there is none
+     */
+    protected <T> T copyOnWrite(Object key, T current){
+        Map<Object, Object> originals = overlay;
+        if (originals == null || originals.putIfAbsent(key, current == null ? ABSENT : current) != null){
+            return current;
+        }
+
+        if (current == null){
+            return null;
+        }
+        T copy = copyOf(current);
+        replayPut(key, copy);
+        return copy;
+    }
+
+    /**
+     * Record that the entity stored under key was added or modified.
+     * @param key key of the entity
+     * @param value the entity after the mutation
+     */
+    protected void recordPut(Object key, Object value){
+        version.incrementAndGet();
+        MutationListener listener = this.listener;
+        if (listener != null){
+            listener.onPut(key, value);
+        }
+    }
+
+    /**
+     * Record that the entity stored under key was removed.
+     * @param key key of the entity
+     */
+    protected void recordRemove(Object key){
+        version.incrementAndGet();
+        MutationListener listener = this.listener;
+        if (listener != null){
+            listener.onRemove(key);
+        }
+    }
+
+    // =============== Helper methods ================
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        locks = new StripedLock(LOCK_STRIPES);
+        version = new AtomicLong();
+    }
+
+    private void readObjectNoData() throws ObjectStreamException {
+        // snapshots written before the managers were journaled hold no fields of this class
+        locks = new StripedLock(LOCK_STRIPES);
+        version = new AtomicLong();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copyOf(T entity){
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(entity);
+            }
+            try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (T) input.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Entity could not be copied", e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package use_case;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how often something can be attempted per key, such as logins per username, with a token bucket for each
+ * key. A bucket holds up to burst tokens, each attempt takes one, and one token comes back every refill period.
+ *
+ * Each bucket is a single AtomicLong holding the time at which it will be full again, so an attempt is allowed or
+ * rejected with one compare-and-set and no locking. A full bucket is the same as no bucket, so full buckets are
+ * dropped once there are maxBuckets of them. A bucket that is still refilling is never dropped, since dropping it
+ * would give its key a full bucket again; while every bucket is refilling, keys without a bucket are rejected until
+ * the first of them is full.
+ */
+public class LoginThrottle {
+
+    private final long refillNanos;
+    private final long burstNanos;
+    private final int maxBuckets;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    // when the first bucket left by the last sweep is full, so that no sweep runs before one can drop a bucket
+    private volatile long nextSweep = Long.MIN_VALUE;
+
+    /**
+     * Initializes a LoginThrottle.
+     * @param burst number of attempts a key can make at once after being idle
+     * @param refillMillis time for one attempt to come back, in milliseconds
+     * @param maxBuckets number of keys kept at most; full buckets are dropped to make room for new keys
+     */
+    public LoginThrottle(int burst, long refillMillis, int maxBuckets){
+        this.refillNanos = TimeUnit.MILLISECONDS.toNanos(refillMillis);
+        this.burstNanos = refillNanos * (burst - 1);
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Take one attempt from the bucket of a key, if it has one left.
+     * @param key the key, such as a username
+     * @return 0 if the attempt is allowed, otherwise the time until it would be, in milliseconds
+     */
+    public long tryAcquire(String key){
+        long now = System.nanoTime();
+        while (true){
+            AtomicLong bucket = bucket(key, now);
+            if (bucket == null){
+                // every bucket is refilling, so new keys wait for the first to be full
+                long firstFull = nextSweep;
+                return firstFull > now ? Math.max(1, TimeUnit.NANOSECONDS.toMillis(firstFull - now)) : 1;
+            }
+            long fullAt = bucket.get();
+            long start = Math.max(fullAt, now);
+            long wait = start - now - burstNanos;
+            if (wait > 0){
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait));
+            }
+            if (bucket.compareAndSet(fullAt, start + refillNanos) && buckets.get(key) == bucket){
+                return 0;
+            }
+            // lost a race with another attempt, or the bucket was dropped as full in the meantime
+        }
+    }
+
+    /**
+     * Give a key a full bucket again, such as after a successful login.
+     * @param key the key
+     */
+    public void reset(String key){
+        buckets.remove(key);
+    }
+
+    /**
+     * Get the number of keys that have a bucket.
+     * @return number of buckets kept
+     */
+    public int getBucketCount(){
+        return buckets.size();
+    }
+
+    // =============== Helper methods ================
+
+    /**
+     * Get the bucket of a key, making one if the key has none and there is room for it.
+     * @return the bucket, or null if the key has none and every bucket is refilling
+     */
+    private AtomicLong bucket(String key, long now){
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null){
+            return bucket;
+        }
+
+        if (buckets.size() >= maxBuckets){
+            sweep(now);
+            if (buckets.size() >= maxBuckets){
+                return null;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+    }
+
+    /**
+     * Drop the buckets that are full. Only buckets that are full can be dropped, since a bucket still refilling holds
+     * the attempts its key made. Does nothing before the first bucket left by the last sweep is full, so that keys
+     * rejected while every bucket is refilling do not each walk every bucket.
+     */
+    private void sweep(long now){
+        if (now < nextSweep || !sweeping.compareAndSet(false, true)){
+            return;
+        }
+        try {
+            long firstFull = Long.MAX_VALUE;
+            Iterator<Map.Entry<String, AtomicLong>> entries = buckets.entrySet().iterator();
+            while (entries.hasNext()){
+                Map.Entry<String, AtomicLong> entry = entries.next();
+                long fullAt = entry.getValue().get();
+                if (fullAt <= now){
+                    buckets.remove(entry.getKey(), entry.getValue());
+                }
+                else {
+                    firstFull = Math.min(firstFull, fullAt);
+                }
+            }
+            // buckets made after this sweep started are full no sooner than one refill from now
+            nextSweep = Math.min(firstFull, now + refillNanos);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package use_case;
+
+import java.util.UUID;
+
+/**
+ * An Interface for storage that keeps the full content of messages away from their headers, so that only the
+ * bodies of messages actually opened need to be in memory.
+ */
+public interface MessageBodyStore {
+
+    /**
+     * Store the full content of a message.
+     * @param messageID UUID of the message
+     * @param body full content of the message
+     */
+    void putBody(UUID messageID, String body);
+
+    /**
+     * Get the full content of a message.
+     * @param messageID UUID of the message
+     * @return full content of the message, or null if none is stored
+     */
+    String getBody(UUID messageID);
+
+    /**
+     * Get whether the full content of a message is stored, without loading it.
+     * @param messageID UUID of the message
+     * @return true if a body is stored for messageID
+     */
+    boolean hasBody(UUID messageID);
+}
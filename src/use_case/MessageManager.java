@@ -3,15 +3,28 @@ package use_case;
 import entities.Message;
 import util.NullMesageException;
 
-import java.io.Serializable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A use case class responsible for storing and retrieving messages. When a MessageBodyStore is set, messages are kept
+ * as headers holding only a preview of their content, and the full content is fetched from the store when a message
+ * is opened.
+ */
+public class MessageManager extends JournaledManager {
+    private static final long serialVersionUID = -2386709835174076668L;
+
+    // length of content kept in a message header, long enough for getMessagePreview
+    private static final int PREVIEW_LENGTH = 50;
 
-public class MessageManager implements Serializable {
     private Map<UUID, Message> messages;
+    private transient MessageBodyStore bodies;
 
 
     public MessageManager(){
-        this.messages = new HashMap<>();
+        this.messages = new ConcurrentHashMap<>();
     }
 
     /**
@@ -24,8 +37,19 @@ public class MessageManager implements Serializable {
      * @return the messageID of this newly added message.
      */
     public UUID addMessage(UUID senderUserID, List<UUID> receiverIDs, String title, String content, UUID[] attached){
-        Message message = new Message(senderUserID, receiverIDs, title, content, attached);
+        if (bodies == null){
+            Message message = new Message(senderUserID, receiverIDs, title, content, attached);
+            copyOnWrite(message.getMessageID(), null);
+            messages.put(message.getMessageID(), message);
+            recordPut(message.getMessageID(), message);
+            return message.getMessageID();
+        }
+
+        Message message = new Message(senderUserID, receiverIDs, title, getChar(content, PREVIEW_LENGTH), attached);
+        bodies.putBody(message.getMessageID(), content);
+        copyOnWrite(message.getMessageID(), null);
         messages.put(message.getMessageID(), message);
+        recordPut(message.getMessageID(), message);
         return message.getMessageID();
     }
 
@@ -40,13 +64,13 @@ public class MessageManager implements Serializable {
      * 3 - attached creation UUIDs as string (comma separated)
      */
     public String[] getMessageInfo(UUID messageID) throws NullMesageException {
-        Message currMsg = messages.get(messageID);
+        Message currMsg = findMessage(messageID);
         if (currMsg == null){
             throw new NullMesageException();
         }
 
         String title = currMsg.getTitle();
-        String content = currMsg.getContent();
+        String content = getFullContent(currMsg);
         String creationLinkStr = "";
         String receivers = "";
 
@@ -82,7 +106,7 @@ public class MessageManager implements Serializable {
      */
     public String[] getMessagePreview(UUID messageID) throws NullMesageException {
 
-        Message currMsg = messages.get(messageID);
+        Message currMsg = findMessage(messageID);
 
         if (currMsg == null){
             throw new NullMesageException();
@@ -95,6 +119,63 @@ public class MessageManager implements Serializable {
 
     }
 
+    /**
+     * Keep the full content of messages in the given store, and only a preview of it in each message. Messages that
+     * still hold their full content have it moved into the store.
+     * @param bodies store for the full content of messages
+     */
+    public void setBodyStore(MessageBodyStore bodies){
+        this.bodies = bodies;
+
+        for (Message message : new ArrayList<>(messages.values())){
+            if (message.getContent().length() > PREVIEW_LENGTH){
+                if (!bodies.hasBody(message.getMessageID())){
+                    bodies.putBody(message.getMessageID(), message.getContent());
+                }
+                messages.put(message.getMessageID(), toHeader(message));
+            }
+        }
+    }
+
+    /**
+     * Get the full content of a message, from the body store if it is kept there.
+     * @param message the message
+     * @return full content of the message
+     */
+    private String getFullContent(Message message){
+        if (bodies != null){
+            String body = bodies.getBody(message.getMessageID());
+            if (body != null){
+                return body;
+            }
+        }
+        return message.getContent();
+    }
+
+    /**
+     * Copy a message, keeping only a preview of its content.
+     * @param message the message to be copied
+     * @return header of the message
+     */
+    private Message toHeader(Message message){
+        Message header = new Message(message.getMessageID(), message.getSender(), message.getReceiverIDs(),
+                message.getTitle(), getChar(message.getContent(), PREVIEW_LENGTH),
+                message.getAttachments().toArray(new UUID[0]));
+        for (UUID followUp : message.getFollowUpMessageIDs()){
+            header.addFollowupMessage(followUp);
+        }
+        return header;
+    }
+
+    /**
+     * Get a message by its UUID.
+     * @param messageID UUID of the message, or null
+     * @return the message, or null if there is none
+     */
+    private Message findMessage(UUID messageID){
+        return messageID == null ? null : messages.get(messageID);
+    }
+
     /**
      * Helper for getPreviewMessageInfo, return fixed amount of first few characters of a given string.
      * @param str string given to be cut
@@ -110,12 +191,50 @@ public class MessageManager implements Serializable {
         }
     }
 
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        // snapshots written before messages could be read and written concurrently hold a HashMap
+        if (!(messages instanceof ConcurrentHashMap)){
+            messages = new ConcurrentHashMap<>(messages);
+        }
+    }
+
     /**
      * Add the id of given reply message to the follow-up message ids of the given replied message.
      * @param repliedMessageID the message id of the message being replied
      * @param replyMessageID the message id of the reply message
      */
     public void AddFollowUpToMessage(UUID repliedMessageID, UUID replyMessageID) {
-        messages.get(repliedMessageID).addFollowupMessage(replyMessageID);
+        StripedLock.Held held = locks.lock(repliedMessageID);
+        try {
+            copyOnWrite(repliedMessageID, messages.get(repliedMessageID)).addFollowupMessage(replyMessageID);
+            recordPut(repliedMessageID, messages.get(repliedMessageID));
+        } finally {
+            held.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<?, ?> getEntries() {
+        return Collections.unmodifiableMap(messages);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replayPut(Object key, Object value) {
+        messages.put((UUID) key, (Message) value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replayRemove(Object key) {
+        messages.remove((UUID) key);
     }
 }
@@ -0,0 +1,21 @@
+package use_case;
+
+/**
+ * An Interface where classes implementing it are notified of every mutation made to a manager, so that the change
+ * can be persisted without re-saving the whole manager.
+ */
+public interface MutationListener {
+
+    /**
+     * Called after the entity stored under key has been added or modified.
+     * @param key key of the entity in the manager
+     * @param value the entity in its state after the mutation
+     */
+    void onPut(Object key, Object value);
+
+    /**
+     * Called after the entity stored under key has been removed.
+     * @param key key of the removed entity
+     */
+    void onRemove(Object key);
+}
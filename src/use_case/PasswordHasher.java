@@ -0,0 +1,296 @@
+package use_case;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Hashes and verifies passwords with salted PBKDF2 on a fixed pool of worker threads, so the work never runs on the
+ * thread calling it. The number of iterations is calibrated when the hasher is made, so that one hash takes about a
+ * target time on this machine. At most a bounded number of passwords can be waiting or being hashed at once; passwords
+ * past that are queued until a slot frees up, and rejected if none does before a timeout. Callers never wait: every
+ * method returns a future at once.
+ *
+ * Stored values have the form pbkdf2$iterations$salt$hash. Values without that form are passwords saved before
+ * hashing was introduced, and are compared as they are. Values that cannot be parsed never match.
+ */
+public class PasswordHasher {
+
+    /**
+     * Time one hash is calibrated to take by default, in milliseconds.
+     */
+    public static final long TARGET_MILLIS = 100;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final int MIN_ITERATIONS = 10000;
+    private static final int CALIBRATION_ITERATIONS = 10000;
+    private static final int CALIBRATION_ROUNDS = 5;
+    private static final long ADMIT_MILLIS = 2000;
+    // calibration varies between runs, so only hashes well below the current iterations are redone
+    private static final int REHASH_FACTOR = 2;
+
+    private static PasswordHasher defaultHasher;
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timeouts;
+    // passwords past the capacity, waiting for a slot; guarded by itself along with freeSlots
+    private final Deque<Runnable> queued = new ArrayDeque<>();
+    private int freeSlots;
+    private final long admitMillis;
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Initializes a PasswordHasher, calibrating its iterations to targetMillis.
+     * @param threads number of worker threads
+     * @param capacity number of passwords that can be waiting or being hashed at once, at least threads
+     * @param admitMillis how long a password is queued for a slot when capacity passwords are already in the pool
+     * @param targetMillis time one hash should take, in milliseconds
+     */
+    public PasswordHasher(int threads, int capacity, long admitMillis, long targetMillis){
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "password-hasher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timeouts = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "password-hasher-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.freeSlots = Math.max(threads, capacity);
+        this.admitMillis = admitMillis;
+        this.iterations = calibrate(targetMillis);
+    }
+
+    /**
+     * Get the hasher shared by the managers, making and calibrating it on first use. It has one thread per
+     * processor and lets four passwords per thread wait.
+     * @return the shared hasher
+     */
+    public static synchronized PasswordHasher getDefault(){
+        if (defaultHasher == null){
+            int threads = Runtime.getRuntime().availableProcessors();
+            defaultHasher = new PasswordHasher(threads, threads * 4, ADMIT_MILLIS, TARGET_MILLIS);
+        }
+        return defaultHasher;
+    }
+
+    /**
+     * Hash a password with a new salt.
+     * @param password the password
+     * @return future completed with the value to store, or with a RejectedExecutionException if no slot freed up
+     * in time
+     */
+    public CompletableFuture<String> hash(String password){
+        return submit(() -> encode(password));
+    }
+
+    /**
+     * Check a password against stored values.
+     * @param password the password given by the user
+     * @param stored stored values to check against; null values never match
+     * @return future completed with whether the password matches any of the stored values, or with a
+     * RejectedExecutionException if no slot freed up in time
+     */
+    public CompletableFuture<Boolean> verify(String password, String... stored){
+        return submit(() -> indexOfMatch(password, stored) >= 0);
+    }
+
+    /**
+     * Check a password against stored values, telling which one it matched.
+     * @param password the password given by the user
+     * @param stored stored values to check against; null values never match
+     * @return future completed with the index of the first stored value the password matches, or -1 if it matches
+     * none, or with a RejectedExecutionException if no slot freed up in time
+     */
+    public CompletableFuture<Integer> match(String password, String... stored){
+        return submit(() -> indexOfMatch(password, stored));
+    }
+
+    /**
+     * Get whether a stored value should be replaced by a new hash of the same password, because it was saved before
+     * hashing, or with less than half the iterations this hasher uses.
+     * @param stored stored value
+     * @return true if the value should be hashed again
+     */
+    public boolean needsRehash(String stored){
+        if (!isHashed(stored)){
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        int storedIterations = parts.length == 4 ? parseIterations(parts[1]) : -1;
+        return storedIterations < iterations / REHASH_FACTOR;
+    }
+
+    /**
+     * Get whether a stored value is a hash rather than a password saved before hashing.
+     * @param stored stored value
+     * @return true if the value is a hash
+     */
+    public static boolean isHashed(String stored){
+        return stored != null && stored.startsWith(PREFIX);
+    }
+
+    // ============== Getters =================
+
+    /**
+     * Get the number of iterations new hashes use.
+     * @return calibrated number of iterations
+     */
+    public int getIterations(){
+        return iterations;
+    }
+
+    /**
+     * Get the number of further passwords the pool can take before they have to be queued.
+     * @return number of free slots
+     */
+    public int getFreeSlots(){
+        synchronized (queued){
+            return freeSlots;
+        }
+    }
+
+    // =============== Helper methods ================
+    private <T> CompletableFuture<T> submit(Supplier<T> task){
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> execute(task, result);
+        synchronized (queued){
+            if (freeSlots > 0){
+                freeSlots--;
+            }
+            else {
+                queued.addLast(start);
+                timeouts.schedule(() -> {
+                    synchronized (queued){
+                        if (!queued.remove(start)){
+                            return;
+                        }
+                    }
+                    result.completeExceptionally(
+                            new RejectedExecutionException("Too many passwords waiting to be hashed"));
+                }, admitMillis, TimeUnit.MILLISECONDS);
+                return result;
+            }
+        }
+        start.run();
+        return result;
+    }
+
+    private <T> void execute(Supplier<T> task, CompletableFuture<T> result){
+        try {
+            workers.execute(() -> {
+                try {
+                    result.complete(task.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release();
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void release(){
+        Runnable next;
+        synchronized (queued){
+            next = queued.pollFirst();
+            if (next == null){
+                freeSlots++;
+                return;
+            }
+        }
+        // the slot passes straight to the oldest queued password
+        next.run();
+    }
+
+    private String encode(String password){
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + iterations + "$" + base64.encodeToString(salt) + "$"
+                + base64.encodeToString(derive(password, salt, iterations));
+    }
+
+    private int indexOfMatch(String password, String[] stored){
+        for (int i = 0; i < stored.length; i++){
+            if (stored[i] != null && matches(password, stored[i])){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(String password, String stored){
+        if (!isHashed(stored)){
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] parts = stored.split("\\$");
+        int storedIterations = parts.length == 4 ? parseIterations(parts[1]) : -1;
+        if (storedIterations <= 0){
+            return false;
+        }
+        Base64.Decoder base64 = Base64.getDecoder();
+        try {
+            byte[] expected = base64.decode(parts[3]);
+            return MessageDigest.isEqual(expected, derive(password, base64.decode(parts[2]), storedIterations));
+        } catch (IllegalArgumentException e) {
+            // not valid Base64
+            return false;
+        }
+    }
+
+    private static int parseIterations(String value){
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations){
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static int calibrate(long targetMillis){
+        byte[] salt = new byte[SALT_BYTES];
+        long[] rounds = new long[CALIBRATION_ROUNDS];
+        // warm up the JIT first, then take the median round so one disturbed round does not skew the result
+        derive("calibration", salt, CALIBRATION_ITERATIONS);
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++){
+            long start = System.nanoTime();
+            derive("calibration", salt, CALIBRATION_ITERATIONS);
+            rounds[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(rounds);
+
+        long median = Math.max(1, rounds[CALIBRATION_ROUNDS / 2]);
+        long scaled = CALIBRATION_ITERATIONS * targetMillis * 1000000 / median;
+        return (int) Math.max(MIN_ITERATIONS, Math.min(Integer.MAX_VALUE, scaled));
+    }
+}
@@ -0,0 +1,139 @@
+package use_case;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the sessions of the users logged in to this program, so that many users can be logged in at once. Each
+ * session is identified by an opaque random token, which is looked up in a concurrent map in constant time.
+ * A session that has not been used for the idle timeout expires: it is dropped when it is next looked up, and idle
+ * sessions are swept out every few hundred new sessions, so the map does not grow with sessions nobody closed.
+ */
+public class SessionManager {
+
+    /**
+     * Time after which an unused session expires by default, in milliseconds.
+     */
+    public static final long IDLE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    /**
+     * Idle timeout of sessions that never expire, such as the session of the user of the desktop program.
+     */
+    public static final long NEVER_IDLE = Long.MAX_VALUE;
+
+    private static final int TOKEN_BYTES = 24;
+    // sessions opened between sweeps of the idle ones
+    private static final int SWEEP_EVERY = 512;
+
+    private final long idleNanos;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger opened = new AtomicInteger();
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Initializes a SessionManager whose sessions expire after IDLE_MILLIS.
+     */
+    public SessionManager(){
+        this(IDLE_MILLIS);
+    }
+
+    /**
+     * Initializes a SessionManager.
+     * @param idleMillis time after which an unused session expires, in milliseconds, or NEVER_IDLE
+     */
+    public SessionManager(long idleMillis){
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    }
+
+    /**
+     * Open a session for a user.
+     * @param userID UUID of the user
+     * @return token of the new session
+     */
+    public String open(UUID userID){
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(userID, System.nanoTime()));
+
+        if (opened.incrementAndGet() % SWEEP_EVERY == 0){
+            evictIdle();
+        }
+        return token;
+    }
+
+    /**
+     * Get the user of a session, and keep the session from expiring for another idle timeout.
+     * @param token token of the session, may be null
+     * @return UUID of the user, or null if there is no such session or it has expired
+     */
+    public UUID getUser(String token){
+        if (token == null){
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null){
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (session.isIdle(now, idleNanos)){
+            sessions.computeIfPresent(token, (k, s) -> s.isIdle(now, idleNanos) ? null : s);
+            return null;
+        }
+        session.lastUsed = now;
+        return session.userID;
+    }
+
+    /**
+     * Close a session.
+     * @param token token of the session, may be null
+     * @return UUID of the user of the session, or null if there was no such session
+     */
+    public UUID close(String token){
+        Session session = token == null ? null : sessions.remove(token);
+        return session == null ? null : session.userID;
+    }
+
+    /**
+     * Drop every session that has expired.
+     * @return number of sessions dropped
+     */
+    public int evictIdle(){
+        long now = System.nanoTime();
+        int before = sessions.size();
+        for (String token : sessions.keySet()){
+            sessions.computeIfPresent(token, (k, s) -> s.isIdle(now, idleNanos) ? null : s);
+        }
+        return Math.max(0, before - sessions.size());
+    }
+
+    /**
+     * Get the number of sessions, including expired ones that have not been dropped yet.
+     * @return number of sessions kept
+     */
+    public int size(){
+        return sessions.size();
+    }
+
+    /**
+     * A session of a user.
+     */
+    private static class Session {
+        private final UUID userID;
+        private volatile long lastUsed;
+
+        private Session(UUID userID, long lastUsed){
+            this.userID = userID;
+            this.lastUsed = lastUsed;
+        }
+
+        private boolean isIdle(long now, long idleNanos){
+            return now - lastUsed > idleNanos;
+        }
+    }
+}
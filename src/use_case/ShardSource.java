@@ -0,0 +1,114 @@
+package use_case;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A source of user data that is not kept in memory. Each user's data is stored in a separate shard, which is loaded
+ * into the managers the first time it is needed, and an index of every stored user answers lookups without loading
+ * their shard.
+ */
+public interface ShardSource {
+
+    /**
+     * Find a stored user by username.
+     * @param username username of the user
+     * @return UUID of the user, or null if no stored user has this username
+     */
+    UUID findUserByUsername(String username);
+
+    /**
+     * Find a stored user by email.
+     * @param email email of the user
+     * @return UUID of the user, or null if no stored user has this email
+     */
+    UUID findUserByEmail(String email);
+
+    /**
+     * Find the usernames of stored users that start with the given prefix.
+     * @param prefix prefix of the usernames
+     * @param limit maximum number of usernames returned
+     * @return array of at most limit usernames, in alphabetical order
+     */
+    String[] findUsernamesByPrefix(String prefix, int limit);
+
+    /**
+     * Find the stored user owning a creation.
+     * @param creationID UUID of the creation
+     * @return UUID of the owner, or null if no stored user owns this creation
+     */
+    UUID findOwner(UUID creationID);
+
+    /**
+     * Get every stored user.
+     * @return array of user UUIDs
+     */
+    UUID[] getUserIDs();
+
+    /**
+     * Get the creations of a stored user, without loading their shard.
+     * @param userID UUID of the user
+     * @return array of creation UUIDs, empty if the user is not stored
+     */
+    UUID[] getCreations(UUID userID);
+
+    /**
+     * Get the creations of every stored user that is not in memory, without loading them.
+     * @param publicOnly whether to leave out the creations that are private
+     * @return array of creation UUIDs
+     */
+    UUID[] getStoredCreations(boolean publicOnly);
+
+    /**
+     * Get the creations of the stored users that are not in memory that come after the given position in the given
+     * order, in that order, without loading them.
+     * @param order order of the creations
+     * @param key sort key of the position, or null to start from the first creation
+     * @param creationID UUID of the creation at the position
+     * @param publicOnly whether to leave out the creations that are private
+     * @param limit maximum number of creations returned
+     * @return map from UUID to sort key of at most limit creations, in order, with fewer than limit only if no
+     * creations are left
+     */
+    Map<UUID, String> getStoredCreationsAfter(ContainerOrder order, String key, UUID creationID, boolean publicOnly,
+                                              int limit);
+
+    /**
+     * Get the stored users that are not in memory that come after the given user by username, in that order,
+     * without loading them. Users with the same username are ordered by UUID.
+     * @param username username of the position, or null to start from the first user
+     * @param userID UUID of the user at the position
+     * @param limit maximum number of users returned
+     * @return map from UUID to username of at most limit users, in order, with fewer than limit only if no users
+     * are left
+     */
+    Map<UUID, String> getStoredUsersAfter(String username, UUID userID, int limit);
+
+    /**
+     * Whether a stored creation is public, without loading it.
+     * @param creationID UUID of the creation
+     * @return true if the creation is stored and public
+     */
+    boolean isStoredPublic(UUID creationID);
+
+    /**
+     * Get the day the ban of each banned stored user that is not in memory gets lifted, without loading them.
+     * @return map from user UUID to the day their ban gets lifted
+     */
+    Map<UUID, LocalDate> getStoredBans();
+
+    /**
+     * Note that a user or creation in memory was just read, so that its shard is not evicted as idle while it is in
+     * use. Called on every read, so it never waits for a lock.
+     * @param id UUID of the user or creation
+     */
+    void touch(UUID id);
+
+    /**
+     * Load a user's shard into the managers. Entities already in memory are newer than the shard and are kept.
+     * @param userID UUID of the user
+     * @return true if the shard was loaded by this call
+     */
+    boolean load(UUID userID);
+}
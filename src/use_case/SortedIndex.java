@@ -0,0 +1,239 @@
+package use_case;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+/**
+ * An index ordering entities by a sort key, so that they can be read a page at a time. Entities with equal keys are
+ * ordered by UUID, so that every entity has its own position for a page to start after. The index can be read while
+ * other threads change it, but the changes of one entity must not be made by several threads at once.
+ */
+public class SortedIndex {
+
+    // number of entities read from another source at a time
+    private static final int BATCH_SIZE = 64;
+
+    // orders before every other UUID, so that a position with it comes before every entity with the same key
+    private static final UUID FIRST_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>();
+    private final Map<UUID, String> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Put an entity into this index, or move it if its key changed.
+     * @param id UUID of the entity
+     * @param key sort key of the entity
+     */
+    public void put(UUID id, String key){
+        String old = keys.put(id, key);
+        // added before the old position is removed, so that readers never miss the entity
+        entries.add(new Entry(key, id));
+        if (old != null && !old.equals(key)){
+            entries.remove(new Entry(old, id));
+        }
+    }
+
+    /**
+     * Remove an entity from this index.
+     * @param id UUID of the entity
+     */
+    public void remove(UUID id){
+        String old = keys.remove(id);
+        if (old != null){
+            entries.remove(new Entry(old, id));
+        }
+    }
+
+    /**
+     * Get the sort key of an entity.
+     * @param id UUID of the entity
+     * @return sort key of the entity, or null if it is not in this index
+     */
+    public String getKey(UUID id){
+        return id == null ? null : keys.get(id);
+    }
+
+    /**
+     * Get the entities ordered after the given position, in order. The position does not have to be in the index.
+     * The returned view may or may not reflect changes made to the index while it is read, but never fails because
+     * of them.
+     * @param key sort key of the position, or null to start from the first entity
+     * @param id UUID of the position
+     * @return entities after the position, in order
+     */
+    public Iterable<UUID> after(String key, UUID id){
+        SortedSet<Entry> tail = key == null ? entries : entries.tailSet(new Entry(key, id), false);
+        return () -> new Iterator<UUID>() {
+            private final Iterator<Entry> it = tail.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public UUID next() {
+                return it.next().id;
+            }
+        };
+    }
+
+    /**
+     * Get the entities ordered after the given position, in order, from both this index and another source of
+     * entities in the same order, such as the entities that are stored rather than in memory. The other source is
+     * read a batch at a time as the entities are read, and an entity in both is only read from this index.
+     * @param key sort key of the position, or null to start from the first entity
+     * @param id UUID of the position
+     * @param include which entities of this index to read
+     * @param other the other source of entities
+     * @return entities after the position, in order
+     */
+    public Iterable<UUID> after(String key, UUID id, Predicate<UUID> include, Source other){
+        return () -> new MergedIterator(key, id, include, other);
+    }
+
+    /**
+     * Get the distinct sort keys that start with the given prefix, in order.
+     * @param prefix prefix of the keys
+     * @param limit maximum number of keys returned
+     * @return list of at most limit keys
+     */
+    public List<String> keysStartingWith(String prefix, int limit){
+        List<String> res = new ArrayList<>();
+        for (Entry entry : entries.tailSet(new Entry(prefix, FIRST_ID), true)){
+            if (res.size() == limit || !entry.key.startsWith(prefix)){
+                break;
+            }
+            if (res.isEmpty() || !res.get(res.size() - 1).equals(entry.key)){
+                res.add(entry.key);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * A source of entities ordered like a SortedIndex, read a batch at a time.
+     */
+    public interface Source {
+
+        /**
+         * Get the entities ordered after the given position, in order.
+         * @param key sort key of the position, or null to start from the first entity
+         * @param id UUID of the position
+         * @param limit maximum number of entities returned
+         * @return map from UUID to sort key of at most limit entities, in order, with fewer than limit only if no
+         * entities are left
+         */
+        Map<UUID, String> after(String key, UUID id, int limit);
+    }
+
+    /**
+     * Iterator over the entities of this index and of another source, in order.
+     */
+    private class MergedIterator implements Iterator<UUID> {
+        private final Iterator<Entry> own;
+        private final Predicate<UUID> include;
+        private final Source other;
+        private Iterator<Map.Entry<UUID, String>> batch = Collections.emptyIterator();
+        // last entity read from the other source, where its next batch starts
+        private Entry otherPosition;
+        private boolean otherDone;
+        private Entry nextOwn;
+        private Entry nextOther;
+
+        private MergedIterator(String key, UUID id, Predicate<UUID> include, Source other){
+            this.own = (key == null ? entries : entries.tailSet(new Entry(key, id), false)).iterator();
+            this.include = include;
+            this.other = other;
+            this.otherPosition = key == null ? null : new Entry(key, id);
+            nextOwn = readOwn();
+            nextOther = readOther();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextOwn != null || nextOther != null;
+        }
+
+        @Override
+        public UUID next() {
+            if (!hasNext()){
+                throw new NoSuchElementException();
+            }
+            Entry res;
+            if (nextOther == null || (nextOwn != null && nextOwn.compareTo(nextOther) < 0)){
+                res = nextOwn;
+                nextOwn = readOwn();
+            }
+            else {
+                res = nextOther;
+                nextOther = readOther();
+            }
+            return res.id;
+        }
+
+        private Entry readOwn(){
+            while (own.hasNext()){
+                Entry entry = own.next();
+                if (include.test(entry.id)){
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        private Entry readOther(){
+            while (true){
+                if (!batch.hasNext()){
+                    if (otherDone){
+                        return null;
+                    }
+                    Map<UUID, String> read = otherPosition == null ? other.after(null, null, BATCH_SIZE)
+                            : other.after(otherPosition.key, otherPosition.id, BATCH_SIZE);
+                    otherDone = read.size() < BATCH_SIZE;
+                    batch = read.entrySet().iterator();
+                    if (!batch.hasNext()){
+                        return null;
+                    }
+                }
+                Map.Entry<UUID, String> read = batch.next();
+                otherPosition = new Entry(read.getValue(), read.getKey());
+                // entities in this index are newer than those of the other source
+                if (!keys.containsKey(read.getKey())){
+                    return otherPosition;
+                }
+            }
+        }
+    }
+
+    /**
+     * A position in the index.
+     */
+    private static class Entry implements Comparable<Entry> {
+        private final String key;
+        private final UUID id;
+
+        private Entry(String key, UUID id){
+            this.key = key;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int res = key.compareTo(other.key);
+            return res != 0 ? res : id.compareTo(other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Entry && compareTo((Entry) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, id);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package use_case;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared by every key of a manager, each key always mapping to the same lock. Mutations that
+ * must not interleave with others on the same keys, such as taking a username or moving a creation, hold the locks
+ * of every key involved. Keys mapping to the same lock only wait for each other needlessly, so a few dozen locks are
+ * enough for mutations on different keys to rarely wait.
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Initializes a StripedLock with the given number of locks.
+     * @param count number of locks, rounded up to a power of two
+     */
+    public StripedLock(int count){
+        int size = Integer.highestOneBit(Math.max(1, count - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++){
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Acquire the lock of a key, waiting for it if another thread holds it. Locks are reentrant, so a thread
+     * holding the lock already acquires it again at once.
+     * @param key the key, or null to acquire nothing
+     * @return the acquired lock, to be released by calling unlock in a finally block
+     */
+    public Held lock(Object key){
+        if (key == null){
+            return () -> { };
+        }
+        ReentrantLock stripe = stripes[indexOf(key)];
+        stripe.lock();
+        return stripe::unlock;
+    }
+
+    /**
+     * Acquire the locks of several keys. The locks are always acquired in the same order, so that threads locking
+     * overlapping keys cannot wait for each other forever.
+     * @param keys the keys, of which nulls are skipped
+     * @return the acquired locks, to be released by calling unlock in a finally block
+     */
+    public Held lock(Object... keys){
+        int[] indexes = indexesOf(keys);
+        for (int index : indexes){
+            stripes[index].lock();
+        }
+        return () -> unlock(indexes, indexes.length);
+    }
+
+    /**
+     * Acquire the locks of several keys only if no other thread holds any of them, without waiting. Since it never
+     * waits, it can be called while holding other locks that threads holding these keys might wait for.
+     * @param keys the keys, of which nulls are skipped
+     * @return the acquired locks, to be released by calling unlock in a finally block, or null if another thread
+     * holds one of them, in which case none is held
+     */
+    public Held tryLock(Object... keys){
+        int[] indexes = indexesOf(keys);
+        for (int i = 0; i < indexes.length; i++){
+            if (!stripes[indexes[i]].tryLock()){
+                unlock(indexes, i);
+                return null;
+            }
+        }
+        return () -> unlock(indexes, indexes.length);
+    }
+
+    // =============== Helper methods ================
+    private int[] indexesOf(Object[] keys){
+        int[] indexes = new int[keys.length];
+        int count = 0;
+        for (Object key : keys){
+            if (key != null){
+                indexes[count++] = indexOf(key);
+            }
+        }
+        Arrays.sort(indexes, 0, count);
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++){
+            if (distinct == 0 || indexes[distinct - 1] != indexes[i]){
+                indexes[distinct++] = indexes[i];
+            }
+        }
+        return Arrays.copyOf(indexes, distinct);
+    }
+
+    private void unlock(int[] indexes, int held){
+        for (int i = held - 1; i >= 0; i--){
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    private int indexOf(Object key){
+        int hash = key.hashCode();
+        // spread the high bits, which UUIDs and strings vary more than the low ones
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * Locks acquired together, released together.
+     */
+    public interface Held {
+
+        /**
+         * Release the locks.
+         */
+        void unlock();
+    }
+}
@@ -2,14 +2,17 @@ package use_case;
 
 import entities.CreationTemplate;
 
-import java.io.Serializable;
+import java.text.ParseException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * A usecase class to store and modify creation templates.
  */
-public class TemplateManager implements Serializable {
+public class TemplateManager extends JournaledManager {
+
+    private static final long serialVersionUID = -793570130130567908L;
 
     // mapping: path --> template instance
     private Map<String, CreationTemplate> templates = new HashMap<>();
@@ -49,7 +52,30 @@ public class TemplateManager implements Serializable {
      * @param t CreationTemplate instance to be added
      */
     public void addTemplate(CreationTemplate t){
+        copyOnWrite(t.getPath(), templates.get(t.getPath()));
         templates.put(t.getPath(), t);
+        recordPut(t.getPath(), t);
+    }
+
+    /**
+     * Rename the template at the given filepath.
+     * @param path filepath of the template.
+     * @param newName new name of the template.
+     */
+    public void setTemplateName(String path, String newName){
+        copyOnWrite(path, getTemplate(path)).setName(newName);
+        recordPut(path, getTemplate(path));
+    }
+
+    /**
+     * Replace the contents of the template at the given filepath.
+     * @param path filepath of the template.
+     * @param contents new contents of the template.
+     * @throws ParseException if the number of prompts would change
+     */
+    public void setTemplateContents(String path, String contents) throws ParseException {
+        copyOnWrite(path, getTemplate(path)).setContents(contents);
+        recordPut(path, getTemplate(path));
     }
 
     /**
@@ -59,4 +85,28 @@ public class TemplateManager implements Serializable {
     public String[] getAllTemplates(){
         return templates.keySet().toArray(new String[0]);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<?, ?> getEntries() {
+        return Collections.unmodifiableMap(templates);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replayPut(Object key, Object value) {
+        templates.put((String) key, (CreationTemplate) value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replayRemove(Object key) {
+        templates.remove((String) key);
+    }
 }
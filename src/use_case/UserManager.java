@@ -1,110 +1,323 @@
 package use_case;
 
+import entities.user.Ban;
 import entities.user.CreationUser;
 import entities.user.LogInable;
 import entities.user.User;
 import util.*;
 
-import java.io.Serializable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * A use case class, representing a user manager to store, manipulate, modify the user instance(s).
+ * A use case class, representing a user manager to store, manipulate, modify the user instance(s). Users can be
+ * added, changed and looked up by several threads at once: usernames and emails are only taken while their locks are
+ * held, so no two users get the same one.
  */
 
-public class UserManager implements Serializable {
+public class UserManager extends JournaledManager {
+    private static final long serialVersionUID = 3607428136661828016L;
+
+    // login attempts allowed at once per username and per source, and how often one more is allowed
+    private static final int USERNAME_BURST = 5;
+    private static final long USERNAME_REFILL_MILLIS = 30000;
+    private static final int SOURCE_BURST = 20;
+    private static final long SOURCE_REFILL_MILLIS = 3000;
+    private static final int THROTTLED_KEYS = 10000;
+
     private Map<UUID, User> users;
+    // users that are not in memory are looked up and loaded from here
+    private transient ShardSource shards;
+    // user IDs of the users in memory by username and by email, rebuilt when the manager is read back
+    private transient Map<String, UUID> byUsername;
+    private transient Map<String, UUID> byEmail;
+    // owner of each creation of the users in memory
+    private transient Map<UUID, UUID> ownerByCreation;
+    // users in memory ordered by username
+    private transient SortedIndex usernameOrder;
+    // users with a ban, by the day it gets lifted, including stored users that are not in memory
+    private transient BanRegistry bans;
+    // recent login attempts by username and by source
+    private transient LoginThrottle usernameAttempts;
+    private transient LoginThrottle sourceAttempts;
 
     public UserManager() {
-        users = new HashMap<>();
+        users = new ConcurrentHashMap<>();
+        byUsername = new ConcurrentHashMap<>();
+        byEmail = new ConcurrentHashMap<>();
+        ownerByCreation = new ConcurrentHashMap<>();
+        usernameOrder = new SortedIndex();
+        bans = new BanRegistry();
+        initThrottles();
     }
 
     /**
-     * Add a LoginUser to users, with given sign-in information.
+     * Add a LoginUser to users, with given sign-in information. Waits for the password to be hashed by the
+     * PasswordHasher.
      *
      * @return whether the LoginUser is successfully added to users
-     * @throws InvalidUsernameAndPasswordException when password and username are ill-formatted
-     * @throws InvalidUsernameException when username is ill-formatted
-     * @throws InvalidPasswordException when password is ill-formatted
+     * @throws UserSignupException if the password is too weak, or the username or email is taken
+     * @throws RejectedExecutionException if too many passwords are being hashed at once
      */
     public UUID addUser(User added) throws UserSignupException {
+        return await(addUserAsync(added), UserSignupException.class);
+    }
+
+    /**
+     * Add a user without waiting for their password to be hashed. Users that cannot log in are added at once;
+     * otherwise the password is hashed on the PasswordHasher's threads, and the user is added on the thread that
+     * hashed it, once no other thread can take their username or email.
+     * @param added the user
+     * @return future completed with the UUID of the user, or with a UserSignupException if the password is too weak
+     * or the username or email is taken, or with a RejectedExecutionException if too many passwords are being hashed
+     * at once
+     */
+    public CompletableFuture<UUID> addUserAsync(User added){
+        CompletableFuture<UUID> failed = new CompletableFuture<>();
         if (!(added instanceof LogInable)){
-            users.put(added.getUserID(), added);
-            return added.getUserID();
+            StripedLock.Held held = locks.lock(added.getUserID());
+            try {
+                copyOnWrite(added.getUserID(), findUser(added.getUserID()));
+                putUser(added);
+                recordPut(added.getUserID(), added);
+            } finally {
+                held.unlock();
+            }
+            return CompletableFuture.completedFuture(added.getUserID());
         }
 
         String password = ((LogInable) added).getPassword();
-        if (getPasswordStrength(password) <= 3) {
-            throw new UserSignupException("Password is too weak");
+        String email = ((LogInable) added).getEmail();
+        try {
+            if (getPasswordStrength(password) <= CredentialValidator.TOO_WEAK) {
+                throw new UserSignupException("Password is too weak");
+            }
+            // checked before the password is hashed, and again once no other thread can take the username or email
+            checkAvailable(added.getUsername(), email);
+        } catch (UserSignupException e) {
+            failed.completeExceptionally(e);
+            return failed;
         }
 
-        if (!usernameAvailable(added.getUsername())){
-            throw new UserSignupException("Username already taken");
-        }
+        return PasswordHasher.getDefault().hash(password).thenApply(hashed -> {
+            ((LogInable) added).setPassword(hashed);
+            StripedLock.Held held = locks.lock(added.getUserID(), added.getUsername(), email);
+            try {
+                checkAvailable(added.getUsername(), email);
+                copyOnWrite(added.getUserID(), findUser(added.getUserID()));
+                putUser(added);
+                recordPut(added.getUserID(), added);
+            } catch (UserSignupException e) {
+                throw new CompletionException(e);
+            } finally {
+                held.unlock();
+            }
+            return added.getUserID();
+        });
+    }
 
-        if (getUserByEmail(((LogInable) added).getEmail()) != null){
-            throw new UserSignupException("User already registered to email");
+    public void removeUser(UUID userID){
+        StripedLock.Held held = locks.lock(userID);
+        try {
+            copyOnWrite(userID, findUser(userID));
+            unindex(users.remove(userID), null);
+            recordRemove(userID);
+        } finally {
+            held.unlock();
         }
-
-        users.put(added.getUserID(), added);
-        return added.getUserID();
-
     }
 
-    public void removeUser(UUID userID){
-        users.remove(userID);
+    /**
+     * Change the username of a user, if the new username is not taken. Usernames must be changed through this
+     * method rather than User.setUsername, so that the user can still be found by their new username.
+     * @param userID UUID of the user
+     * @param newUsername new username of the user
+     * @throws UserSignupException if the new username is already taken
+     */
+    public void setUsername(UUID userID, String newUsername) throws UserSignupException {
+        StripedLock.Held held = locks.lock(userID, newUsername);
+        try {
+            User user = findUser(userID);
+            if (user.getUsername().equals(newUsername)){
+                return;
+            }
+            if (!usernameAvailable(newUsername)){
+                throw new UserSignupException("Username already taken");
+            }
+
+            user = writableUser(userID);
+            String oldUsername = user.getUsername();
+            user.setUsername(newUsername);
+            // the new username is taken before the old one is given up
+            index(user);
+            byUsername.remove(oldUsername, userID);
+            recordPut(userID, user);
+        } finally {
+            held.unlock();
+        }
     }
 
     /**
-     * Login a login-able user, with given userID and password, if the user id exists.
+     * Login a login-able user, with given userID and password, if the user id exists. Waits for the password to be
+     * checked by the PasswordHasher.
      *
      * @param username username of the user
      * @param password password of the user
-     * @return UUID of the user that was logged in.
+     * @return the login of the user, to be finished by the caller
      * @throws NullUserException if the userID given is not existed
      * @throws WrongPasswordException if password given is incorrect
+     * @throws TooManyAttemptsException if too many logins were attempted for the username recently
+     * @throws RejectedExecutionException if too many passwords are being checked at once
      */
-    public UUID userLogin(String username, String password) throws NullUserException, WrongPasswordException, BannedUserException {
+    public VerifiedLogin userLogin(String username, String password) throws NullUserException, WrongPasswordException,
+            BannedUserException, TooManyAttemptsException {
+        try {
+            return userLoginAsync(username, password, null).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NullUserException){
+                throw (NullUserException) cause;
+            }
+            if (cause instanceof BannedUserException){
+                throw (BannedUserException) cause;
+            }
+            if (cause instanceof WrongPasswordException){
+                throw (WrongPasswordException) cause;
+            }
+            if (cause instanceof TooManyAttemptsException){
+                throw (TooManyAttemptsException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Login a login-able user, with given userID and password, if the user id exists. Attempts past the limit for
+     * the source or the username are rejected before the user is looked up. The user is looked up on the calling
+     * thread and the password is checked on the PasswordHasher's threads. Nothing is changed in this manager, so the
+     * returned future can complete on any thread.
+     *
+     * @param username username of the user
+     * @param password password of the user
+     * @param source where the attempt comes from, such as an address, or null if it is not known
+     * @return future completed with the login of the user, or with a TooManyAttemptsException, NullUserException,
+     * BannedUserException, WrongPasswordException, or RejectedExecutionException if too many passwords are being
+     * checked at once
+     */
+    public CompletableFuture<VerifiedLogin> userLoginAsync(String username, String password, String source){
+        CompletableFuture<VerifiedLogin> failed = new CompletableFuture<>();
+        // the source goes first, so a source over its limit does not use up the attempts of the usernames it tries
+        long retry = source == null ? 0 : sourceAttempts.tryAcquire(source);
+        if (retry == 0){
+            retry = usernameAttempts.tryAcquire(username);
+        }
+        if (retry > 0){
+            failed.completeExceptionally(new TooManyAttemptsException(retry));
+            return failed;
+        }
+        liftExpiredBans();
+
         UUID retrieved = getUserByUsername(username);
-        if (retrieved == null) {
-            throw new NullUserException();
+        if (retrieved == null || !(findUser(retrieved) instanceof LogInable)) {
+            failed.completeExceptionally(new NullUserException());
+            return failed;
         }
-        LocalDate banDate = users.get(retrieved).getBannedUntil();
+        LocalDate banDate = findUser(retrieved).getBannedUntil();
         if (banDate != null && LocalDate.now().isBefore(banDate)){
-            throw new BannedUserException();
+            failed.completeExceptionally(new BannedUserException());
+            return failed;
         }
 
-        LogInable user = (LogInable) users.get(retrieved);
-        if(user.getPassword().equals(password) || password.equals(user.getTempPassword())){
-            return ((User) user).getUserID();
-        }
+        LogInable user = (LogInable) findUser(retrieved);
+        String stored = user.getPassword();
+        return PasswordHasher.getDefault().match(password, stored, user.getTempPassword())
+                .thenApply(index -> {
+                    if (index < 0){
+                        throw new CompletionException(new WrongPasswordException());
+                    }
+                    usernameAttempts.reset(username);
+                    return new VerifiedLogin(retrieved, index == 0 ? stored : null);
+                });
+    }
 
-        else{
-            throw new WrongPasswordException();
+    /**
+     * Hash the password of a user again if it was saved before passwords were hashed, or with far fewer iterations
+     * than the PasswordHasher now uses. Call after the user logged in with the password; the check done by the login
+     * is reused, so the password is only hashed, on the PasswordHasher's threads, and stored on the thread that
+     * hashed it.
+     * @param login the login of the user, from userLoginAsync
+     * @param password the password the user logged in with
+     * @return future completed once the password was stored again or found not to need it, or with a
+     * RejectedExecutionException if too many passwords are being hashed at once
+     */
+    public CompletableFuture<Void> upgradePasswordAsync(VerifiedLogin login, String password){
+        PasswordHasher hasher = PasswordHasher.getDefault();
+        UUID userID = login.getUserID();
+        // null if the user logged in with the temporary password
+        String stored = login.getVerifiedPassword();
+        if (stored == null || !hasher.needsRehash(stored)){
+            return CompletableFuture.completedFuture(null);
         }
+
+        return hasher.hash(password).thenAccept(hashed -> {
+            StripedLock.Held held = locks.lock(userID);
+            try {
+                User current = findUser(userID);
+                // the password may have been changed since the login checked it
+                if (!(current instanceof LogInable) || !stored.equals(((LogInable) current).getPassword())){
+                    return;
+                }
+                ((LogInable) writableUser(userID)).setPassword(hashed);
+                recordPut(userID, findUser(userID));
+            } finally {
+                held.unlock();
+            }
+        });
     }
 
     /**
      * Based on the given email, if the user id exists, reset the password of this user account with a
-     * temporary password.
+     * temporary password. Waits for the temporary password to be hashed.
      * @param email email of the user account
      * @return a Stirng that is the temporary password to this account.
      * @throws NullUserException if based on the email, the userID does not exist
      */
-
     public String recoverPassword(String email) throws NullUserException {
+        return await(recoverPasswordAsync(email), NullUserException.class);
+    }
 
+    /**
+     * Give the user with the given email a new temporary password, without waiting for it to be hashed. The password
+     * is hashed on the PasswordHasher's threads, and stored on the thread that hashed it.
+     * @param email email of the user account
+     * @return future completed with the temporary password, or with a NullUserException if no user has the email,
+     * or with a RejectedExecutionException if too many passwords are being hashed at once
+     */
+    public CompletableFuture<String> recoverPasswordAsync(String email){
         UUID userID = getUserByEmail(email);
-
         if (userID == null){
-            throw new NullUserException();
+            CompletableFuture<String> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new NullUserException());
+            return failed;
         }
 
         String tempPass = UUID.randomUUID().toString().replace("-","").substring(0,14);
-        ((LogInable) users.get(userID)).setTempPassword(tempPass);
-        return tempPass;
-
+        return PasswordHasher.getDefault().hash(tempPass).thenApply(hashed -> {
+            StripedLock.Held held = locks.lock(userID);
+            try {
+                ((LogInable) writableUser(userID)).setTempPassword(hashed);
+                recordPut(userID, findUser(userID));
+            } finally {
+                held.unlock();
+            }
+            return tempPass;
+        });
     }
 
     /**
@@ -113,12 +326,18 @@ public class UserManager implements Serializable {
      * @return returns a boolean, false if the given userID does not exist; ture if the operation is done .
      */
     public boolean logOut(UUID userID){
-        if (!(users.get(userID) instanceof LogInable)){
-            return false;
-        }
+        StripedLock.Held held = locks.lock(userID);
+        try {
+            if (!(findUser(userID) instanceof LogInable)){
+                return false;
+            }
 
-        ((LogInable) users.get(userID)).setTempPassword(null);
-        return true;
+            ((LogInable) writableUser(userID)).setTempPassword(null);
+            recordPut(userID, findUser(userID));
+            return true;
+        } finally {
+            held.unlock();
+        }
     }
 
     /**
@@ -133,15 +352,67 @@ public class UserManager implements Serializable {
             adminStatus = true;
         }
 
+        Set<UUID> userIDs = new HashSet<>(users.keySet());
+        if (shards != null){
+            userIDs.addAll(Arrays.asList(shards.getUserIDs()));
+        }
+
         ArrayList<UUID> res = new ArrayList<>();
-        for (UUID id : users.keySet()){
+        for (UUID id : userIDs){
             if ((!id.equals(userID)) || adminStatus){
-                res.addAll(Arrays.asList(getUserModuleIDs(id)));
+                // users that are not in memory are listed from the shard index rather than loaded
+                User user = users.get(id);
+                if (user != null){
+                    res.addAll(user instanceof CreationUser ? ((CreationUser) user).getCreationSet()
+                            : Collections.<UUID>emptySet());
+                }
+                else {
+                    res.addAll(Arrays.asList(shards.getCreations(id)));
+                }
             }
         }
         return res.toArray(new UUID[0]);
     }
 
+    /**
+     * Get the usernames that start with the given prefix, such as to complete a username being typed.
+     * @param prefix prefix of the usernames
+     * @param limit maximum number of usernames returned
+     * @return array of at most limit usernames, in alphabetical order
+     */
+    public String[] getUsernamesStartingWith(String prefix, int limit){
+        TreeSet<String> res = new TreeSet<>(usernameOrder.keysStartingWith(prefix, limit));
+        if (shards != null){
+            for (String username : shards.findUsernamesByPrefix(prefix, limit)){
+                // a user in memory may have been renamed since they were stored
+                UUID userID = shards.findUserByUsername(username);
+                User resident = userID == null ? null : users.get(userID);
+                if (userID != null && (resident == null || resident.getUsername().equals(username))){
+                    res.add(username);
+                }
+            }
+        }
+        while (res.size() > limit){
+            res.pollLast();
+        }
+        return res.toArray(new String[0]);
+    }
+
+    /**
+     * Get the users ordered after the given user by username, in that order, including those that are not in
+     * memory, without loading them. Users with the same username are ordered by UUID.
+     * @param username username of the position, or null to start from the first user
+     * @param userID UUID of the user at the position
+     * @return users after the position, which may or may not include users added or renamed while it is read
+     */
+    public Iterable<UUID> getUsersAfter(String username, UUID userID){
+        ShardSource source = shards;
+        if (source == null){
+            return usernameOrder.after(username, userID);
+        }
+        return usernameOrder.after(username, userID, id -> true, source::getStoredUsersAfter);
+    }
+
     /**
      * Bans a user given the user applying the ban, and the user receiving the ban
      * @param adminID UUID of the admin user who is applying the ban
@@ -150,16 +421,68 @@ public class UserManager implements Serializable {
      */
     public boolean banUser(UUID adminID, UUID userID, int duration){
 
-        if (!users.get(adminID).getUserType().equals("admin")){
+        if (!findUser(adminID).getUserType().equals("admin")){
             return false;
         }
-        User receiver = users.get(userID);
-        LocalDate banDate = LocalDate.now().plusDays(duration);
-
-        receiver.setBanDate(banDate);
+        LocalDate today = LocalDate.now();
+        LocalDate banDate = today.plusDays(duration);
+
+        StripedLock.Held held = locks.lock(userID);
+        try {
+            User receiver = writableUser(userID);
+            receiver.addBan(new Ban(adminID, today, banDate));
+            bans.put(userID, banDate);
+            recordPut(userID, receiver);
+        } finally {
+            held.unlock();
+        }
         return true;
     }
 
+    /**
+     * Lift the bans that have expired. Bans are also lifted whenever the banned users are listed or a user logs in.
+     * @return UUIDs of the users whose ban was lifted
+     */
+    public List<UUID> liftExpiredBans(){
+        LocalDate today = LocalDate.now();
+        List<UUID> lifted = bans.pollExpired(today);
+        for (UUID userID : lifted){
+            StripedLock.Held held = locks.lock(userID);
+            try {
+                User user = findUser(userID);
+                if (user == null || user.getBannedUntil() == null || today.isBefore(user.getBannedUntil())){
+                    continue;
+                }
+                writableUser(userID).setBanDate(null);
+                // loading a stored user put their ban back
+                bans.remove(userID);
+                recordPut(userID, findUser(userID));
+            } finally {
+                held.unlock();
+            }
+        }
+        return lifted;
+    }
+
+    /**
+     * Get the users that are banned, soonest-lifted first, after lifting the bans that have expired.
+     * @param limit maximum number of users returned
+     * @return list of at most limit user UUIDs
+     */
+    public List<UUID> getBannedUsers(int limit){
+        liftExpiredBans();
+        return bans.getBanned(limit);
+    }
+
+    /**
+     * Get every ban applied to a user, oldest first, including the bans that have been lifted.
+     * @param userID UUID of the user
+     * @return copy of the list of the user's bans
+     */
+    public List<Ban> getBanHistory(UUID userID){
+        return findUser(userID).getBanHistory();
+    }
+
     /**
      * Get a list of a user's module ids, if the user id exists.
      *
@@ -167,7 +490,7 @@ public class UserManager implements Serializable {
      * @return ArrayList of module ids of the user
      */
     public UUID[] getUserModuleIDs(UUID userID) {
-        User user = users.get(userID);
+        User user = findUser(userID);
 
         if (user instanceof CreationUser){
             CreationUser cUser = (CreationUser) user;
@@ -177,8 +500,47 @@ public class UserManager implements Serializable {
         return new UUID[0];
     }
 
+    /**
+     * Get a list of a user's module ids, read from the shard index rather than loaded if the user is not in memory.
+     *
+     * @param userID userID of the user.User being requested for module ids access
+     * @return array of module ids of the user, empty if the user does not exist or cannot make creations
+     */
+    public UUID[] peekUserModuleIDs(UUID userID) {
+        User user = users.get(userID);
+        if (user == null){
+            return shards == null ? new UUID[0] : shards.getCreations(userID);
+        }
+        return user instanceof CreationUser ? ((CreationUser) user).getCreations() : new UUID[0];
+    }
+
+    /**
+     * Get a read-only copy of a user's module ids, which is only copied again once the user's creations change.
+     *
+     * @param userID userID of the user.User being requested for module ids access
+     * @return Set of module ids of the user, in the order they were added, empty if the user cannot make creations
+     */
+    public Set<UUID> getUserModuleIDSet(UUID userID) {
+        User user = findUser(userID);
+
+        if (user instanceof CreationUser){
+            return ((CreationUser) user).getCreationSet();
+        }
+
+        return Collections.emptySet();
+    }
+
     public boolean isAdmin(UUID userID){
-        return users.get(userID).getUserType().equals("admin");
+        return findUser(userID).getUserType().equals("admin");
+    }
+
+    /**
+     * Get the owner of a creation among the users in memory, without loading any shard.
+     * @param creationID UUID of the creation
+     * @return UUID of the owner, or null if the creation has no owner in memory
+     */
+    public UUID getResidentOwner(UUID creationID){
+        return creationID == null ? null : ownerByCreation.get(creationID);
     }
 
     /**
@@ -187,16 +549,19 @@ public class UserManager implements Serializable {
      * @return UUID of the user that owns this creation.
      */
     public UUID getUserByCreation(UUID creationID){
-        for (UUID i : users.keySet()){
-            User user = users.get(i);
-
-            if (user instanceof CreationUser){
-                CreationUser cUser = (CreationUser) user;
-                boolean contained = Arrays.asList(cUser.getCreations()).contains(creationID);
+        if (creationID == null){
+            return null;
+        }
+        UUID resident = ownerByCreation.get(creationID);
+        if (resident != null){
+            return resident;
+        }
 
-                if (contained){
-                    return i;
-                }
+        if (shards != null){
+            UUID owner = shards.findOwner(creationID);
+            // an owner already in memory is newer than the index, and was checked above
+            if (owner != null && !users.containsKey(owner) && findUser(owner) != null){
+                return owner;
             }
         }
         return null;
@@ -209,11 +574,18 @@ public class UserManager implements Serializable {
      * @param CreationID Creation to be added to the given user's list of module ids
      */
     public void addCreationToUser(UUID userID, UUID CreationID) {
-        User user = users.get(userID);
+        StripedLock.Held held = locks.lock(userID, CreationID);
+        try {
+            User user = writableUser(userID);
 
-        if (user instanceof CreationUser){
-            CreationUser cUser = (CreationUser) user;
-            cUser.addCreation(CreationID);
+            if (user instanceof CreationUser){
+                CreationUser cUser = (CreationUser) user;
+                cUser.addCreation(CreationID);
+                ownerByCreation.put(CreationID, userID);
+                recordPut(userID, cUser);
+            }
+        } finally {
+            held.unlock();
         }
     }
 
@@ -224,11 +596,18 @@ public class UserManager implements Serializable {
      * @param creationID Creation to be added to the given user's list of module ids
      */
     public void removeCreationFromUser(UUID userID, UUID creationID){
-        User user = users.get(userID);
+        StripedLock.Held held = locks.lock(userID, creationID);
+        try {
+            User user = writableUser(userID);
 
-        if (user instanceof CreationUser){
-            CreationUser cUser = (CreationUser) user;
-            cUser.removeCreation(creationID);
+            if (user instanceof CreationUser){
+                CreationUser cUser = (CreationUser) user;
+                cUser.removeCreation(creationID);
+                ownerByCreation.remove(creationID, userID);
+                recordPut(userID, cUser);
+            }
+        } finally {
+            held.unlock();
         }
     }
 
@@ -240,17 +619,18 @@ public class UserManager implements Serializable {
      * @return the user type of the user corresponds to the given userID
      */
     public String getUserType(UUID userID) {
-        User user = users.get(userID);
+        User user = findUser(userID);
         return user.getUserType();
     }
 
     /**
-     * Get a user given their userID
+     * Get a user given their userID. The user is the one stored in this manager rather than a copy, so it must only
+     * be read, and its lists are only handed out as copies.
      * @param userID userID of the user
      * @return user instance
      */
     public User getUser(UUID userID){
-        return users.get(userID);
+        return findUser(userID);
     }
 
     /**
@@ -259,7 +639,7 @@ public class UserManager implements Serializable {
      * @return username of the user
      */
     public String getUsername(UUID userID){
-        return users.get(userID).getUsername();
+        return findUser(userID).getUsername();
     }
 
     /**
@@ -272,12 +652,35 @@ public class UserManager implements Serializable {
      * @return whether the password is changed
      */
     public void changePassword(UUID userID, String newPassword) throws UserSignupException {
+        await(changePasswordAsync(userID, newPassword), UserSignupException.class);
+    }
 
-        if (getPasswordStrength(newPassword) > 3 && users.get(userID) instanceof LogInable){
-            ((LogInable) users.get(userID)).setPassword(newPassword);
-            return;
+    /**
+     * Change the password of a user without waiting for it to be hashed. The password is hashed on the
+     * PasswordHasher's threads, and stored on the thread that hashed it.
+     * @param userID UUID of the user
+     * @param newPassword the new password
+     * @return future completed once the password is changed, or with a UserSignupException if the password is too
+     * weak or the user cannot log in, or with a RejectedExecutionException if too many passwords are being hashed at
+     * once
+     */
+    public CompletableFuture<Void> changePasswordAsync(UUID userID, String newPassword){
+        if (getPasswordStrength(newPassword) <= CredentialValidator.TOO_WEAK
+                || !(findUser(userID) instanceof LogInable)){
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new UserSignupException("Password is too weak"));
+            return failed;
         }
-        throw new UserSignupException("Password is too weak");
+
+        return PasswordHasher.getDefault().hash(newPassword).thenAccept(hashed -> {
+            StripedLock.Held held = locks.lock(userID);
+            try {
+                ((LogInable) writableUser(userID)).setPassword(hashed);
+                recordPut(userID, findUser(userID));
+            } finally {
+                held.unlock();
+            }
+        });
     }
 
     /**
@@ -286,14 +689,7 @@ public class UserManager implements Serializable {
      * @return true if the username is available
      */
     public boolean usernameAvailable(String username){
-        boolean unique = true;
-        for (User user : users.values()){
-            if (user.getUsername().equals(username)) {
-                unique = false;
-                break;
-            }
-        }
-        return unique;
+        return getUserByUsername(username) == null;
     }
 
     /**
@@ -303,12 +699,7 @@ public class UserManager implements Serializable {
      * where <=3 - too weak, 4 - weak, 5 - med, >=6 - strong
      */
     public int getPasswordStrength(String password){
-        int length = password.length() < 9 ? 3 : 4;
-        int symbols = password.matches(".*[^a-zA-Z0-9 ]+.*") ? 1 : 0;
-        int mixed = password.matches(".*[A-Z]+.*") && password.matches(".*[a-z]+.*")? 1 : 0;
-        int num = password.matches(".*[0-9]+.*") ? 1 : 0;
-
-        return length + symbols + mixed + num;
+        return CredentialValidator.passwordStrength(password);
     }
 
     /**
@@ -318,21 +709,20 @@ public class UserManager implements Serializable {
      * @throws NullUserException if the user could not be found
      */
     public UUID getUserIDByUsername(String username) throws NullUserException {
-        for (User user : users.values()){
-            if (user.getUsername().equals(username)){
-                return user.getUserID();
-            }
+        UUID userID = getUserByUsername(username);
+        if (userID == null){
+            throw new NullUserException();
         }
-        throw new NullUserException();
+        return userID;
     }
 
     /**
      * Get messages owned by the user
      * @param userID UUID of the user
-     * @return list of messages UUIDs owned by the user
+     * @return copy of the list of messages UUIDs owned by the user
      */
     public List<UUID> getUserMessageIDs(UUID userID) {
-        return users.get(userID).getMessageInbox();
+        return findUser(userID).getMessageInbox();
     }
 
 
@@ -342,8 +732,14 @@ public class UserManager implements Serializable {
      * @param receiverID User receiving the message
      */
     public void addMessageToInbox(UUID messageID, UUID receiverID){
-        User receiver = users.get(receiverID);
-        receiver.addMessageIDtoInbox(messageID);
+        StripedLock.Held held = locks.lock(receiverID);
+        try {
+            User receiver = writableUser(receiverID);
+            receiver.addMessageIDtoInbox(messageID);
+            recordPut(receiverID, receiver);
+        } finally {
+            held.unlock();
+        }
     }
 
     /**
@@ -352,8 +748,14 @@ public class UserManager implements Serializable {
      * @param userID UUID of the user
      */
     public void deleteMessageFromInbox(UUID messageID, UUID userID){
-        User receiver = users.get(userID);
-        receiver.deleteMessageIDFromInbox(messageID);
+        StripedLock.Held held = locks.lock(userID);
+        try {
+            User receiver = writableUser(userID);
+            receiver.deleteMessageIDFromInbox(messageID);
+            recordPut(userID, receiver);
+        } finally {
+            held.unlock();
+        }
     }
 
     /**
@@ -371,9 +773,109 @@ public class UserManager implements Serializable {
     }
 
 
+    /**
+     * Keep only some users in memory, and look up and load the others from the given source when they are needed.
+     * @param shards source of the users that are not in memory
+     */
+    public void setShardSource(ShardSource shards){
+        this.shards = shards;
+        for (Map.Entry<UUID, LocalDate> ban : shards.getStoredBans().entrySet()){
+            if (!users.containsKey(ban.getKey())){
+                bans.put(ban.getKey(), ban.getValue());
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<?, ?> getEntries() {
+        return Collections.unmodifiableMap(users);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replayPut(Object key, Object value) {
+        putUser((User) value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void replayRemove(Object key) {
+        unindex(users.remove((UUID) key), null);
+    }
+
+    // =============== Helper methods ================
+    private void initThrottles(){
+        usernameAttempts = new LoginThrottle(USERNAME_BURST, USERNAME_REFILL_MILLIS, THROTTLED_KEYS);
+        sourceAttempts = new LoginThrottle(SOURCE_BURST, SOURCE_REFILL_MILLIS, THROTTLED_KEYS);
+    }
+
+    private static <T, E extends Exception> T await(CompletableFuture<T> future, Class<E> checked) throws E {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (checked.isInstance(cause)){
+                throw checked.cast(cause);
+            }
+            if (cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    private User writableUser(UUID userID){
+        return copyOnWrite(userID, findUser(userID));
+    }
+
+    private void checkAvailable(String username, String email) throws UserSignupException {
+        if (!usernameAvailable(username)){
+            throw new UserSignupException("Username already taken");
+        }
+
+        if (getUserByEmail(email) != null){
+            throw new UserSignupException("User already registered to email");
+        }
+    }
+
+    private User findUser(UUID userID){
+        if (userID == null){
+            return null;
+        }
+        User user = users.get(userID);
+        if (shards == null){
+            return user;
+        }
+        if (user != null){
+            shards.touch(userID);
+        }
+        else if (shards.load(userID)){
+            user = users.get(userID);
+        }
+        return user;
+    }
+
     private UUID getUserByUsername(String username){
-        for (UUID userID : users.keySet()){
-            if (users.get(userID).getUsername().equals(username)){
+        if (username == null){
+            return null;
+        }
+        UUID resident = byUsername.get(username);
+        if (resident != null){
+            return resident;
+        }
+
+        if (shards != null){
+            UUID userID = shards.findUserByUsername(username);
+            User user = findUser(userID);
+            // the index keeps the old username of a user renamed since their shard was written
+            if (user != null && username.equals(user.getUsername())){
                 return userID;
             }
         }
@@ -381,17 +883,92 @@ public class UserManager implements Serializable {
     }
 
     private UUID getUserByEmail(String email){
-        for (UUID userID : users.keySet()){
-            User curr = users.get(userID);
-            if ((curr instanceof LogInable && ((LogInable) curr).getEmail().equals(email))){
+        if (email == null){
+            return null;
+        }
+        UUID resident = byEmail.get(email);
+        if (resident != null){
+            return resident;
+        }
+
+        if (shards != null){
+            UUID userID = shards.findUserByEmail(email);
+            User user = findUser(userID);
+            // the index keeps the old email of a user whose email changed since their shard was written
+            if (user instanceof LogInable && email.equals(((LogInable) user).getEmail())){
                 return userID;
             }
         }
         return null;
     }
-}
 
+    private void putUser(User user){
+        User old = users.put(user.getUserID(), user);
+        // the new user is indexed before the old one is unindexed, so that its username and email stay taken
+        index(user);
+        unindex(old, user);
+    }
 
+    private void index(User user){
+        // trial users may share a username with another user, who keeps it
+        byUsername.putIfAbsent(user.getUsername(), user.getUserID());
+        usernameOrder.put(user.getUserID(), user.getUsername());
+        bans.put(user.getUserID(), user.getBannedUntil());
+        if (user instanceof LogInable && ((LogInable) user).getEmail() != null){
+            byEmail.putIfAbsent(((LogInable) user).getEmail(), user.getUserID());
+        }
+        if (user instanceof CreationUser){
+            for (UUID creationID : ((CreationUser) user).getCreationSet()){
+                ownerByCreation.put(creationID, user.getUserID());
+            }
+        }
+    }
 
+    private void unindex(User user, User kept){
+        // only what the user that replaces it does not have is unindexed
+        if (user == null || user == kept){
+            return;
+        }
+        if (kept == null || !kept.getUsername().equals(user.getUsername())){
+            byUsername.remove(user.getUsername(), user.getUserID());
+        }
+        if (kept == null){
+            usernameOrder.remove(user.getUserID());
+            bans.remove(user.getUserID());
+        }
+        String email = emailOf(user);
+        if (email != null && !email.equals(emailOf(kept))){
+            byEmail.remove(email, user.getUserID());
+        }
+        if (user instanceof CreationUser){
+            Set<UUID> keptCreations = kept instanceof CreationUser ? ((CreationUser) kept).getCreationSet()
+                    : Collections.<UUID>emptySet();
+            for (UUID creationID : ((CreationUser) user).getCreationSet()){
+                if (!keptCreations.contains(creationID)){
+                    ownerByCreation.remove(creationID, user.getUserID());
+                }
+            }
+        }
+    }
 
+    private static String emailOf(User user){
+        return user instanceof LogInable ? ((LogInable) user).getEmail() : null;
+    }
 
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        // snapshots written before users could be read and written concurrently hold a HashMap
+        if (!(users instanceof ConcurrentHashMap)){
+            users = new ConcurrentHashMap<>(users);
+        }
+        byUsername = new ConcurrentHashMap<>();
+        byEmail = new ConcurrentHashMap<>();
+        ownerByCreation = new ConcurrentHashMap<>();
+        usernameOrder = new SortedIndex();
+        bans = new BanRegistry();
+        initThrottles();
+        for (User user : users.values()){
+            index(user);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package use_case;
+
+import java.util.UUID;
+
+/**
+ * A login whose password was checked by UserManager.userLoginAsync, kept so that the check does not have to be
+ * done again to know which stored password the user logged in with.
+ */
+public class VerifiedLogin {
+    private final UUID userID;
+    private final String verifiedPassword;
+
+    /**
+     * Initializes a VerifiedLogin.
+     * @param userID UUID of the user that logged in
+     * @param verifiedPassword the stored password the given password matched, or null if it matched the temporary
+     *                         password
+     */
+    public VerifiedLogin(UUID userID, String verifiedPassword){
+        this.userID = userID;
+        this.verifiedPassword = verifiedPassword;
+    }
+
+    // ============== Getters =================
+
+    /**
+     * Get the UUID of the user that logged in.
+     * @return UUID of the user
+     */
+    public UUID getUserID(){
+        return userID;
+    }
+
+    /**
+     * Get the stored password the given password matched.
+     * @return the stored password as it was when it was checked, or null if the temporary password matched
+     */
+    public String getVerifiedPassword(){
+        return verifiedPassword;
+    }
+}
@@ -0,0 +1,28 @@
+package util;
+
+/**
+ * Exception class that is thrown when a login is attempted too many times in a short period
+ */
+public class TooManyAttemptsException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryMillis;
+
+    /**
+     * Initializes a TooManyAttemptsException.
+     * @param retryMillis time until the next attempt will be allowed, in milliseconds
+     */
+    public TooManyAttemptsException(long retryMillis){
+        super("Too many login attempts, try again in " + (retryMillis + 999) / 1000 + " seconds");
+        this.retryMillis = retryMillis;
+    }
+
+    /**
+     * Get the time until the next attempt will be allowed.
+     * @return time to wait, in milliseconds
+     */
+    public long getRetryMillis(){
+        return retryMillis;
+    }
+}